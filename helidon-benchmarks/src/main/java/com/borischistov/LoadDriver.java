@@ -0,0 +1,164 @@
+package com.borischistov;
+
+import io.helidon.webserver.WebServer;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed loop HTTP load driver for the stub server. Keeps {@code concurrency} requests in flight and records
+ * per request latency into an HdrHistogram.
+ * <p>
+ * Without {@code --url} an in-process {@link HelidonApplication} is started on a random port with
+ * {@code --routes} synthetic routes from {@link RouteFixtures}.
+ * <pre>
+ * java -cp target/benchmarks.jar com.borischistov.LoadDriver --routes=1000 --concurrency=64 --duration=30
+ * </pre>
+ */
+public class LoadDriver {
+
+    private static final Logger logger = LoggerFactory.getLogger(LoadDriver.class);
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(1);
+
+    private final ExecutorService executor;
+    private final HttpClient client;
+    private final URI base;
+    private final String[] paths;
+    private final int concurrency;
+    private final Recorder recorder = new Recorder(HIGHEST_LATENCY, 3);
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong cursor = new AtomicLong();
+    private volatile boolean running = true;
+
+    private LoadDriver(URI base, String[] paths, int concurrency) {
+        this.base = base;
+        this.paths = paths;
+        this.concurrency = concurrency;
+        this.executor = Executors.newFixedThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors() / 2));
+        this.client = HttpClient
+                .newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .executor(executor)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = parse(args);
+        var routes = Integer.parseInt(options.getOrDefault("routes", "1000"));
+        var concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        var warmup = Integer.parseInt(options.getOrDefault("warmup", "10"));
+        var duration = Integer.parseInt(options.getOrDefault("duration", "30"));
+        var missEvery = Integer.parseInt(options.getOrDefault("miss-every", "0"));
+
+        WebServer server = null;
+        var url = options.get("url");
+        if (url == null) {
+            var properties = new HashMap<String, String>();
+            properties.put("server.port", "0");
+            RouteFixtures.appProperties(routes).forEach((key, value) -> properties.put("app." + key, value));
+            server = HelidonApplication.start(RouteFixtures.config(properties));
+            url = "http://localhost:" + server.port();
+        }
+        logger.info("Target: {}, routes: {}, concurrency: {}, warmup: {}s, duration: {}s", url, routes, concurrency, warmup, duration);
+
+        var driver = new LoadDriver(URI.create(url), RouteFixtures.requestPaths(routes, 1 << 16, missEvery, 42), concurrency);
+        try {
+            driver.start();
+            TimeUnit.SECONDS.sleep(warmup);
+            driver.recorder.reset();
+            driver.errors.set(0);
+
+            var started = System.nanoTime();
+            TimeUnit.SECONDS.sleep(duration);
+            var histogram = driver.recorder.getIntervalHistogram();
+            var elapsed = System.nanoTime() - started;
+            driver.running = false;
+
+            report(histogram, driver.errors.get(), elapsed);
+        } finally {
+            // no System.exit, a failed run ends main with an exception and a non-zero status
+            driver.stop();
+            if (server != null) {
+                server.shutdown().toCompletableFuture().get(5, TimeUnit.SECONDS);
+            }
+        }
+    }
+
+    private void stop() throws InterruptedException {
+        running = false;
+        executor.shutdown();
+        if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            executor.shutdownNow();
+        }
+    }
+
+    private void start() {
+        for (var i = 0; i < concurrency; i++) {
+            sendNext();
+        }
+    }
+
+    private void sendNext() {
+        if (!running) {
+            return;
+        }
+        var path = paths[(int) (cursor.getAndIncrement() & (paths.length - 1))];
+        var request = HttpRequest.newBuilder(base.resolve(path)).GET().build();
+        var started = System.nanoTime();
+        client
+                .sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        errors.incrementAndGet();
+                    } else {
+                        recorder.recordValue(Math.min(System.nanoTime() - started, HIGHEST_LATENCY));
+                    }
+                    sendNext();
+                });
+    }
+
+    private static void report(Histogram histogram, long errors, long elapsedNanos) {
+        var seconds = elapsedNanos / 1_000_000_000d;
+        logger.info("Requests: {}, errors: {}, throughput: {} req/s",
+                histogram.getTotalCount(), errors, String.format("%.1f", histogram.getTotalCount() / seconds));
+        logger.info("Latency us - p50: {}, p99: {}, p99.9: {}, max: {}",
+                micros(histogram.getValueAtPercentile(50)),
+                micros(histogram.getValueAtPercentile(99)),
+                micros(histogram.getValueAtPercentile(99.9)),
+                micros(histogram.getMaxValue()));
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1_000d);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            var separator = arg.indexOf('=');
+            if (separator < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+}
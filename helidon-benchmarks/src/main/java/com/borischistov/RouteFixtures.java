@@ -0,0 +1,84 @@
+package com.borischistov;
+
+import io.helidon.config.Config;
+import io.helidon.config.ConfigSources;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Synthetic route sets shared by the benchmarks and the load driver. Every tenth route is parametrized and every
+ * twentieth one is a wildcard, the rest are static, which is roughly what our perf environment configs look like.
+ */
+final class RouteFixtures {
+
+    static final String BODY = "{\"data\" : \"benchmark payload\"}";
+
+    private RouteFixtures() {
+    }
+
+    static String routePath(int index) {
+        if (index % 20 == 0) {
+            return "/static/" + index + "/*";
+        }
+        if (index % 10 == 0) {
+            return "/api/v1/users/" + index + "/{id}";
+        }
+        return "/api/v1/resource/" + index;
+    }
+
+    static String requestPath(int index) {
+        if (index % 20 == 0) {
+            return "/static/" + index + "/js/app.js";
+        }
+        if (index % 10 == 0) {
+            return "/api/v1/users/" + index + "/42";
+        }
+        return "/api/v1/resource/" + index;
+    }
+
+    /**
+     * Flat {@code app} config properties for the given number of routes.
+     */
+    static Map<String, String> appProperties(int routes) {
+        var properties = new HashMap<String, String>();
+        properties.put("notFound.code", "404");
+        properties.put("notFound.content-type", "application/json");
+        properties.put("notFound.body", "{\"data\" : \"route not found\"}");
+        for (var i = 0; i < routes; i++) {
+            var prefix = "routes." + routePath(i) + ".";
+            properties.put(prefix + "code", "200");
+            properties.put(prefix + "content-type", "application/json");
+            properties.put(prefix + "body", BODY);
+        }
+        return properties;
+    }
+
+    static Config appConfig(int routes) {
+        return config(appProperties(routes));
+    }
+
+    static Config config(Map<String, String> properties) {
+        return Config
+                .builder()
+                .disableEnvironmentVariablesSource()
+                .disableSystemPropertiesSource()
+                .sources(ConfigSources.create(properties))
+                .build();
+    }
+
+    /**
+     * Request paths hitting random routes, every {@code missEvery}-th one does not match any route.
+     */
+    static String[] requestPaths(int routes, int count, int missEvery, long seed) {
+        var random = new Random(seed);
+        var paths = new String[count];
+        for (var i = 0; i < count; i++) {
+            paths[i] = missEvery > 0 && i % missEvery == 0
+                    ? "/missing/" + random.nextInt(routes)
+                    : requestPath(random.nextInt(routes));
+        }
+        return paths;
+    }
+}
@@ -0,0 +1,65 @@
+package com.borischistov;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Hot path of {@link StubHandler}: raw request path to compiled {@link Route}.
+ * Run with {@code -prof gc} to check that resolution stays allocation free.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RouteResolutionBenchmark {
+
+    private static final int PATHS = 4096;
+
+    @Param({"10", "1000", "100000"})
+    public int routes;
+
+    private StubConfig config;
+    private String[] paths;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        config = new StubConfig(RouteFixtures.appConfig(routes));
+        paths = RouteFixtures.requestPaths(routes, PATHS, 8, 42);
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int index;
+
+        int next() {
+            index = (index + 1) & (PATHS - 1);
+            return index;
+        }
+    }
+
+    @Benchmark
+    public Object resolve(Cursor cursor) {
+        return StubHandler.resolve(config, paths[cursor.next()]);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public Object resolveContended(Cursor cursor) {
+        return StubHandler.resolve(config, paths[cursor.next()]);
+    }
+}
@@ -0,0 +1,54 @@
+package com.borischistov;
+
+import io.helidon.config.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of compiling the route table on start up and of an incremental reload where no route changed.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+@State(Scope.Benchmark)
+public class StubConfigBenchmark {
+
+    @Param({"10", "1000", "100000"})
+    public int routes;
+
+    private Config appConfig;
+    private StubMetrics metrics;
+    private StubConfig previous;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        appConfig = RouteFixtures.appConfig(routes);
+        metrics = new StubMetrics();
+        previous = new StubConfig(appConfig, metrics);
+    }
+
+    @Benchmark
+    public Object build() {
+        return new StubConfig(appConfig);
+    }
+
+    @Benchmark
+    public Object reloadUnchanged() {
+        return new StubConfig(appConfig, metrics, previous, Set.of());
+    }
+}
@@ -0,0 +1,128 @@
+package com.borischistov;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches {@code body-file} route sources and route shard directories and reports changed files, so mapped bodies
+ * can be remapped and shards parsed again. Bursts of events are coalesced into a single notification.
+ */
+class BodyFileWatcher implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BodyFileWatcher.class);
+    private static final long DEBOUNCE_MILLIS = 200;
+
+    private final WatchService watchService;
+    private final Consumer<Set<Path>> onChange;
+    private final Set<Path> directories = ConcurrentHashMap.newKeySet();
+    private volatile Set<Path> files = Set.of();
+    private volatile Set<Path> shardDirectories = Set.of();
+
+    BodyFileWatcher(Consumer<Set<Path>> onChange) {
+        this.onChange = onChange;
+        try {
+            this.watchService = FileSystems.getDefault().newWatchService();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        var thread = new Thread(this::run, "body-file-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Replaces the set of watched files and the shard directory, any shard created, modified or deleted there is
+     * reported.
+     *
+     * @param shardDirectory may be {@code null}
+     */
+    void watch(Set<Path> files, Path shardDirectory) {
+        for (var file : files) {
+            register(file.getParent());
+        }
+        if (shardDirectory != null) {
+            register(shardDirectory);
+        }
+        this.files = Set.copyOf(files);
+        this.shardDirectories = shardDirectory == null ? Set.of() : Set.of(shardDirectory);
+    }
+
+    private void register(Path directory) {
+        if (directory != null && directories.add(directory)) {
+            try {
+                directory.register(
+                        watchService,
+                        StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY,
+                        StandardWatchEventKinds.ENTRY_DELETE
+                );
+                logger.debug("Watching files in: {}", directory);
+            } catch (IOException e) {
+                directories.remove(directory);
+                logger.warn("Can't watch directory: {}, changes of its files won't be reloaded", directory, e);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                var changed = new HashSet<Path>();
+                collect(watchService.take(), changed);
+                // let writers finish, then pick up the rest of the burst
+                TimeUnit.MILLISECONDS.sleep(DEBOUNCE_MILLIS);
+                WatchKey key;
+                while ((key = watchService.poll()) != null) {
+                    collect(key, changed);
+                }
+                if (!changed.isEmpty()) {
+                    logger.debug("Files changed: {}", changed);
+                    try {
+                        onChange.accept(changed);
+                    } catch (RuntimeException e) {
+                        logger.warn("Can't reload changed files: {}", changed, e);
+                    }
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ClosedWatchServiceException ignored) {
+
+        }
+    }
+
+    private void collect(WatchKey key, Set<Path> changed) {
+        var directory = (Path) key.watchable();
+        var watched = this.files;
+        var shards = shardDirectories.contains(directory);
+        for (var event : key.pollEvents()) {
+            if (event.context() instanceof Path) {
+                var file = directory.resolve((Path) event.context());
+                if (watched.contains(file) || shards && RouteShard.isShard(file)) {
+                    changed.add(file);
+                }
+            }
+        }
+        key.reset();
+    }
+}
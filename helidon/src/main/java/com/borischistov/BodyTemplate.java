@@ -0,0 +1,240 @@
+package com.borischistov;
+
+import io.helidon.webserver.ServerRequest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Route body with placeholders, compiled once into pre-encoded literal segments and placeholder slots:
+ * <ul>
+ *     <li>{@code {{path.id}}} - path parameter of the route pattern</li>
+ *     <li>{@code {{wildcard}}} - path matched by the trailing {@code *}</li>
+ *     <li>{@code {{query.name}}} - first query parameter value</li>
+ *     <li>{@code {{header.name}}} - first header value</li>
+ *     <li>{@code {{method}}} - request method</li>
+ *     <li>{@code {{counter}}} - per route request counter, starts with 1</li>
+ *     <li>{@code {{timestamp}}} - epoch milliseconds</li>
+ * </ul>
+ * Values are inserted as is, missing values render empty. Rendering writes into a reusable per-thread buffer; the
+ * only copy is the final exact-size body array, which has to outlive the buffer because the response is written
+ * asynchronously.
+ */
+final class BodyTemplate {
+
+    private static final String OPEN = "{{";
+    private static final String CLOSE = "}}";
+    private static final ThreadLocal<RenderBuffer> BUFFERS = ThreadLocal.withInitial(RenderBuffer::new);
+
+    private enum Kind {
+        LITERAL, PATH, WILDCARD, QUERY, HEADER, METHOD, COUNTER, TIMESTAMP
+    }
+
+    private final Kind[] kinds;
+    private final byte[][] literals;
+    private final String[] names;
+    private final int[] params;
+    private final AtomicLong counter = new AtomicLong();
+
+    private BodyTemplate(Kind[] kinds, byte[][] literals, String[] names, int[] params) {
+        this.kinds = kinds;
+        this.literals = literals;
+        this.names = names;
+        this.params = params;
+    }
+
+    /**
+     * @return compiled template or {@code null} when the body has no placeholders
+     */
+    static BodyTemplate compile(String body, String[] paramNames) {
+        if (!body.contains(OPEN)) {
+            return null;
+        }
+        var kinds = new ArrayList<Kind>();
+        var literals = new ArrayList<byte[]>();
+        var names = new ArrayList<String>();
+        var params = new ArrayList<Integer>();
+        var position = 0;
+        while (position < body.length()) {
+            var open = body.indexOf(OPEN, position);
+            var close = open < 0 ? -1 : body.indexOf(CLOSE, open + OPEN.length());
+            if (open < 0 || close < 0) {
+                open = body.length();
+            }
+            if (open > position) {
+                kinds.add(Kind.LITERAL);
+                literals.add(body.substring(position, open).getBytes(StandardCharsets.UTF_8));
+                names.add(null);
+                params.add(-1);
+            }
+            if (open == body.length()) {
+                break;
+            }
+            var expression = body.substring(open + OPEN.length(), close).trim();
+            var dot = expression.indexOf('.');
+            var kind = placeholder(dot < 0 ? expression : expression.substring(0, dot), expression);
+            var name = dot < 0 ? null : expression.substring(dot + 1);
+            kinds.add(kind);
+            literals.add(null);
+            names.add(name);
+            params.add(kind == Kind.PATH ? param(paramNames, name, expression) : -1);
+            position = close + CLOSE.length();
+        }
+        if (kinds.stream().allMatch(kind -> kind == Kind.LITERAL)) {
+            return null;
+        }
+        return new BodyTemplate(
+                kinds.toArray(Kind[]::new),
+                literals.toArray(byte[][]::new),
+                names.toArray(String[]::new),
+                params.stream().mapToInt(Integer::intValue).toArray()
+        );
+    }
+
+    private static Kind placeholder(String kind, String expression) {
+        switch (kind) {
+            case "path":
+                return Kind.PATH;
+            case "wildcard":
+                return Kind.WILDCARD;
+            case "query":
+                return Kind.QUERY;
+            case "header":
+                return Kind.HEADER;
+            case "method":
+                return Kind.METHOD;
+            case "counter":
+                return Kind.COUNTER;
+            case "timestamp":
+                return Kind.TIMESTAMP;
+            default:
+                throw new IllegalArgumentException("Unknown template placeholder: " + expression);
+        }
+    }
+
+    private static int param(String[] paramNames, String name, String expression) {
+        for (var i = 0; i < paramNames.length; i++) {
+            if (paramNames[i].equals(name)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Route has no path parameter for placeholder: " + expression);
+    }
+
+    byte[] render(ServerRequest request, RouteMatch match) {
+        var out = BUFFERS.get().reset();
+        for (var i = 0; i < kinds.length; i++) {
+            switch (kinds[i]) {
+                case LITERAL:
+                    out.write(literals[i]);
+                    break;
+                case PATH:
+                    out.write(match.path(), match.paramStart(params[i]), match.paramEnd(params[i]));
+                    break;
+                case WILDCARD:
+                    if (match.wildcardStart() >= 0) {
+                        out.write(match.path(), match.wildcardStart(), match.path().length());
+                    }
+                    break;
+                case QUERY:
+                    out.write(request.queryParams().first(names[i]).orElse(""));
+                    break;
+                case HEADER:
+                    out.write(request.headers().first(names[i]).orElse(""));
+                    break;
+                case METHOD:
+                    out.write(request.method().name());
+                    break;
+                case COUNTER:
+                    out.write(counter.incrementAndGet());
+                    break;
+                case TIMESTAMP:
+                    out.write(System.currentTimeMillis());
+                    break;
+                default:
+                    throw new IllegalStateException("Unexpected segment: " + kinds[i]);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Growable byte buffer writing UTF-8 straight from chars and decimal digits straight from longs.
+     */
+    private static final class RenderBuffer {
+        private byte[] bytes = new byte[1024];
+        private int length;
+
+        private RenderBuffer reset() {
+            length = 0;
+            return this;
+        }
+
+        private void write(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+        }
+
+        private void write(String value) {
+            write(value, 0, value.length());
+        }
+
+        private void write(String value, int start, int end) {
+            ensure((end - start) * 3);
+            for (var i = start; i < end; i++) {
+                var c = value.charAt(i);
+                if (c < 0x80) {
+                    bytes[length++] = (byte) c;
+                } else if (c < 0x800) {
+                    bytes[length++] = (byte) (0xC0 | c >> 6);
+                    bytes[length++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(value.charAt(i + 1))) {
+                    var codePoint = Character.toCodePoint(c, value.charAt(++i));
+                    bytes[length++] = (byte) (0xF0 | codePoint >> 18);
+                    bytes[length++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    bytes[length++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    bytes[length++] = (byte) (0x80 | codePoint & 0x3F);
+                } else {
+                    bytes[length++] = (byte) (0xE0 | c >> 12);
+                    bytes[length++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    bytes[length++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+        }
+
+        private void write(long value) {
+            ensure(20);
+            if (value == 0) {
+                bytes[length++] = '0';
+                return;
+            }
+            if (value < 0) {
+                bytes[length++] = '-';
+            }
+            var start = length;
+            while (value != 0) {
+                bytes[length++] = (byte) ('0' + Math.abs(value % 10));
+                value /= 10;
+            }
+            // digits were written least significant first
+            for (int i = start, j = length - 1; i < j; i++, j--) {
+                var digit = bytes[i];
+                bytes[i] = bytes[j];
+                bytes[j] = digit;
+            }
+        }
+
+        private void ensure(int extra) {
+            if (length + extra > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + extra));
+            }
+        }
+
+        private byte[] toByteArray() {
+            return Arrays.copyOf(bytes, length);
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package com.borischistov;
+
+import io.helidon.config.Config;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Precomputed representations of a static route body: identity plus {@code gzip} and {@code deflate} variants, each
+ * with a strong ETag. Everything is computed when {@link StubConfig} is built, requests only pick a variant by
+ * {@code Accept-Encoding} and compare {@code If-None-Match}. Route options:
+ * <pre>
+ * compress: true            # precompress the body, default true
+ * compress-min-size: 1KB    # smaller bodies are sent as is
+ * etag: true                # send ETag and answer If-None-Match with 304, default true
+ * precompute-max-size: 16MB # larger bodies, e.g. big body-file fixtures, are served without variants and ETag
+ * </pre>
+ * A compressed variant is kept only when it is actually smaller than the identity body.
+ */
+final class BodyVariants {
+
+    private static final long DEFAULT_MIN_SIZE = 1024;
+    private static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final Variant identity;
+    private final Variant gzip;
+    private final Variant deflate;
+
+    private BodyVariants(Variant identity, Variant gzip, Variant deflate) {
+        this.identity = identity;
+        this.gzip = gzip;
+        this.deflate = deflate;
+    }
+
+    /**
+     * @return variants of the body or {@code null} when the body is dynamic, too big or both features are disabled
+     */
+    static BodyVariants create(ResponseBody body, Config route) {
+        var compress = route.get("compress").asBoolean().orElse(true);
+        var etag = route.get("etag").asBoolean().orElse(true);
+        var maxSize = route.get("precompute-max-size").asString().map(ResponseBody::parseSize).orElse(DEFAULT_MAX_SIZE);
+        var minSize = route.get("compress-min-size").asString().map(ResponseBody::parseSize).orElse(DEFAULT_MIN_SIZE);
+        if (!compress && !etag || body instanceof ResponseBody.GeneratedBody || body.size() > maxSize) {
+            return null;
+        }
+
+        var bytes = bytes(body);
+        var tag = etag ? etag(bytes) : null;
+        var identity = new Variant(body, null, tag == null ? null : quote(tag));
+        Variant gzip = null;
+        Variant deflate = null;
+        if (compress && bytes.length >= minSize) {
+            gzip = compressed(bytes, "gzip", tag, out -> new GZIPOutputStream(out) {
+                {
+                    def.setLevel(Deflater.BEST_COMPRESSION);
+                }
+            });
+            deflate = compressed(bytes, "deflate", tag, out -> new DeflaterOutputStream(out, new Deflater(Deflater.BEST_COMPRESSION)));
+        }
+        return new BodyVariants(identity, gzip, deflate);
+    }
+
+    Variant identity() {
+        return identity;
+    }
+
+    /**
+     * @return {@code true} when there is a compressed variant, so the response depends on {@code Accept-Encoding}
+     */
+    boolean negotiated() {
+        return gzip != null || deflate != null;
+    }
+
+    /**
+     * Picks the smallest acceptable variant.
+     *
+     * @param acceptEncoding {@code Accept-Encoding} header value, may be {@code null}
+     */
+    Variant select(String acceptEncoding) {
+        if (acceptEncoding == null || gzip == null && deflate == null) {
+            return identity;
+        }
+        var best = identity;
+        if (gzip != null && accepts(acceptEncoding, "gzip") && gzip.body.size() < best.body.size()) {
+            best = gzip;
+        }
+        if (deflate != null && accepts(acceptEncoding, "deflate") && deflate.body.size() < best.body.size()) {
+            best = deflate;
+        }
+        return best;
+    }
+
+    /**
+     * Scans comma separated codings without splitting, a coding with {@code q=0} is not accepted. An explicit coding
+     * takes precedence over {@code *} wherever either appears in the header.
+     */
+    static boolean accepts(String header, String coding) {
+        var wildcard = false;
+        var position = 0;
+        while (position < header.length()) {
+            var end = header.indexOf(',', position);
+            if (end < 0) {
+                end = header.length();
+            }
+            var start = skipSpaces(header, position, end);
+            var parameters = header.indexOf(';', start);
+            var tokenEnd = parameters < 0 || parameters > end ? end : parameters;
+            var tokenLength = trimEnd(header, start, tokenEnd) - start;
+            var accepted = tokenEnd == end || !zeroQuality(header, tokenEnd + 1, end);
+            if (tokenLength == coding.length() && header.regionMatches(true, start, coding, 0, tokenLength)) {
+                return accepted;
+            }
+            if (tokenLength == 1 && header.charAt(start) == '*') {
+                wildcard = accepted;
+            }
+            position = end + 1;
+        }
+        return wildcard;
+    }
+
+    private static boolean zeroQuality(String header, int start, int end) {
+        var q = header.indexOf("q=", start);
+        if (q < 0 || q >= end) {
+            return false;
+        }
+        for (var i = q + 2; i < end; i++) {
+            var c = header.charAt(i);
+            if (c >= '1' && c <= '9') {
+                return false;
+            }
+            if (c != '0' && c != '.') {
+                break;
+            }
+        }
+        return true;
+    }
+
+    private static int skipSpaces(String value, int start, int end) {
+        while (start < end && value.charAt(start) == ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private static int trimEnd(String value, int start, int end) {
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    /**
+     * Weak comparison as required for {@code If-None-Match}, {@code W/} prefixes are ignored.
+     */
+    static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        if (ifNoneMatch.trim().equals("*")) {
+            return true;
+        }
+        var tag = etag.startsWith("W/") ? 2 : 0;
+        var tagLength = etag.length() - tag;
+        var position = 0;
+        while (position < ifNoneMatch.length()) {
+            var end = ifNoneMatch.indexOf(',', position);
+            if (end < 0) {
+                end = ifNoneMatch.length();
+            }
+            var start = skipSpaces(ifNoneMatch, position, end);
+            if (ifNoneMatch.startsWith("W/", start)) {
+                start += 2;
+            }
+            var candidateEnd = trimEnd(ifNoneMatch, start, end);
+            if (candidateEnd - start == tagLength && ifNoneMatch.regionMatches(start, etag, tag, tagLength)) {
+                return true;
+            }
+            position = end + 1;
+        }
+        return false;
+    }
+
+    private static Variant compressed(byte[] bytes, String encoding, String tag, Compressor compressor) {
+        var out = new ByteArrayOutputStream(bytes.length / 2 + 64);
+        try (var stream = compressor.wrap(out)) {
+            stream.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't " + encoding + " route body", e);
+        }
+        var compressed = out.toByteArray();
+        if (compressed.length >= bytes.length) {
+            return null;
+        }
+        return new Variant(new ResponseBody.InlineBody(compressed), encoding, tag == null ? null : quote(tag + "-" + encoding));
+    }
+
+    private static byte[] bytes(ResponseBody body) {
+        if (body instanceof ResponseBody.InlineBody) {
+            return ((ResponseBody.InlineBody) body).bytes();
+        }
+        var bytes = new byte[(int) body.size()];
+        var position = 0;
+        while (position < bytes.length) {
+            var chunk = body.slice(position, Math.min(body.chunkSize(), bytes.length - position));
+            var length = chunk.remaining();
+            chunk.get(bytes, position, length);
+            position += length;
+        }
+        return bytes;
+    }
+
+    private static String etag(byte[] bytes) {
+        try {
+            var digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+            var hex = new char[32];
+            for (var i = 0; i < 16; i++) {
+                hex[i * 2] = HEX[digest[i] >> 4 & 0xF];
+                hex[i * 2 + 1] = HEX[digest[i] & 0xF];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String quote(String tag) {
+        return '"' + tag + '"';
+    }
+
+    @FunctionalInterface
+    private interface Compressor {
+        OutputStream wrap(OutputStream out) throws IOException;
+    }
+
+    /**
+     * Representation sent for a request, {@code encoding} and {@code etag} are {@code null} when not applicable.
+     */
+    static final class Variant {
+        private final ResponseBody body;
+        private final String encoding;
+        private final String etag;
+
+        Variant(ResponseBody body, String encoding, String etag) {
+            this.body = body;
+            this.encoding = encoding;
+            this.etag = etag;
+        }
+
+        ResponseBody body() {
+            return body;
+        }
+
+        String encoding() {
+            return encoding;
+        }
+
+        String etag() {
+            return etag;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.borischistov;
+
+import io.helidon.common.http.DataChunk;
+import io.helidon.common.reactive.Flow;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Publishes {@code length} bytes as a sequence of chunks, honouring subscriber demand. Chunks are produced lazily by
+ * the {@link ChunkSource}, so at most the requested number of chunks exists at any time regardless of body size.
+ * <p>
+ * A paced publisher emits one chunk per {@code interval} on the given scheduler, which is how bandwidth throttling
+ * is done without holding a thread per connection.
+ */
+class ChunkPublisher implements Flow.Publisher<DataChunk> {
+
+    /**
+     * Provides a chunk of the body, returned buffer is handed to the connection as is and must not be reused.
+     */
+    @FunctionalInterface
+    interface ChunkSource {
+        ByteBuffer read(long position, int length);
+    }
+
+    private final long length;
+    private final int chunkSize;
+    private final ChunkSource source;
+    private final ScheduledExecutorService scheduler;
+    private final long intervalNanos;
+
+    ChunkPublisher(long length, int chunkSize, ChunkSource source) {
+        this(length, chunkSize, source, null, 0);
+    }
+
+    ChunkPublisher(long length, int chunkSize, ChunkSource source, ScheduledExecutorService scheduler, long intervalNanos) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.length = length;
+        this.chunkSize = chunkSize;
+        this.source = source;
+        this.scheduler = scheduler;
+        this.intervalNanos = intervalNanos;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super DataChunk> subscriber) {
+        subscriber.onSubscribe(new ChunkSubscription(subscriber));
+    }
+
+    private class ChunkSubscription implements Flow.Subscription {
+        private final Flow.Subscriber<? super DataChunk> subscriber;
+        private final AtomicLong requested = new AtomicLong();
+        private final AtomicInteger wip = new AtomicInteger();
+        private final AtomicBoolean ticking = new AtomicBoolean();
+        private volatile boolean cancelled;
+        private long position;
+        private boolean done;
+
+        private ChunkSubscription(Flow.Subscriber<? super DataChunk> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                cancelled = true;
+                subscriber.onError(new IllegalArgumentException("Requested non positive number of chunks: " + n));
+                return;
+            }
+            requested.accumulateAndGet(n, (current, add) -> current + add < 0 ? Long.MAX_VALUE : current + add);
+            if (scheduler == null) {
+                drain();
+            } else if (ticking.compareAndSet(false, true)) {
+                tick();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        private void drain() {
+            if (wip.getAndIncrement() != 0) {
+                return;
+            }
+            var missed = 1;
+            do {
+                var demand = requested.get();
+                var emitted = 0L;
+                while (emitted != demand && position < length && !cancelled) {
+                    if (!emit()) {
+                        return;
+                    }
+                    emitted++;
+                }
+                if (emitted != 0 && demand != Long.MAX_VALUE) {
+                    requested.addAndGet(-emitted);
+                }
+                complete();
+                missed = wip.addAndGet(-missed);
+            } while (missed != 0);
+        }
+
+        /**
+         * Paced emission, only one tick is scheduled at a time.
+         */
+        private void tick() {
+            if (cancelled || done) {
+                return;
+            }
+            if (requested.get() == 0) {
+                ticking.set(false);
+                // demand may have arrived after the check, request() saw ticking and left the work to us
+                if (requested.get() == 0 || !ticking.compareAndSet(false, true)) {
+                    return;
+                }
+            }
+            if (position >= length) {
+                complete();
+                return;
+            }
+            if (!emit()) {
+                return;
+            }
+            requested.decrementAndGet();
+            complete();
+            if (!done) {
+                scheduler.schedule(this::tick, intervalNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+
+        private boolean emit() {
+            var size = (int) Math.min(chunkSize, length - position);
+            ByteBuffer chunk;
+            try {
+                chunk = source.read(position, size);
+            } catch (RuntimeException e) {
+                cancelled = true;
+                subscriber.onError(e);
+                return false;
+            }
+            position += size;
+            subscriber.onNext(DataChunk.create(chunk));
+            return true;
+        }
+
+        private void complete() {
+            if (position >= length && !done && !cancelled) {
+                done = true;
+                subscriber.onComplete();
+            }
+        }
+    }
+}
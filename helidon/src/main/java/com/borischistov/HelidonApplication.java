@@ -24,6 +24,7 @@ public class HelidonApplication {
     }
 
     private static final Logger logger = LoggerFactory.getLogger(HelidonApplication.class);
+    private static final String DEFAULT_ADMIN_PATH = "/_stub";
 
     public static void main(String[] args) throws InterruptedException, ExecutionException, TimeoutException {
         var config = Config
@@ -38,14 +39,39 @@ public class HelidonApplication {
                                 .optional()
                 )
                 .build();
+        var ws = start(config);
+
+        logger.info(
+                "Server started, address: http://localhost:{}",
+                ws.port()
+        );
+    }
+
+    /**
+     * Starts stub server for the given root config, {@code server} and {@code app} nodes are used.
+     * Route metrics are served on {@code app.admin.path} (default {@value #DEFAULT_ADMIN_PATH}) + {@code /metrics},
+     * stub routes under that path are shadowed.
+     */
+    public static WebServer start(Config config) throws InterruptedException, ExecutionException, TimeoutException {
         var serverConfig = config.get("server");
         var appConfig = config.get("app");
 
+        var adminPath = appConfig.get("admin.path").asString().orElse(DEFAULT_ADMIN_PATH);
+        var metrics = new StubMetrics();
+        var capture = RequestCapture.create(appConfig.get("capture"));
+        if (capture != null) {
+            Runtime.getRuntime().addShutdownHook(new Thread(capture::close, "request-capture-shutdown"));
+        }
+
         var serverConfiguration = ServerConfiguration.builder(serverConfig).build();
-        var ws = WebServer
+        return WebServer
                 .create(
                         serverConfiguration,
-                        () -> Routing.builder().any(new StubHandler(appConfig)).build()
+                        () -> Routing
+                                .builder()
+                                .get(adminPath + "/metrics", new MetricsHandler(metrics, capture))
+                                .any(new StubHandler(appConfig, metrics, capture))
+                                .build()
                 )
                 .start()
                 .toCompletableFuture()
@@ -53,11 +79,6 @@ public class HelidonApplication {
                     2,
                     TimeUnit.SECONDS
                 );
-
-        logger.info(
-                "Server started, address: http://localhost:{}",
-                ws.port()
-        );
     }
 
 
@@ -0,0 +1,138 @@
+package com.borischistov;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Lock free log-linear histogram of nanosecond values up to a minute, in the spirit of HdrHistogram. Every power of
+ * two range is split into {@value #SUB_BUCKETS} linear sub buckets, which keeps relative error under 25%; longer
+ * values are recorded as a minute.
+ * <p>
+ * Recording is a couple of atomic adds into one of {@value #MAX_STRIPES} stripes at most, picked by the current thread,
+ * so event loop threads rarely contend on the same cache lines and nothing is allocated. A histogram is a few KB, so
+ * one per route stays affordable with 100k routes. Readers sum the stripes into a {@link Snapshot}.
+ */
+final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final long HIGHEST = TimeUnit.MINUTES.toNanos(1);
+    private static final int BUCKETS = index(HIGHEST) + 1;
+    // per stripe layout: buckets, then sum of recorded values
+    private static final int SUM = BUCKETS;
+    private static final int MAX_STRIPES = 4;
+    private static final int STRIPES = Math.min(
+            MAX_STRIPES,
+            Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1
+    );
+
+    private final AtomicLongArray[] stripes = new AtomicLongArray[STRIPES];
+
+    LatencyHistogram() {
+        for (var i = 0; i < STRIPES; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS + 1);
+        }
+    }
+
+    void record(long nanos) {
+        var value = Math.min(Math.max(0, nanos), HIGHEST);
+        var stripe = stripes[(int) Thread.currentThread().getId() & (STRIPES - 1)];
+        stripe.incrementAndGet(index(value));
+        stripe.addAndGet(SUM, value);
+    }
+
+    Snapshot snapshot() {
+        var counts = new long[BUCKETS];
+        var count = 0L;
+        var sum = 0L;
+        for (var stripe : stripes) {
+            for (var i = 0; i < BUCKETS; i++) {
+                var bucket = stripe.get(i);
+                counts[i] += bucket;
+                count += bucket;
+            }
+            sum += stripe.get(SUM);
+        }
+        return new Snapshot(counts, count, sum);
+    }
+
+    static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        var shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    static long lowerBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        var shift = index / SUB_BUCKETS - 1;
+        return (long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift;
+    }
+
+    static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        return lowerBound(index) + (1L << (index / SUB_BUCKETS - 1)) - 1;
+    }
+
+    /**
+     * Point in time copy of the histogram, the sum may be slightly off from the counts under concurrent recording.
+     */
+    static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(new long[BUCKETS], 0, 0);
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+
+        private Snapshot(long[] counts, long count, long sum) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+        }
+
+        long count() {
+            return count;
+        }
+
+        long sum() {
+            return sum;
+        }
+
+        double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        long max() {
+            for (var i = counts.length - 1; i >= 0; i--) {
+                if (counts[i] != 0) {
+                    return upperBound(i);
+                }
+            }
+            return 0;
+        }
+
+        /**
+         * @param percentile value in {@code [0, 100]}
+         * @return upper bound of the bucket holding the percentile
+         */
+        long percentile(double percentile) {
+            if (count == 0) {
+                return 0;
+            }
+            var rank = Math.max(1, (long) Math.ceil(percentile / 100d * count));
+            var seen = 0L;
+            for (var i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return upperBound(i);
+                }
+            }
+            return max();
+        }
+    }
+}
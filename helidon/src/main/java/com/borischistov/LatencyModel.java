@@ -0,0 +1,175 @@
+package com.borischistov;
+
+import io.helidon.config.Config;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulated response delay of a route. Route options:
+ * <pre>
+ * delay: 200ms            # base delay
+ * jitter: 50ms            # spread, meaning depends on distribution
+ * distribution: normal    # fixed | uniform | normal | percentiles
+ * percentiles:            # inverse CDF table for the percentiles distribution
+ *     - percentile: 50
+ *       delay: 20ms
+ *     - percentile: 99.9
+ *       delay: 1s
+ * </pre>
+ * {@code fixed} always waits {@code delay}, {@code uniform} picks from {@code delay +/- jitter}, {@code normal} uses
+ * {@code delay} as mean and {@code jitter} as standard deviation, {@code percentiles} interpolates linearly between
+ * table entries. Without {@code distribution} it is {@code uniform} when {@code jitter} is set and {@code fixed}
+ * otherwise. Durations accept {@code us}, {@code ms}, {@code s} suffixes, plain numbers are milliseconds.
+ */
+abstract class LatencyModel {
+
+    /**
+     * @return model for the route or {@code null} when the route responds immediately
+     */
+    static LatencyModel create(Config route) {
+        var delay = route.get("delay").asString().map(LatencyModel::parseDuration).orElse(0L);
+        var jitter = route.get("jitter").asString().map(LatencyModel::parseDuration).orElse(0L);
+        var distribution = route
+                .get("distribution")
+                .asString()
+                .map(d -> d.toLowerCase(Locale.ROOT))
+                .orElse(jitter > 0 ? "uniform" : "fixed");
+        switch (distribution) {
+            case "fixed":
+                return delay > 0 ? new Fixed(delay) : null;
+            case "uniform":
+                return delay + jitter > 0 ? new Uniform(Math.max(0, delay - jitter), delay + jitter) : null;
+            case "normal":
+                return delay > 0 || jitter > 0 ? new Normal(delay, jitter) : null;
+            case "percentiles":
+                var percentiles = Percentiles.create(route.get("percentiles").asNodeList().orElseGet(List::of));
+                return percentiles.maxDelay() > 0 ? percentiles : null;
+            default:
+                throw new IllegalArgumentException("Unknown latency distribution: " + distribution);
+        }
+    }
+
+    /**
+     * Next delay, safe to call from any thread, does not allocate.
+     */
+    abstract long nextDelayNanos();
+
+    static long parseDuration(String value) {
+        var duration = value.trim().toLowerCase(Locale.ROOT);
+        if (duration.endsWith("us")) {
+            return TimeUnit.MICROSECONDS.toNanos(Long.parseLong(duration.substring(0, duration.length() - 2).trim()));
+        }
+        if (duration.endsWith("ms")) {
+            return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(duration.substring(0, duration.length() - 2).trim()));
+        }
+        if (duration.endsWith("s")) {
+            return TimeUnit.MILLISECONDS.toNanos((long) (Double.parseDouble(duration.substring(0, duration.length() - 1).trim()) * 1000));
+        }
+        return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(duration));
+    }
+
+    private static final class Fixed extends LatencyModel {
+        private final long delay;
+
+        private Fixed(long delay) {
+            this.delay = delay;
+        }
+
+        @Override
+        long nextDelayNanos() {
+            return delay;
+        }
+    }
+
+    private static final class Uniform extends LatencyModel {
+        private final long min;
+        private final long max;
+
+        private Uniform(long min, long max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        long nextDelayNanos() {
+            return min == max ? min : ThreadLocalRandom.current().nextLong(min, max + 1);
+        }
+    }
+
+    private static final class Normal extends LatencyModel {
+        private final long mean;
+        private final long deviation;
+
+        private Normal(long mean, long deviation) {
+            this.mean = mean;
+            this.deviation = deviation;
+        }
+
+        @Override
+        long nextDelayNanos() {
+            return Math.max(0, mean + (long) (ThreadLocalRandom.current().nextGaussian() * deviation));
+        }
+    }
+
+    private static final class Percentiles extends LatencyModel {
+        // sorted probabilities in [0, 1] and matching delays, first entry is always (0, 0)
+        private final double[] probabilities;
+        private final long[] delays;
+
+        private Percentiles(double[] probabilities, long[] delays) {
+            this.probabilities = probabilities;
+            this.delays = delays;
+        }
+
+        private static Percentiles create(List<Config> table) {
+            if (table.isEmpty()) {
+                throw new IllegalArgumentException("Percentiles distribution requires a percentiles table");
+            }
+            var entries = table
+                    .stream()
+                    .sorted((a, b) -> Double.compare(percentile(a), percentile(b)))
+                    .toArray(Config[]::new);
+            var probabilities = new double[entries.length + 1];
+            var delays = new long[entries.length + 1];
+            for (var i = 0; i < entries.length; i++) {
+                probabilities[i + 1] = percentile(entries[i]) / 100d;
+                delays[i + 1] = Math.max(
+                        delays[i],
+                        entries[i].get("delay").asString().map(LatencyModel::parseDuration).orElse(0L)
+                );
+            }
+            return new Percentiles(probabilities, delays);
+        }
+
+        private long maxDelay() {
+            return delays[delays.length - 1];
+        }
+
+        private static double percentile(Config entry) {
+            var percentile = entry.get("percentile").asDouble().orElse(100d);
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("Percentile must be in (0, 100]: " + percentile);
+            }
+            return percentile;
+        }
+
+        @Override
+        long nextDelayNanos() {
+            var p = ThreadLocalRandom.current().nextDouble();
+            var last = probabilities.length - 1;
+            if (p >= probabilities[last]) {
+                return delays[last];
+            }
+            var i = 1;
+            while (probabilities[i] < p) {
+                i++;
+            }
+            var from = probabilities[i - 1];
+            var fraction = (p - from) / (probabilities[i] - from);
+            return delays[i - 1] + (long) (fraction * (delays[i] - delays[i - 1]));
+        }
+    }
+}
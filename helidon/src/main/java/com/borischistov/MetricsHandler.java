@@ -0,0 +1,182 @@
+package com.borischistov;
+
+import io.helidon.common.http.MediaType;
+import io.helidon.webserver.Handler;
+import io.helidon.webserver.ServerRequest;
+import io.helidon.webserver.ServerResponse;
+
+import java.util.Locale;
+
+/**
+ * Renders {@link StubMetrics} in Prometheus text format, or as JSON for {@code ?format=json} and
+ * {@code Accept: application/json}. Served under the admin path, see {@link HelidonApplication}.
+ */
+class MetricsHandler implements Handler {
+
+    private static final MediaType PROMETHEUS = MediaType.parse("text/plain; version=0.0.4; charset=utf-8");
+    private static final double[] PERCENTILES = {50, 90, 99, 99.9};
+    private static final String[] PERCENTILE_NAMES = {"p50", "p90", "p99", "p999"};
+    private static final String[] QUANTILE_LABELS = {"0.5", "0.9", "0.99", "0.999"};
+
+    private final StubMetrics metrics;
+    private final RequestCapture capture;
+
+    MetricsHandler(StubMetrics metrics, RequestCapture capture) {
+        this.metrics = metrics;
+        this.capture = capture;
+    }
+
+    @Override
+    public void accept(ServerRequest req, ServerResponse resp) {
+        var json = req.queryParams().first("format").map("json"::equals).orElse(false)
+                || req.headers().first("Accept").map(a -> a.contains("application/json")).orElse(false);
+        if (json) {
+            resp.headers().contentType(MediaType.APPLICATION_JSON);
+            resp.send(json());
+        } else {
+            resp.headers().contentType(PROMETHEUS);
+            resp.send(prometheus());
+        }
+    }
+
+    String json() {
+        var out = new StringBuilder(1024).append("{\"routes\":[");
+        var statusClasses = RouteMetrics.statusClasses();
+        var first = true;
+        for (var route : metrics.routes()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+            Json.string(out.append("{\"route\":"), route.route());
+            out.append(",\"requests\":").append(route.requests());
+            out.append(",\"bytes\":").append(route.bytes());
+            out.append(",\"status\":{");
+            for (var i = 0; i < statusClasses.length; i++) {
+                if (i > 0) {
+                    out.append(',');
+                }
+                Json.string(out, statusClasses[i]).append(':').append(route.status(i));
+            }
+            var latency = route.handlerTime();
+            out.append("},\"handlerTimeMicros\":{");
+            out.append("\"count\":").append(latency.count());
+            out.append(",\"mean\":").append(micros(latency.mean()));
+            for (var i = 0; i < PERCENTILES.length; i++) {
+                out.append(",\"").append(PERCENTILE_NAMES[i]).append("\":").append(micros(latency.percentile(PERCENTILES[i])));
+            }
+            out.append(",\"max\":").append(micros(latency.max()));
+            out.append("}}");
+        }
+        out.append(']');
+        var reload = metrics.lastReload();
+        if (reload != null) {
+            out.append(",\"reload\":{");
+            out.append("\"reloads\":").append(metrics.reloads());
+            out.append(",\"routes\":").append(reload.getRoutes());
+            out.append(",\"added\":").append(reload.getAdded());
+            out.append(",\"changed\":").append(reload.getChanged());
+            out.append(",\"removed\":").append(reload.getRemoved());
+            out.append(",\"reused\":").append(reload.getReused());
+            out.append(",\"shards\":").append(reload.getShards());
+            out.append(",\"durationMillis\":").append(String.format(Locale.ROOT, "%.3f", reload.getDurationNanos() / 1_000_000d));
+            out.append('}');
+        }
+        if (capture != null) {
+            out.append(",\"capture\":{");
+            out.append("\"captured\":").append(capture.captured());
+            out.append(",\"dropped\":").append(capture.dropped());
+            out.append(",\"written\":").append(capture.written());
+            out.append(",\"failed\":").append(capture.failed());
+            out.append('}');
+        }
+        return out.append('}').toString();
+    }
+
+    String prometheus() {
+        var routes = metrics.routes();
+        var statusClasses = RouteMetrics.statusClasses();
+        var out = new StringBuilder(1024);
+
+        out.append("# HELP stub_requests_total Requests served by stub route.\n");
+        out.append("# TYPE stub_requests_total counter\n");
+        for (var route : routes) {
+            for (var i = 0; i < statusClasses.length; i++) {
+                var count = route.status(i);
+                if (count > 0) {
+                    label(out.append("stub_requests_total{route="), route.route())
+                            .append(",code=\"").append(statusClasses[i]).append("\"} ").append(count).append('\n');
+                }
+            }
+        }
+
+        out.append("# HELP stub_response_bytes_total Known body bytes sent by stub route.\n");
+        out.append("# TYPE stub_response_bytes_total counter\n");
+        for (var route : routes) {
+            label(out.append("stub_response_bytes_total{route="), route.route()).append("} ").append(route.bytes()).append('\n');
+        }
+
+        out.append("# HELP stub_handler_seconds Time spent in the stub handler.\n");
+        out.append("# TYPE stub_handler_seconds summary\n");
+        for (var route : routes) {
+            var latency = route.handlerTime();
+            for (var i = 0; i < PERCENTILES.length; i++) {
+                label(out.append("stub_handler_seconds{route="), route.route())
+                        .append(",quantile=\"").append(QUANTILE_LABELS[i]).append("\"} ")
+                        .append(seconds(latency.percentile(PERCENTILES[i]))).append('\n');
+            }
+            label(out.append("stub_handler_seconds_sum{route="), route.route()).append("} ").append(seconds(latency.sum())).append('\n');
+            label(out.append("stub_handler_seconds_count{route="), route.route()).append("} ").append(latency.count()).append('\n');
+        }
+
+        var reload = metrics.lastReload();
+        if (reload != null) {
+            out.append("# HELP stub_config_reloads_total Config loads, including the initial one.\n");
+            out.append("# TYPE stub_config_reloads_total counter\n");
+            out.append("stub_config_reloads_total ").append(metrics.reloads()).append('\n');
+            out.append("# HELP stub_config_reload_seconds Duration of the last config load.\n");
+            out.append("# TYPE stub_config_reload_seconds gauge\n");
+            out.append("stub_config_reload_seconds ").append(seconds(reload.getDurationNanos())).append('\n');
+            out.append("# HELP stub_config_routes Routes of the last config load by change.\n");
+            out.append("# TYPE stub_config_routes gauge\n");
+            out.append("stub_config_routes{change=\"total\"} ").append(reload.getRoutes()).append('\n');
+            out.append("stub_config_routes{change=\"added\"} ").append(reload.getAdded()).append('\n');
+            out.append("stub_config_routes{change=\"changed\"} ").append(reload.getChanged()).append('\n');
+            out.append("stub_config_routes{change=\"removed\"} ").append(reload.getRemoved()).append('\n');
+            out.append("stub_config_routes{change=\"reused\"} ").append(reload.getReused()).append('\n');
+        }
+
+        if (capture != null) {
+            out.append("# HELP stub_capture_events_total Captured requests by outcome.\n");
+            out.append("# TYPE stub_capture_events_total counter\n");
+            out.append("stub_capture_events_total{result=\"captured\"} ").append(capture.captured()).append('\n');
+            out.append("stub_capture_events_total{result=\"dropped\"} ").append(capture.dropped()).append('\n');
+            out.append("stub_capture_events_total{result=\"written\"} ").append(capture.written()).append('\n');
+            out.append("stub_capture_events_total{result=\"failed\"} ").append(capture.failed()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static StringBuilder label(StringBuilder out, String value) {
+        out.append('"');
+        for (var i = 0; i < value.length(); i++) {
+            var c = value.charAt(i);
+            if (c == '\\' || c == '"') {
+                out.append('\\').append(c);
+            } else if (c == '\n') {
+                out.append("\\n");
+            } else {
+                out.append(c);
+            }
+        }
+        return out.append('"');
+    }
+
+    private static String micros(double nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1_000d);
+    }
+
+    private static String seconds(double nanos) {
+        return String.format(Locale.ROOT, "%.9f", nanos / 1_000_000_000d);
+    }
+}
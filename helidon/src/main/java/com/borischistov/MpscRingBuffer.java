@@ -0,0 +1,65 @@
+package com.borischistov;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded lock free multi producer, single consumer queue. Producers claim a slot with a CAS on the producer index
+ * and never wait, a full buffer is reported to the caller instead.
+ */
+final class MpscRingBuffer<T> {
+
+    private final AtomicReferenceArray<T> slots;
+    private final int mask;
+    private final AtomicLong producerIndex = new AtomicLong();
+    private final AtomicLong consumerIndex = new AtomicLong();
+
+    MpscRingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.slots = new AtomicReferenceArray<>(capacity);
+        this.mask = capacity - 1;
+    }
+
+    /**
+     * @return {@code false} when the buffer is full
+     */
+    boolean offer(T element) {
+        while (true) {
+            var index = producerIndex.get();
+            if (index - consumerIndex.get() > mask) {
+                return false;
+            }
+            if (producerIndex.compareAndSet(index, index + 1)) {
+                slots.lazySet((int) index & mask, element);
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Consumer side only.
+     *
+     * @return next element or {@code null} when nothing is published yet
+     */
+    T poll() {
+        var index = consumerIndex.get();
+        var slot = (int) index & mask;
+        var element = slots.get(slot);
+        if (element == null) {
+            return null;
+        }
+        slots.lazySet(slot, null);
+        consumerIndex.lazySet(index + 1);
+        return element;
+    }
+
+    int size() {
+        return (int) Math.max(0, producerIndex.get() - consumerIndex.get());
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -0,0 +1,36 @@
+package com.borischistov;
+
+import lombok.Getter;
+
+/**
+ * Outcome of building a {@link StubConfig}: how many routes were compiled or reused from the previous config and how
+ * long it took.
+ */
+@Getter
+final class ReloadStats {
+    private final int routes;
+    private final int added;
+    private final int changed;
+    private final int removed;
+    private final int reused;
+    private final int shards;
+    private final long durationNanos;
+
+    ReloadStats(int routes, int added, int changed, int removed, int reused, int shards, long durationNanos) {
+        this.routes = routes;
+        this.added = added;
+        this.changed = changed;
+        this.removed = removed;
+        this.reused = reused;
+        this.shards = shards;
+        this.durationNanos = durationNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d routes (%d added, %d changed, %d removed, %d reused) from %d shards in %.1f ms",
+                routes, added, changed, removed, reused, shards, durationNanos / 1_000_000d
+        );
+    }
+}
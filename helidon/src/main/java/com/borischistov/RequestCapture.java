@@ -0,0 +1,387 @@
+package com.borischistov;
+
+import io.helidon.common.http.DataChunk;
+import io.helidon.common.reactive.Flow;
+import io.helidon.config.Config;
+import io.helidon.webserver.ServerRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Records incoming requests as JSON lines, one object per request:
+ * <pre>
+ * {"timestamp": "...", "method": "POST", "path": "/orders", "query": "a=1", "headers": {...}, "body": "..."}
+ * </pre>
+ * Request threads only sample and offer events to a bounded {@link MpscRingBuffer}, a single writer thread batches
+ * them to disk. When the buffer is full events are dropped and counted, so a slow disk never shows up in the
+ * response latency. At most {@code max-body-size} bytes of a body are copied, the rest is drained without being kept,
+ * and the event is offered as soon as that much has arrived. Configured by the {@code app.capture} node:
+ * <pre>
+ * capture:
+ *     enabled: true
+ *     directory: capture
+ *     sample-rate: 0.1        # fraction of requests to record
+ *     buffer-size: 65536      # ring buffer slots, power of two
+ *     batch-size: 1024        # events written between flush and rotation checks
+ *     flush-interval: 200ms
+ *     max-file-size: 256MB    # rotate after roughly this many uncompressed bytes
+ *     max-file-age: 3600s     # rotate after this time
+ *     compress: true          # gzip files
+ *     body: true              # record request bodies
+ *     max-body-size: 64KB     # bodies are truncated to this size
+ * </pre>
+ */
+class RequestCapture implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestCapture.class);
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter
+            .ofPattern("yyyyMMdd-HHmmss-SSS")
+            .withZone(ZoneOffset.UTC);
+
+    private final Path directory;
+    private final double sampleRate;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long maxFileSize;
+    private final long maxFileAgeNanos;
+    private final boolean compress;
+    private final boolean captureBody;
+    private final int maxBodySize;
+
+    private final MpscRingBuffer<Event> buffer;
+    private final LongAdder captured = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final Thread writerThread;
+    private volatile boolean running = true;
+    // set while the writer is parked with nothing to do, producers unpark it
+    private volatile boolean idle;
+
+    // writer thread state
+    private Writer out;
+    private long fileBytes;
+    private long fileOpened;
+    private int fileSequence;
+
+    private RequestCapture(Config capture) {
+        this.directory = Paths.get(capture.get("directory").asString().orElse("capture"));
+        this.sampleRate = capture.get("sample-rate").asDouble().orElse(1d);
+        this.batchSize = capture.get("batch-size").asInt().orElse(1024);
+        this.flushIntervalNanos = capture.get("flush-interval").asString().map(LatencyModel::parseDuration).orElse(TimeUnit.MILLISECONDS.toNanos(200));
+        this.maxFileSize = capture.get("max-file-size").asString().map(ResponseBody::parseSize).orElse(256L * 1024 * 1024);
+        this.maxFileAgeNanos = capture.get("max-file-age").asString().map(LatencyModel::parseDuration).orElse(TimeUnit.HOURS.toNanos(1));
+        this.compress = capture.get("compress").asBoolean().orElse(false);
+        this.captureBody = capture.get("body").asBoolean().orElse(true);
+        this.maxBodySize = capture.get("max-body-size").asString().map(ResponseBody::parseSize).map(Long::intValue).orElse(64 * 1024);
+        this.buffer = new MpscRingBuffer<>(capture.get("buffer-size").asInt().orElse(64 * 1024));
+
+        this.writerThread = new Thread(this::writeLoop, "request-capture-writer");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+        logger.info("Capturing requests to: {}, sample rate: {}", directory.toAbsolutePath(), sampleRate);
+    }
+
+    /**
+     * @return capture for the config node or {@code null} when capture is disabled
+     */
+    static RequestCapture create(Config capture) {
+        return capture.get("enabled").asBoolean().orElse(false) ? new RequestCapture(capture) : null;
+    }
+
+    /**
+     * Samples the request and hands it over to the writer, never blocks.
+     */
+    void capture(ServerRequest request) {
+        if (sampleRate < 1d && ThreadLocalRandom.current().nextDouble() >= sampleRate) {
+            return;
+        }
+        var event = new Event(
+                System.currentTimeMillis(),
+                request.method().name(),
+                request.path().toRawString(),
+                request.query(),
+                request.headers().toMap()
+        );
+        if (captureBody) {
+            request.content().subscribe(new BodySubscriber(event));
+        } else {
+            offer(event);
+        }
+    }
+
+    long captured() {
+        return captured.sum();
+    }
+
+    long dropped() {
+        return dropped.sum();
+    }
+
+    long written() {
+        return written.sum();
+    }
+
+    long failed() {
+        return failed.sum();
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        LockSupport.unpark(writerThread);
+        try {
+            writerThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void offer(Event event) {
+        if (buffer.offer(event)) {
+            captured.increment();
+            if (idle) {
+                idle = false;
+                LockSupport.unpark(writerThread);
+            }
+        } else {
+            dropped.increment();
+        }
+    }
+
+    private void writeLoop() {
+        var line = new StringBuilder(1024);
+        var lastFlush = System.nanoTime();
+        var pending = 0;
+        while (running || buffer.size() > 0) {
+            var batch = 0;
+            Event event;
+            while (batch < batchSize && (event = buffer.poll()) != null) {
+                write(event, line);
+                batch++;
+            }
+            pending += batch;
+            var now = System.nanoTime();
+            if (pending > 0 && now - lastFlush >= flushIntervalNanos) {
+                flush();
+                pending = 0;
+                lastFlush = now;
+            }
+            if (out != null && (fileBytes >= maxFileSize || now - fileOpened >= maxFileAgeNanos)) {
+                closeFile();
+            }
+            if (batch == 0) {
+                park(pending > 0 ? lastFlush + flushIntervalNanos : Long.MAX_VALUE, now);
+            }
+        }
+        closeFile();
+    }
+
+    /**
+     * Parks until the flush deadline, the open file's age limit, a new event or {@link #close()}.
+     */
+    private void park(long flushDeadline, long now) {
+        var deadline = out == null ? flushDeadline : Math.min(flushDeadline, fileOpened + maxFileAgeNanos);
+        idle = true;
+        if (running && buffer.size() == 0) {
+            if (deadline == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                LockSupport.parkNanos(this, Math.max(0, deadline - now));
+            }
+        }
+        idle = false;
+    }
+
+    private void write(Event event, StringBuilder line) {
+        line.setLength(0);
+        event.toJson(line).append('\n');
+        try {
+            if (out == null) {
+                openFile();
+            }
+            out.append(line);
+            fileBytes += line.length();
+            written.increment();
+        } catch (IOException e) {
+            failed.increment();
+            logger.warn("Can't write captured request", e);
+            closeFile();
+        }
+    }
+
+    private void openFile() throws IOException {
+        Files.createDirectories(directory);
+        // a new name for every file, a rotation or restart within the same millisecond must not truncate a capture
+        var timestamp = FILE_TIMESTAMP.format(Instant.now());
+        OutputStream stream = null;
+        String name = null;
+        while (stream == null) {
+            name = "requests-" + timestamp + "-" + fileSequence++ + (compress ? ".jsonl.gz" : ".jsonl");
+            try {
+                stream = Files.newOutputStream(directory.resolve(name), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            } catch (FileAlreadyExistsException e) {
+                logger.debug("Capture file exists: {}", name);
+            }
+        }
+        if (compress) {
+            stream = new GZIPOutputStream(stream, 64 * 1024);
+        }
+        out = new BufferedWriter(new OutputStreamWriter(stream, StandardCharsets.UTF_8), 64 * 1024);
+        fileBytes = 0;
+        fileOpened = System.nanoTime();
+        logger.debug("Capture file opened: {}", name);
+    }
+
+    private void flush() {
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException e) {
+                logger.warn("Can't flush captured requests", e);
+                closeFile();
+            }
+        }
+    }
+
+    private void closeFile() {
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException e) {
+                logger.warn("Can't close capture file", e);
+            }
+            out = null;
+        }
+    }
+
+    /**
+     * Copies the first {@code maxBodySize} bytes of the body, releases every chunk and drains the rest. The event is
+     * offered once, when the copy is full or the body ends.
+     */
+    private final class BodySubscriber implements Flow.Subscriber<DataChunk> {
+        private final Event event;
+        private byte[] body = new byte[0];
+        private int length;
+        private boolean offered;
+
+        private BodySubscriber(Event event) {
+            this.event = event;
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(DataChunk chunk) {
+            try {
+                if (offered) {
+                    return;
+                }
+                var data = chunk.data();
+                var count = Math.min(data.remaining(), maxBodySize - length);
+                if (length + count > body.length) {
+                    body = Arrays.copyOf(body, Math.min(maxBodySize, Math.max(length + count, body.length * 2)));
+                }
+                data.duplicate().get(body, length, count);
+                length += count;
+                if (length == maxBodySize) {
+                    complete();
+                }
+            } finally {
+                chunk.release();
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            complete();
+        }
+
+        @Override
+        public void onComplete() {
+            complete();
+        }
+
+        private void complete() {
+            if (offered) {
+                return;
+            }
+            offered = true;
+            if (length > 0) {
+                event.body = new String(body, 0, length, StandardCharsets.UTF_8);
+            }
+            body = null;
+            offer(event);
+        }
+    }
+
+    private static final class Event {
+        private final long timestamp;
+        private final String method;
+        private final String path;
+        private final String query;
+        private final Map<String, List<String>> headers;
+        private volatile String body;
+
+        private Event(long timestamp, String method, String path, String query, Map<String, List<String>> headers) {
+            this.timestamp = timestamp;
+            this.method = method;
+            this.path = path;
+            this.query = query;
+            this.headers = headers;
+        }
+
+        private StringBuilder toJson(StringBuilder out) {
+            Json.string(out.append("{\"timestamp\": "), Instant.ofEpochMilli(timestamp).toString());
+            Json.string(out.append(", \"method\": "), method);
+            Json.string(out.append(", \"path\": "), path);
+            Json.string(out.append(", \"query\": "), query);
+            out.append(", \"headers\": {");
+            var first = true;
+            for (var header : headers.entrySet()) {
+                if (!first) {
+                    out.append(", ");
+                }
+                first = false;
+                Json.string(out, header.getKey()).append(": [");
+                var values = header.getValue();
+                for (var i = 0; i < values.size(); i++) {
+                    if (i > 0) {
+                        out.append(", ");
+                    }
+                    Json.string(out, values.get(i));
+                }
+                out.append(']');
+            }
+            Json.string(out.append("}, \"body\": "), body);
+            return out.append('}');
+        }
+    }
+}
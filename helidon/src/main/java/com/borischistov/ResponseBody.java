@@ -0,0 +1,233 @@
+package com.borischistov;
+
+import io.helidon.common.http.DataChunk;
+import io.helidon.common.reactive.Flow;
+import io.helidon.config.Config;
+import io.helidon.media.common.ContentWriters;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Locale;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compiled route body. Supported route options:
+ * <ul>
+ *     <li>{@code body} - inline body, encoded once</li>
+ *     <li>{@code body-file} - file mapped into memory and served in {@code chunk-size} slices, nothing is copied to
+ *     the heap. Replace the file atomically (write and rename), truncating a mapped file in place is unsafe</li>
+ *     <li>{@code stream-size} - generated body of the given size made of repeated {@code body}, sent with chunked
+ *     transfer encoding</li>
+ * </ul>
+ * Sizes accept {@code KB}, {@code MB} and {@code GB} suffixes.
+ */
+interface ResponseBody {
+
+    int DEFAULT_CHUNK_SIZE = 64 * 1024;
+    int THROTTLE_TICKS_PER_SECOND = 20;
+
+    /**
+     * @return number of body bytes sent per response
+     */
+    long size();
+
+    /**
+     * @return body length or {@code -1} when the body is sent with chunked transfer encoding
+     */
+    default long contentLength() {
+        return size();
+    }
+
+    Flow.Publisher<DataChunk> publisher();
+
+    /**
+     * View of {@code [position, position + length)} of the body, {@code length} is at most {@link #chunkSize()}.
+     */
+    ByteBuffer slice(long position, int length);
+
+    int chunkSize();
+
+    /**
+     * Publisher pacing the body to {@code bytesPerSecond}, chunks are emitted every 50ms or less often for
+     * very low rates.
+     */
+    default Flow.Publisher<DataChunk> throttled(ScheduledExecutorService scheduler, long bytesPerSecond) {
+        var chunk = (int) Math.max(1, Math.min(chunkSize(), bytesPerSecond / THROTTLE_TICKS_PER_SECOND));
+        var interval = TimeUnit.SECONDS.toNanos(chunk) / bytesPerSecond;
+        return new ChunkPublisher(size(), chunk, this::slice, scheduler, interval);
+    }
+
+    static ResponseBody create(Config route) {
+        var chunkSize = route.get("chunk-size").asString().map(ResponseBody::parseSize).map(Long::intValue).orElse(DEFAULT_CHUNK_SIZE);
+        var file = route.get("body-file").asString();
+        if (file.isPresent()) {
+            return new MappedFileBody(Paths.get(file.get()), chunkSize);
+        }
+        var body = route.get("body").asString().orElse("").getBytes(StandardCharsets.UTF_8);
+        var streamSize = route.get("stream-size").asString().map(ResponseBody::parseSize);
+        if (streamSize.isPresent()) {
+            return new GeneratedBody(body, streamSize.get(), chunkSize);
+        }
+        return new InlineBody(body);
+    }
+
+    static long parseSize(String value) {
+        var size = value.trim().toUpperCase(Locale.ROOT);
+        var multiplier = 1L;
+        if (size.endsWith("KB")) {
+            multiplier = 1024L;
+        } else if (size.endsWith("MB")) {
+            multiplier = 1024L * 1024;
+        } else if (size.endsWith("GB")) {
+            multiplier = 1024L * 1024 * 1024;
+        }
+        if (multiplier != 1L) {
+            size = size.substring(0, size.length() - 2).trim();
+        }
+        return Long.parseLong(size) * multiplier;
+    }
+
+    final class InlineBody implements ResponseBody {
+        // route bodies are immutable, no need to copy them per request
+        private static final Function<byte[], Flow.Publisher<DataChunk>> WRITER = ContentWriters.byteArrayWriter(false);
+
+        private final byte[] bytes;
+
+        InlineBody(byte[] bytes) {
+            this.bytes = bytes;
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        @Override
+        public long size() {
+            return bytes.length;
+        }
+
+        @Override
+        public Flow.Publisher<DataChunk> publisher() {
+            return WRITER.apply(bytes);
+        }
+
+        @Override
+        public ByteBuffer slice(long position, int length) {
+            return ByteBuffer.wrap(bytes, (int) position, length).slice();
+        }
+
+        @Override
+        public int chunkSize() {
+            return DEFAULT_CHUNK_SIZE;
+        }
+    }
+
+    final class MappedFileBody implements ResponseBody {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final int chunkSize;
+
+        MappedFileBody(Path path, int chunkSize) {
+            this.path = path.toAbsolutePath().normalize();
+            this.chunkSize = chunkSize;
+            try (var channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+                if (channel.size() > Integer.MAX_VALUE) {
+                    throw new IllegalArgumentException("Body file is larger than 2GB, use stream-size instead: " + path);
+                }
+                this.buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            } catch (IOException e) {
+                throw new UncheckedIOException("Can't map body file: " + path, e);
+            }
+        }
+
+        Path path() {
+            return path;
+        }
+
+        @Override
+        public long size() {
+            return buffer.capacity();
+        }
+
+        @Override
+        public Flow.Publisher<DataChunk> publisher() {
+            return new ChunkPublisher(buffer.capacity(), chunkSize, this::slice);
+        }
+
+        @Override
+        public ByteBuffer slice(long position, int length) {
+            return buffer
+                    .duplicate()
+                    .position((int) position)
+                    .limit((int) position + length)
+                    .slice();
+        }
+
+        @Override
+        public int chunkSize() {
+            return chunkSize;
+        }
+    }
+
+    final class GeneratedBody implements ResponseBody {
+        private final ByteBuffer pattern;
+        private final int period;
+        private final long size;
+        private final int chunkSize;
+
+        GeneratedBody(byte[] fill, long size, int chunkSize) {
+            this.size = size;
+            this.chunkSize = chunkSize;
+            if (fill.length == 0) {
+                fill = new byte[]{'0'};
+            }
+            // a chunk of repeated fill plus one fill less a byte, so a chunk starting at any offset into the fill is a
+            // view of it and the pattern continues across chunk boundaries
+            var chunk = new byte[chunkSize + fill.length - 1];
+            for (var i = 0; i < chunk.length; i++) {
+                chunk[i] = fill[i % fill.length];
+            }
+            this.period = fill.length;
+            this.pattern = ByteBuffer.allocateDirect(chunk.length).put(chunk).flip();
+        }
+
+        @Override
+        public long size() {
+            return size;
+        }
+
+        @Override
+        public long contentLength() {
+            return -1;
+        }
+
+        @Override
+        public Flow.Publisher<DataChunk> publisher() {
+            return new ChunkPublisher(size, chunkSize, this::slice);
+        }
+
+        @Override
+        public ByteBuffer slice(long position, int length) {
+            var offset = (int) (position % period);
+            return pattern
+                    .duplicate()
+                    .position(offset)
+                    .limit(offset + length)
+                    .slice();
+        }
+
+        @Override
+        public int chunkSize() {
+            return chunkSize;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.borischistov;
+
+import io.helidon.common.http.Http;
+import io.helidon.common.http.MediaType;
+import io.helidon.config.Config;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+
+/**
+ * Stub route compiled into an immutable, pre-encoded response. Body, content length and content type are
+ * computed once when {@link StubConfig} is built, so serving a request does not touch the encoder.
+ * <p>
+ * Inline bodies with placeholders are compiled into a {@link BodyTemplate}, static bodies get precompressed
+ * {@link BodyVariants} with ETags.
+ * Slow downstreams are emulated with {@link LatencyModel} options and {@code bandwidth}, body bytes per second.
+ */
+@Getter
+@EqualsAndHashCode
+class Route {
+    private final String path;
+    private final String[] paramNames;
+    private final Http.Status status;
+    private final MediaType contentType;
+    private final ResponseBody body;
+    private final BodyTemplate template;
+    private final BodyVariants variants;
+    private final LatencyModel latency;
+    private final long bandwidth;
+    private final RouteMetrics metrics;
+
+    Route(String path, Config route, RouteMetrics metrics) {
+        this.path = path;
+        this.paramNames = RouteTable.paramNames(path);
+        this.status = route
+                .get("code")
+                .asInt()
+                .map(Http.Status::find)
+                .map(rc -> rc.orElse(Http.Status.OK_200))
+                .orElse(Http.Status.OK_200);
+        this.contentType = route
+                .get("content-type")
+                .asString()
+                .map(MediaType::parse)
+                .orElse(MediaType.TEXT_PLAIN);
+        this.body = ResponseBody.create(route);
+        this.template = route.get("body-file").exists() || route.get("stream-size").exists()
+                ? null
+                : BodyTemplate.compile(route.get("body").asString().orElse(""), paramNames);
+        this.variants = template == null ? BodyVariants.create(body, route) : null;
+        this.latency = LatencyModel.create(route);
+        this.bandwidth = route.get("bandwidth").asString().map(ResponseBody::parseSize).orElse(0L);
+        this.metrics = metrics;
+    }
+}
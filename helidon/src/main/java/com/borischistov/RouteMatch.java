@@ -0,0 +1,53 @@
+package com.borischistov;
+
+/**
+ * Mutable result of a {@link RouteTable} lookup. Instances are reused per thread, path parameters are kept as
+ * {@code [start, end)} offsets into the raw path and only turned into strings on demand.
+ */
+final class RouteMatch {
+
+    private static final int[] EMPTY = new int[0];
+
+    private String path;
+    private int[] paramStarts = EMPTY;
+    private int[] paramEnds = EMPTY;
+    private int wildcardStart = -1;
+
+    RouteMatch ensureCapacity(int params) {
+        if (paramStarts.length < params) {
+            paramStarts = new int[params];
+            paramEnds = new int[params];
+        }
+        return this;
+    }
+
+    void reset(String path) {
+        this.path = path;
+        this.wildcardStart = -1;
+    }
+
+    void param(int index, int start, int end) {
+        paramStarts[index] = start;
+        paramEnds[index] = end;
+    }
+
+    void wildcardStart(int start) {
+        this.wildcardStart = start;
+    }
+
+    String path() {
+        return path;
+    }
+
+    int paramStart(int index) {
+        return paramStarts[index];
+    }
+
+    int paramEnd(int index) {
+        return paramEnds[index];
+    }
+
+    int wildcardStart() {
+        return wildcardStart;
+    }
+}
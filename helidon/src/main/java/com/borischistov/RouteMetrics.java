@@ -0,0 +1,74 @@
+package com.borischistov;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single stub route. Updates go through {@link LongAdder} and {@link LatencyHistogram}, both striped
+ * and allocation free once warmed up. The histogram is created by the first request, routes that are never hit
+ * don't pay for it.
+ */
+final class RouteMetrics {
+
+    private static final String[] STATUS_CLASSES = {"1xx", "2xx", "3xx", "4xx", "5xx"};
+
+    private final String route;
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder[] statuses = new LongAdder[STATUS_CLASSES.length];
+    private volatile LatencyHistogram handlerTime;
+
+    RouteMetrics(String route) {
+        this.route = route;
+        for (var i = 0; i < statuses.length; i++) {
+            statuses[i] = new LongAdder();
+        }
+    }
+
+    void record(int status, long bytesSent, long handlerNanos) {
+        requests.increment();
+        if (bytesSent > 0) {
+            bytes.add(bytesSent);
+        }
+        var statusClass = status / 100 - 1;
+        if (statusClass >= 0 && statusClass < statuses.length) {
+            statuses[statusClass].increment();
+        }
+        var histogram = handlerTime;
+        if (histogram == null) {
+            histogram = histogram();
+        }
+        histogram.record(handlerNanos);
+    }
+
+    private synchronized LatencyHistogram histogram() {
+        if (handlerTime == null) {
+            handlerTime = new LatencyHistogram();
+        }
+        return handlerTime;
+    }
+
+    String route() {
+        return route;
+    }
+
+    long requests() {
+        return requests.sum();
+    }
+
+    long bytes() {
+        return bytes.sum();
+    }
+
+    static String[] statusClasses() {
+        return STATUS_CLASSES.clone();
+    }
+
+    long status(int statusClassIndex) {
+        return statuses[statusClassIndex].sum();
+    }
+
+    LatencyHistogram.Snapshot handlerTime() {
+        var histogram = handlerTime;
+        return histogram == null ? LatencyHistogram.Snapshot.EMPTY : histogram.snapshot();
+    }
+}
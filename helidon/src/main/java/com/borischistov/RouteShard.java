@@ -0,0 +1,68 @@
+package com.borischistov;
+
+import io.helidon.config.Config;
+import io.helidon.config.ConfigSources;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+
+/**
+ * Routes loaded from one YAML file of the {@code app.routes-directory}. The file has the same {@code routes} node as
+ * the application config. Parsed route nodes are kept with the file modification time and size, so a reload only
+ * parses shards that changed.
+ */
+final class RouteShard {
+
+    private final Path file;
+    private final FileTime modified;
+    private final long size;
+    private final List<Config> routes;
+
+    private RouteShard(Path file, FileTime modified, long size, List<Config> routes) {
+        this.file = file;
+        this.modified = modified;
+        this.size = size;
+        this.routes = routes;
+    }
+
+    /**
+     * @param previous shard loaded from the same file by the previous reload, may be {@code null}
+     * @param changed  {@code true} when the file is known to be changed
+     * @return {@code previous} when the file is not changed, otherwise the freshly parsed shard
+     */
+    static RouteShard load(Path file, RouteShard previous, boolean changed) {
+        try {
+            var modified = Files.getLastModifiedTime(file);
+            var size = Files.size(file);
+            if (!changed && previous != null && previous.modified.equals(modified) && previous.size == size) {
+                return previous;
+            }
+            var config = Config
+                    .builder()
+                    .sources(ConfigSources.file(file.toString()))
+                    .disableEnvironmentVariablesSource()
+                    .disableSystemPropertiesSource()
+                    .build();
+            return new RouteShard(file, modified, size, config.get("routes").asNodeList().orElseGet(List::of));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't read route shard: " + file, e);
+        }
+    }
+
+    static boolean isShard(Path file) {
+        var name = file.getFileName().toString();
+        return name.endsWith(".yaml") || name.endsWith(".yml");
+    }
+
+    Path file() {
+        return file;
+    }
+
+    List<Config> routes() {
+        return routes;
+    }
+}
@@ -0,0 +1,224 @@
+package com.borischistov;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Path trie used to resolve stub routes. Supported segment kinds, in matching priority:
+ * <ul>
+ *     <li>static segment - {@code /orders}</li>
+ *     <li>path parameter - {@code /users/{id}}, matches exactly one non empty segment</li>
+ *     <li>wildcard - {@code /files/*}, must be the last segment and matches the rest of the path</li>
+ * </ul>
+ * The trie is immutable once built. Lookup walks the raw path by index and compares segments in place, so
+ * resolving a route does not allocate; parameter positions are written into a caller owned {@link RouteMatch}.
+ */
+final class RouteTable {
+
+    private static final String WILDCARD = "*";
+
+    private final Node root;
+    private final int size;
+    private final int maxParams;
+
+    private RouteTable(Node root, int size, int maxParams) {
+        this.root = root;
+        this.size = size;
+        this.maxParams = maxParams;
+    }
+
+    static Builder builder() {
+        return new Builder();
+    }
+
+    int size() {
+        return size;
+    }
+
+    int maxParams() {
+        return maxParams;
+    }
+
+    /**
+     * Resolves route for the raw request path.
+     *
+     * @param path raw request path, starting with {@code /}
+     * @param match reusable holder for parameter positions, must have capacity for {@link #maxParams()}
+     * @return matched route or {@code null}
+     */
+    Route find(String path, RouteMatch match) {
+        match.reset(path);
+        if (path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        return find(root, path, 1, 0, match);
+    }
+
+    private static Route find(Node node, String path, int start, int paramIndex, RouteMatch match) {
+        var end = path.indexOf('/', start);
+        var last = end < 0;
+        if (last) {
+            end = path.length();
+        }
+
+        var child = node.staticChild(path, start, end);
+        if (child != null) {
+            var route = last ? child.route : find(child, path, end + 1, paramIndex, match);
+            if (route != null) {
+                return route;
+            }
+        }
+
+        child = node.paramChild;
+        if (child != null && end > start) {
+            match.param(paramIndex, start, end);
+            var route = last ? child.route : find(child, path, end + 1, paramIndex + 1, match);
+            if (route != null) {
+                return route;
+            }
+        }
+
+        if (node.wildcard != null) {
+            match.wildcardStart(start);
+            return node.wildcard;
+        }
+        return null;
+    }
+
+    static String[] paramNames(String pattern) {
+        var names = new ArrayList<String>();
+        for (var segment : segments(pattern)) {
+            if (isParam(segment)) {
+                names.add(segment.substring(1, segment.length() - 1));
+            }
+        }
+        return names.toArray(String[]::new);
+    }
+
+    private static String[] segments(String pattern) {
+        if (pattern.isEmpty() || pattern.charAt(0) != '/') {
+            throw new IllegalArgumentException("Route path must start with '/': " + pattern);
+        }
+        return pattern.substring(1).split("/", -1);
+    }
+
+    private static boolean isParam(String segment) {
+        return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+    }
+
+    /**
+     * Compares key with {@code path[start, end)} using {@link String#compareTo} ordering.
+     */
+    private static int compare(String key, String path, int start, int end) {
+        var length = end - start;
+        var limit = Math.min(key.length(), length);
+        for (var i = 0; i < limit; i++) {
+            var diff = key.charAt(i) - path.charAt(start + i);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return key.length() - length;
+    }
+
+    private static final class Node {
+        private final String[] staticKeys;
+        private final Node[] staticChildren;
+        private final Node paramChild;
+        private final Route wildcard;
+        private final Route route;
+
+        private Node(String[] staticKeys, Node[] staticChildren, Node paramChild, Route wildcard, Route route) {
+            this.staticKeys = staticKeys;
+            this.staticChildren = staticChildren;
+            this.paramChild = paramChild;
+            this.wildcard = wildcard;
+            this.route = route;
+        }
+
+        private Node staticChild(String path, int start, int end) {
+            var low = 0;
+            var high = staticKeys.length - 1;
+            while (low <= high) {
+                var mid = (low + high) >>> 1;
+                var cmp = compare(staticKeys[mid], path, start, end);
+                if (cmp < 0) {
+                    low = mid + 1;
+                } else if (cmp > 0) {
+                    high = mid - 1;
+                } else {
+                    return staticChildren[mid];
+                }
+            }
+            return null;
+        }
+    }
+
+    static final class Builder {
+        private final MutableNode root = new MutableNode();
+        private int size;
+        private int maxParams;
+
+        private Builder() {
+        }
+
+        Builder add(Route route) {
+            var segments = segments(route.getPath());
+            var node = root;
+            var params = 0;
+            for (var i = 0; i < segments.length; i++) {
+                var segment = segments[i];
+                if (WILDCARD.equals(segment)) {
+                    if (i != segments.length - 1) {
+                        throw new IllegalArgumentException("Wildcard must be the last segment: " + route.getPath());
+                    }
+                    if (node.wildcard == null) {
+                        size++;
+                    }
+                    node.wildcard = route;
+                    maxParams = Math.max(maxParams, params);
+                    return this;
+                }
+                if (isParam(segment)) {
+                    params++;
+                    if (node.paramChild == null) {
+                        node.paramChild = new MutableNode();
+                    }
+                    node = node.paramChild;
+                } else {
+                    node = node.staticChildren.computeIfAbsent(segment, s -> new MutableNode());
+                }
+            }
+            if (node.route == null) {
+                size++;
+            }
+            node.route = route;
+            maxParams = Math.max(maxParams, params);
+            return this;
+        }
+
+        RouteTable build() {
+            return new RouteTable(root.freeze(), size, maxParams);
+        }
+    }
+
+    private static final class MutableNode {
+        private final Map<String, MutableNode> staticChildren = new TreeMap<>();
+        private MutableNode paramChild;
+        private Route wildcard;
+        private Route route;
+
+        private Node freeze() {
+            var keys = new String[staticChildren.size()];
+            var children = new Node[staticChildren.size()];
+            var i = 0;
+            for (var entry : staticChildren.entrySet()) {
+                keys[i] = entry.getKey();
+                children[i] = entry.getValue().freeze();
+                i++;
+            }
+            return new Node(keys, children, paramChild == null ? null : paramChild.freeze(), wildcard, route);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.borischistov;
+
+import io.helidon.config.Config;
+import lombok.AccessLevel;
+import lombok.Getter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Immutable snapshot of the stub configuration. All routes are compiled into a {@link RouteTable} on construction.
+ * <p>
+ * Routes come from the {@code app.routes} node and from route shards, YAML files in {@code app.routes-directory}
+ * read in file name order; a later definition of the same path wins. When built from a previous snapshot only routes
+ * whose config or body file changed are compiled again, the rest are reused as is.
+ */
+@Getter
+class StubConfig {
+
+    private static final Logger logger = LoggerFactory.getLogger(StubConfig.class);
+    private static final String NOT_FOUND = "notFound";
+
+    private final Route notFound;
+    private final RouteTable routes;
+    private final Set<Path> bodyFiles;
+    private final Path routesDirectory;
+    private final ReloadStats reload;
+
+    // sources of compiled routes and parsed shards, compared on the next reload
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Map<String, String>> sources;
+    @Getter(AccessLevel.NONE)
+    private final Map<String, Route> compiled;
+    @Getter(AccessLevel.NONE)
+    private final Map<Path, RouteShard> shards;
+
+    StubConfig(Config appConfig) {
+        this(appConfig, new StubMetrics());
+    }
+
+    StubConfig(Config appConfig, StubMetrics metrics) {
+        this(appConfig, metrics, null, Set.of());
+    }
+
+    /**
+     * @param previous     snapshot to reuse unchanged routes from, may be {@code null}
+     * @param changedFiles body files and shards known to be changed since {@code previous}
+     */
+    StubConfig(Config appConfig, StubMetrics metrics, StubConfig previous, Set<Path> changedFiles) {
+        var started = System.nanoTime();
+        this.routesDirectory = appConfig.get("routes-directory").asString().map(Paths::get).map(Path::toAbsolutePath).orElse(null);
+        this.shards = loadShards(routesDirectory, previous == null ? Map.of() : previous.shards, changedFiles);
+
+        var nodes = new LinkedHashMap<String, Config>();
+        for (var config : appConfig.get("routes").asNodeList().orElseGet(List::of)) {
+            nodes.put(config.name(), config);
+        }
+        for (var shard : shards.values()) {
+            for (var config : shard.routes()) {
+                if (nodes.put(config.name(), config) != null) {
+                    logger.warn("Route: {} is redefined in shard: {}", config.name(), shard.file());
+                }
+            }
+        }
+
+        var previousSources = previous == null ? Map.<String, Map<String, String>>of() : previous.sources;
+        var previousCompiled = previous == null ? Map.<String, Route>of() : previous.compiled;
+        this.sources = new HashMap<>(nodes.size() * 4 / 3 + 1);
+        this.compiled = new HashMap<>(nodes.size() * 4 / 3 + 1);
+        var bodyFiles = new HashSet<Path>();
+        var added = 0;
+        var changed = 0;
+        var reused = 0;
+
+        this.notFound = route(NOT_FOUND, "/", appConfig.get(NOT_FOUND), metrics, previousSources, previousCompiled, changedFiles);
+        collectBodyFile(notFound, bodyFiles);
+        var builder = RouteTable.builder();
+        for (var node : nodes.entrySet()) {
+            var path = node.getKey();
+            var route = route(path, path, node.getValue(), metrics, previousSources, previousCompiled, changedFiles);
+            var before = previousCompiled.get(path);
+            if (before == null) {
+                logger.debug("Request mapping for path: {}", path);
+                added++;
+            } else if (before == route) {
+                reused++;
+            } else {
+                logger.debug("Request mapping changed for path: {}", path);
+                changed++;
+            }
+            collectBodyFile(route, bodyFiles);
+            builder.add(route);
+        }
+        this.routes = builder.build();
+        this.bodyFiles = Set.copyOf(bodyFiles);
+
+        var removed = 0;
+        for (var path : previousCompiled.keySet()) {
+            if (!path.equals(NOT_FOUND) && !compiled.containsKey(path)) {
+                removed++;
+            }
+        }
+        this.reload = new ReloadStats(nodes.size(), added, changed, removed, reused, shards.size(), System.nanoTime() - started);
+    }
+
+    /**
+     * @return keys of all compiled routes, the not found route included
+     */
+    Set<String> routeKeys() {
+        return compiled.keySet();
+    }
+
+    /**
+     * Compiles the route or reuses the previous one when neither its config nor its body file changed.
+     */
+    private Route route(
+            String key,
+            String path,
+            Config config,
+            StubMetrics metrics,
+            Map<String, Map<String, String>> previousSources,
+            Map<String, Route> previousCompiled,
+            Set<Path> changedFiles
+    ) {
+        var source = config.detach().asMap().orElseGet(Map::of);
+        var route = previousCompiled.get(key);
+        if (route == null || !source.equals(previousSources.get(key)) || isChanged(bodyFile(route), changedFiles)) {
+            route = new Route(path, config, metrics.forRoute(key));
+        }
+        sources.put(key, source);
+        compiled.put(key, route);
+        return route;
+    }
+
+    private static Map<Path, RouteShard> loadShards(Path directory, Map<Path, RouteShard> previous, Set<Path> changedFiles) {
+        if (directory == null) {
+            return Map.of();
+        }
+        if (!Files.isDirectory(directory)) {
+            logger.warn("Routes directory: {} does not exist", directory);
+            return Map.of();
+        }
+        try (var files = Files.list(directory)) {
+            var shards = new LinkedHashMap<Path, RouteShard>();
+            for (var file : files.filter(RouteShard::isShard).sorted().collect(Collectors.toList())) {
+                shards.put(file, RouteShard.load(file, previous.get(file), changedFiles.contains(file)));
+            }
+            return shards;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Can't list routes directory: " + directory, e);
+        }
+    }
+
+    private static boolean isChanged(Path file, Set<Path> changedFiles) {
+        return file != null && changedFiles.contains(file);
+    }
+
+    private static Path bodyFile(Route route) {
+        return route.getBody() instanceof ResponseBody.MappedFileBody
+                ? ((ResponseBody.MappedFileBody) route.getBody()).path()
+                : null;
+    }
+
+    private static void collectBodyFile(Route route, Set<Path> bodyFiles) {
+        var file = bodyFile(route);
+        if (file != null) {
+            bodyFiles.add(file);
+        }
+    }
+}
@@ -1,32 +1,42 @@
 package com.borischistov;
 
 import io.helidon.common.http.Http;
-import io.helidon.common.http.MediaType;
 import io.helidon.config.Config;
 import io.helidon.webserver.Handler;
 import io.helidon.webserver.ServerRequest;
 import io.helidon.webserver.ServerResponse;
-import lombok.EqualsAndHashCode;
-import lombok.Getter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collections;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.nio.file.Path;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 public class StubHandler implements Handler {
 
     private static final Logger logger = LoggerFactory.getLogger(StubHandler.class);
 
-    private StubConfig stubConfig;
+    private static final ThreadLocal<RouteMatch> MATCHES = ThreadLocal.withInitial(RouteMatch::new);
+
+    private final StubMetrics metrics;
+    private final RequestCapture capture;
+    private final BodyFileWatcher bodyFileWatcher;
+    private Config appConfig;
+    private volatile StubConfig stubConfig;
 
     public StubHandler(Config appConfig) {
-        this.stubConfig = new StubConfig(appConfig);
+        this(appConfig, new StubMetrics(), null);
+    }
+
+    StubHandler(Config appConfig, StubMetrics metrics, RequestCapture capture) {
+        this.metrics = metrics;
+        this.capture = capture;
+        this.bodyFileWatcher = new BodyFileWatcher(this::onFilesChange);
+        reload(appConfig, Set.of());
 
         appConfig.onChange(newConfig -> {
             logger.debug("Config updated");
-            this.stubConfig = new StubConfig(newConfig);
+            reload(newConfig, Set.of());
         });
     }
 
@@ -34,62 +44,111 @@ public class StubHandler implements Handler {
     public void accept(
             ServerRequest serverRequest, ServerResponse serverResponse
     ) {
+        var started = System.nanoTime();
+        if (capture != null) {
+            capture.capture(serverRequest);
+        }
         var config = this.stubConfig;
-        var route = config.routes.getOrDefault(serverRequest.path().toRawString(), config.notFound);
-        sendResponse(route, serverRequest, serverResponse);
+        var match = MATCHES.get();
+        var route = resolve(config, serverRequest.path().toRawString(), match);
+        // templates read the match, which belongs to this thread, so render before any delay
+        var variant = variant(route, serverRequest, match);
+        var latency = route.getLatency();
+        if (latency == null) {
+            sendResponse(route, variant, serverRequest, serverResponse, started);
+        } else {
+            StubScheduler.get().schedule(
+                    () -> sendResponse(route, variant, serverRequest, serverResponse, started),
+                    latency.nextDelayNanos(),
+                    TimeUnit.NANOSECONDS
+            );
+        }
     }
 
-    private void sendResponse(Route route, ServerRequest req, ServerResponse resp) {
-        logger.debug(
-                "Responding to path: {}, code: {}, content-type: {}, body: {}",
-                req.path().toRawString(),
-                route.status,
-                route.contentType,
-                route.body
-
-        );
-        resp.headers().contentType(route.contentType);
-        resp.status(route.status).send(route.body);
+    private static BodyVariants.Variant variant(Route route, ServerRequest request, RouteMatch match) {
+        var template = route.getTemplate();
+        if (template != null) {
+            return new BodyVariants.Variant(new ResponseBody.InlineBody(template.render(request, match)), null, null);
+        }
+        var variants = route.getVariants();
+        return variants == null
+                ? new BodyVariants.Variant(route.getBody(), null, null)
+                : variants.select(request.headers().first(Http.Header.ACCEPT_ENCODING).orElse(null));
     }
 
-    @Getter
-    @EqualsAndHashCode
-    private static class StubConfig {
-        private Route notFound;
-        private Map<String, Route> routes;
-
-        public StubConfig(Config appConfig) {
-            this.notFound = new Route(appConfig.get("notFound"));
-            this.routes = Collections.unmodifiableMap(
-                    appConfig
-                    .get("routes")
-                    .traverse(c -> !c.isLeaf())
-                    .peek(c -> logger.debug("Request mapping for path: {}", c.name()))
-                    .collect(Collectors.toMap(Config::name, Route::new))
-            );
-        }
+    static Route resolve(StubConfig config, String path) {
+        return resolve(config, path, MATCHES.get());
+    }
+
+    static Route resolve(StubConfig config, String path, RouteMatch match) {
+        var routes = config.getRoutes();
+        var route = routes.find(path, match.ensureCapacity(routes.maxParams()));
+        return route == null ? config.getNotFound() : route;
     }
 
-    @Getter
-    @EqualsAndHashCode
-    private static class Route {
-        private Http.Status status;
-        private MediaType contentType;
-        private String body;
-
-        public Route(Config route) {
-            this.status = route
-                    .get("code")
-                    .asInt()
-                    .map(Http.Status::find)
-                    .map(rc -> rc.orElse(Http.Status.OK_200))
-                    .orElse(Http.Status.OK_200);
-            this.contentType = route
-                    .get("content-type")
-                    .asString()
-                    .map(MediaType::parse)
-                    .orElse(MediaType.TEXT_PLAIN);
-            this.body = route.get("body").asString().orElse("");
+    /**
+     * Builds the next config from the current one, so unchanged routes are reused, and publishes it with a single
+     * volatile write. Requests in flight keep the snapshot they have read.
+     */
+    private synchronized void reload(Config appConfig, Set<Path> changedFiles) {
+        var config = new StubConfig(appConfig, metrics, stubConfig, changedFiles);
+        bodyFileWatcher.watch(config.getBodyFiles(), config.getRoutesDirectory());
+        this.appConfig = appConfig;
+        this.stubConfig = config;
+        metrics.retain(config.routeKeys());
+        metrics.reloaded(config.getReload());
+        logger.info("Config loaded: {}", config.getReload());
+    }
+
+    /**
+     * Reads {@code appConfig} under the reload lock, so a config change published meanwhile is not rolled back.
+     */
+    private synchronized void reloadFiles(Set<Path> files) {
+        reload(appConfig, files);
+    }
+
+    private void onFilesChange(Set<Path> files) {
+        logger.debug("Reloading changed files: {}", files);
+        reloadFiles(files);
+    }
+
+    private void sendResponse(Route route, BodyVariants.Variant variant, ServerRequest req, ServerResponse resp, long started) {
+        var body = variant.body();
+        if (logger.isDebugEnabled()) {
+            logger.debug(
+                    "Responding to path: {}, route: {}, code: {}, content-type: {}, content-length: {}",
+                    req.path().toRawString(),
+                    route.getPath(),
+                    route.getStatus(),
+                    route.getContentType(),
+                    body.contentLength()
+            );
+        }
+        var headers = resp.headers();
+        if (route.getVariants() != null && route.getVariants().negotiated()) {
+            headers.put(Http.Header.VARY, Http.Header.ACCEPT_ENCODING);
+        }
+        if (variant.etag() != null) {
+            headers.put(Http.Header.ETAG, variant.etag());
+            // preconditions only apply to successful responses
+            var code = route.getStatus().code();
+            if (code >= 200 && code < 300 && BodyVariants.matches(req.headers().first(Http.Header.IF_NONE_MATCH).orElse(null), variant.etag())) {
+                resp.status(Http.Status.NOT_MODIFIED_304).send();
+                route.getMetrics().record(Http.Status.NOT_MODIFIED_304.code(), 0, System.nanoTime() - started);
+                return;
+            }
+        }
+        if (variant.encoding() != null) {
+            headers.put(Http.Header.CONTENT_ENCODING, variant.encoding());
+        }
+        headers.contentType(route.getContentType());
+        if (body.contentLength() >= 0) {
+            headers.contentLength(body.contentLength());
         }
+        var publisher = route.getBandwidth() > 0
+                ? body.throttled(StubScheduler.get(), route.getBandwidth())
+                : body.publisher();
+        resp.status(route.getStatus()).send(publisher);
+        route.getMetrics().record(route.getStatus().code(), body.size(), System.nanoTime() - started);
     }
 }
@@ -0,0 +1,53 @@
+package com.borischistov;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of {@link RouteMetrics} keyed by route path. Metrics are bound to routes when {@link StubConfig} is built,
+ * so they survive config reloads and the request path never looks anything up.
+ */
+class StubMetrics {
+
+    private final ConcurrentMap<String, RouteMetrics> routes = new ConcurrentHashMap<>();
+    private final LongAdder reloads = new LongAdder();
+    private volatile ReloadStats lastReload;
+
+    RouteMetrics forRoute(String route) {
+        return routes.computeIfAbsent(route, RouteMetrics::new);
+    }
+
+    /**
+     * Drops metrics of routes that are gone after a reload.
+     */
+    void retain(Set<String> routes) {
+        this.routes.keySet().retainAll(routes);
+    }
+
+    void reloaded(ReloadStats stats) {
+        reloads.increment();
+        lastReload = stats;
+    }
+
+    long reloads() {
+        return reloads.sum();
+    }
+
+    /**
+     * @return stats of the last config load or {@code null} before the first one
+     */
+    ReloadStats lastReload() {
+        return lastReload;
+    }
+
+    List<RouteMetrics> routes() {
+        var result = new ArrayList<>(routes.values());
+        result.sort(Comparator.comparing(RouteMetrics::route));
+        return result;
+    }
+}
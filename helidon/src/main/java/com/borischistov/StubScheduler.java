@@ -0,0 +1,31 @@
+package com.borischistov;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+
+/**
+ * Shared timer for simulated delays and bandwidth throttling. Scheduled tasks only hand data over to the
+ * connection, which then writes on its own event loop, so one thread serves any number of delayed connections and
+ * the event loops never block.
+ */
+final class StubScheduler {
+
+    private static final ScheduledExecutorService INSTANCE = create();
+
+    private StubScheduler() {
+    }
+
+    static ScheduledExecutorService get() {
+        return INSTANCE;
+    }
+
+    private static ScheduledExecutorService create() {
+        var executor = new ScheduledThreadPoolExecutor(1, r -> {
+            var thread = new Thread(r, "stub-scheduler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+}
@@ -0,0 +1,289 @@
+package tech.borischistov.blog.ml;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Dense vectors of one dimension, normalized when added and stored back to back in a single row-major
+ * {@code float[]}, so the cosine of two vectors is a plain dot product of two array ranges.
+ * <p>
+ * {@link #allPairs(float, PairConsumer)} and {@link #pairs(int, int, int, int, float, PairConsumer)} compare sets of
+ * vectors tile by tile on a fork-join pool. A tile of {@value #COLUMN_TILE} vectors is copied into a transposed
+ * panel once, then every vector of a tile of {@value #ROW_TILE} is multiplied with the whole panel: the inner loop
+ * adds {@code a[k] * panel[k][0..n)} into {@code n} independent sums, which the JIT compiles to SIMD instructions,
+ * unlike a dot product whose single floating point sum has to be added in order. Both tiles stay in cache while they
+ * are multiplied. Pairs at or above the threshold are handed to the consumer in batches as tiles finish, the
+ * similarity matrix is never held in memory.
+ * <p>
+ * Vectors are added from one thread, comparisons may run concurrently once adding is done.
+ */
+public class DenseVectors {
+
+    /**
+     * Vectors of the first set multiplied with one panel.
+     */
+    private static final int ROW_TILE = 64;
+    /**
+     * Vectors of the second set in one transposed panel, 96 KB of floats for 384 dimensions.
+     */
+    private static final int COLUMN_TILE = 64;
+    /**
+     * Pairs buffered by a task before they are handed to the consumer.
+     */
+    private static final int BATCH = 4096;
+
+    private final int dimension;
+    private final ForkJoinPool pool;
+    /**
+     * Serializes consumer calls, private so code synchronizing on the caller's consumer can't stall the tiles.
+     */
+    private final Object consumerLock = new Object();
+    private float[] data;
+    private int size;
+
+    public DenseVectors(int dimension) {
+        this(dimension, ForkJoinPool.commonPool());
+    }
+
+    public DenseVectors(int dimension, ForkJoinPool pool) {
+        if (dimension <= 0) {
+            throw new IllegalArgumentException("Dimension must be positive: " + dimension);
+        }
+        this.dimension = dimension;
+        this.pool = pool;
+        this.data = new float[(int) Math.min((long) dimension * 1024, Integer.MAX_VALUE - 8)];
+    }
+
+    /**
+     * Receives similar pairs. Calls are never concurrent, but may come from any thread of the pool.
+     */
+    @FunctionalInterface
+    public interface PairConsumer {
+        void accept(int first, int second, float similarity);
+    }
+
+    /**
+     * @return id of the vector, vectors are numbered from {@code 0} in the order they are added
+     */
+    public int add(float[] vector) {
+        var offset = allocate(vector.length);
+        var norm = 0d;
+        for (var value : vector) {
+            norm += (double) value * value;
+        }
+        var scale = norm > 0 ? (float) (1 / Math.sqrt(norm)) : 0f;
+        for (var i = 0; i < dimension; i++) {
+            data[offset + i] = vector[i] * scale;
+        }
+        return size++;
+    }
+
+    public int add(double[] vector) {
+        var offset = allocate(vector.length);
+        var norm = 0d;
+        for (var value : vector) {
+            norm += value * value;
+        }
+        var scale = norm > 0 ? 1 / Math.sqrt(norm) : 0;
+        for (var i = 0; i < dimension; i++) {
+            data[offset + i] = (float) (vector[i] * scale);
+        }
+        return size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int dimension() {
+        return dimension;
+    }
+
+    /**
+     * @return normalized copy of the vector
+     */
+    public float[] vector(int id) {
+        return Arrays.copyOfRange(data, id * dimension, (id + 1) * dimension);
+    }
+
+    /**
+     * @return cosine similarity of two vectors, {@code 0} if either is all zeros
+     */
+    public double cosine(int first, int second) {
+        var a = first * dimension;
+        var b = second * dimension;
+        var dot = 0f;
+        for (var i = 0; i < dimension; i++) {
+            dot += data[a + i] * data[b + i];
+        }
+        return dot;
+    }
+
+    /**
+     * Finds every pair of distinct vectors with similarity at or above the threshold, each pair once with
+     * {@code first < second}. Pairs come in no particular order.
+     */
+    public void allPairs(float threshold, PairConsumer consumer) {
+        if (size > 1) {
+            pool.invoke(new Tiles(0, size, 0, size, true, threshold, consumer));
+        }
+    }
+
+    /**
+     * Compares vectors {@code [fromFirst, toFirst)} with vectors {@code [fromSecond, toSecond)}, ranges may overlap and
+     * a vector in both is compared with itself. Pairs come in no particular order.
+     */
+    public void pairs(int fromFirst, int toFirst, int fromSecond, int toSecond, float threshold, PairConsumer consumer) {
+        check(fromFirst, toFirst);
+        check(fromSecond, toSecond);
+        if (fromFirst < toFirst && fromSecond < toSecond) {
+            pool.invoke(new Tiles(fromFirst, toFirst, fromSecond, toSecond, false, threshold, consumer));
+        }
+    }
+
+    private int allocate(int length) {
+        if (length != dimension) {
+            throw new IllegalArgumentException("Expected " + dimension + " dimensions, got " + length);
+        }
+        var end = (long) (size + 1) * dimension;
+        if (end > data.length) {
+            var capacity = Math.min(Math.max(end, (long) data.length * 2), Integer.MAX_VALUE - 8);
+            if (end > capacity) {
+                throw new IllegalStateException("Too many vectors for one array: " + size);
+            }
+            data = Arrays.copyOf(data, (int) capacity);
+        }
+        return size * dimension;
+    }
+
+    private void check(int from, int to) {
+        if (from < 0 || to > size || from > to) {
+            throw new IndexOutOfBoundsException("Range [" + from + ", " + to + ") of " + size + " vectors");
+        }
+    }
+
+    /**
+     * Compares row tiles {@code [rowFrom, rowTo)} with the columns, splitting the rows in half until one tile is
+     * left. In triangle mode rows and columns are the same set and only columns after a row are compared.
+     */
+    private class Tiles extends RecursiveAction {
+        private final int rowFrom;
+        private final int rowTo;
+        private final int columnFrom;
+        private final int columnTo;
+        private final boolean triangle;
+        private final float threshold;
+        private final PairConsumer consumer;
+
+        private Tiles(
+                int rowFrom,
+                int rowTo,
+                int columnFrom,
+                int columnTo,
+                boolean triangle,
+                float threshold,
+                PairConsumer consumer
+        ) {
+            this.rowFrom = rowFrom;
+            this.rowTo = rowTo;
+            this.columnFrom = columnFrom;
+            this.columnTo = columnTo;
+            this.triangle = triangle;
+            this.threshold = threshold;
+            this.consumer = consumer;
+        }
+
+        @Override
+        protected void compute() {
+            if (rowTo - rowFrom <= ROW_TILE) {
+                new Tile(this).run();
+                return;
+            }
+            var tiles = (rowTo - rowFrom + ROW_TILE - 1) / ROW_TILE;
+            var middle = rowFrom + tiles / 2 * ROW_TILE;
+            invokeAll(
+                    new Tiles(rowFrom, middle, columnFrom, columnTo, triangle, threshold, consumer),
+                    new Tiles(middle, rowTo, columnFrom, columnTo, triangle, threshold, consumer)
+            );
+        }
+    }
+
+    /**
+     * One row tile against all column tiles, with its own panel, sums and result buffer.
+     */
+    private class Tile {
+        private final Tiles tiles;
+        private final float[] panel = new float[dimension * COLUMN_TILE];
+        private final float[] sums = new float[COLUMN_TILE];
+        private final int[] firsts = new int[BATCH];
+        private final int[] seconds = new int[BATCH];
+        private final float[] similarities = new float[BATCH];
+        private int buffered;
+
+        private Tile(Tiles tiles) {
+            this.tiles = tiles;
+        }
+
+        private void run() {
+            // in triangle mode column tiles before the row tile only hold pairs already compared
+            var start = tiles.triangle ? tiles.rowFrom : tiles.columnFrom;
+            for (var column = start; column < tiles.columnTo; column += COLUMN_TILE) {
+                multiply(column, Math.min(column + COLUMN_TILE, tiles.columnTo));
+            }
+            flush();
+        }
+
+        private void multiply(int columnFrom, int columnTo) {
+            var data = DenseVectors.this.data;
+            var panel = this.panel;
+            var sums = this.sums;
+            var columns = columnTo - columnFrom;
+            for (var j = 0; j < columns; j++) {
+                var offset = (columnFrom + j) * dimension;
+                for (var k = 0; k < dimension; k++) {
+                    panel[k * columns + j] = data[offset + k];
+                }
+            }
+            for (var row = tiles.rowFrom; row < tiles.rowTo; row++) {
+                Arrays.fill(sums, 0, columns, 0);
+                var offset = row * dimension;
+                for (var k = 0; k < dimension; k++) {
+                    var value = data[offset + k];
+                    var base = k * columns;
+                    for (var j = 0; j < columns; j++) {
+                        sums[j] += value * panel[base + j];
+                    }
+                }
+                var first = tiles.triangle ? Math.max(0, row + 1 - columnFrom) : 0;
+                for (var j = first; j < columns; j++) {
+                    if (sums[j] >= tiles.threshold) {
+                        emit(row, columnFrom + j, sums[j]);
+                    }
+                }
+            }
+        }
+
+        private void emit(int first, int second, float similarity) {
+            if (buffered == BATCH) {
+                flush();
+            }
+            firsts[buffered] = first;
+            seconds[buffered] = second;
+            similarities[buffered] = similarity;
+            buffered++;
+        }
+
+        private void flush() {
+            if (buffered == 0) {
+                return;
+            }
+            synchronized (consumerLock) {
+                for (var i = 0; i < buffered; i++) {
+                    tiles.consumer.accept(firsts[i], seconds[i], similarities[i]);
+                }
+            }
+            buffered = 0;
+        }
+    }
+}
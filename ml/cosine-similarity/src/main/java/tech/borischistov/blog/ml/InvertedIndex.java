@@ -0,0 +1,313 @@
+package tech.borischistov.blog.ml;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Exact top-k over a {@link SparseCorpus} that only looks at documents sharing a term with the query. Every term has
+ * a posting list of ascending document ids with the document's weight for the term, and the largest weight in the
+ * list.
+ * <p>
+ * Search is document-at-a-time MaxScore: query terms are ordered by their score upper bound (query weight times
+ * the list's largest weight). Once the k-th best score so far exceeds the summed bounds of the cheapest lists, those
+ * lists become non-essential: a document found only in them can't make it into the top k, so candidates are
+ * taken from the essential lists alone and the non-essential ones are only probed, skipping ahead, for those
+ * candidates until the remaining bounds can't lift the score over the threshold. Frequent terms with low weights
+ * are the first to become non-essential, which is where most of the postings are.
+ * <p>
+ * Documents added to the corpus are indexed by {@link #refresh()}. Not thread safe while indexing, searches can
+ * run concurrently.
+ */
+public class InvertedIndex {
+
+    private static final int MAGIC = 0x494E5658;
+    private static final int VERSION = 2;
+    private static final int INDEXED_FIELD = 0;
+    private static final int TERMS_FIELD = 1;
+    private static final int POSTINGS_FIELD = 2;
+    /**
+     * Upper bounds are computed in a different order than scores, the slack keeps rounding from pruning a document
+     * that ties the threshold.
+     */
+    private static final double BOUND_SLACK = 1 + 1e-6;
+
+    private final SparseCorpus corpus;
+    private int[][] documents;
+    private float[][] weights;
+    private int[] lengths;
+    private float[] maxWeights;
+    private int terms;
+    private int indexed;
+
+    /**
+     * Indexes the documents already in the corpus.
+     */
+    public InvertedIndex(SparseCorpus corpus) {
+        this.corpus = corpus;
+        this.documents = new int[1024][];
+        this.weights = new float[1024][];
+        this.lengths = new int[1024];
+        this.maxWeights = new float[1024];
+        refresh();
+    }
+
+    private InvertedIndex(
+            SparseCorpus corpus,
+            int[][] documents,
+            float[][] weights,
+            int[] lengths,
+            float[] maxWeights,
+            int indexed
+    ) {
+        this.corpus = corpus;
+        this.documents = documents;
+        this.weights = weights;
+        this.lengths = lengths;
+        this.maxWeights = maxWeights;
+        this.terms = lengths.length;
+        this.indexed = indexed;
+    }
+
+    /**
+     * Loads an index written by {@link #save(Path)} for the same corpus and indexes the documents added to the corpus
+     * since it was saved.
+     */
+    public static InvertedIndex load(Path path, SparseCorpus corpus) throws IOException {
+        try (var file = MappedFile.open(path, MAGIC, VERSION, 3)) {
+            var indexed = file.intField(INDEXED_FIELD);
+            if (indexed > corpus.size()) {
+                throw new IOException("Index has " + indexed + " documents, corpus only " + corpus.size());
+            }
+            var terms = file.intField(TERMS_FIELD);
+            var total = file.intField(POSTINGS_FIELD);
+            var lengths = file.readInts(terms);
+            var maxWeights = file.readFloats(terms);
+            var allDocuments = file.readInts(total);
+            var allWeights = file.readFloats(total);
+            var documents = new int[terms][];
+            var weights = new float[terms][];
+            var offset = 0;
+            for (var term = 0; term < terms; term++) {
+                documents[term] = Arrays.copyOfRange(allDocuments, offset, offset + lengths[term]);
+                weights[term] = Arrays.copyOfRange(allWeights, offset, offset + lengths[term]);
+                offset += lengths[term];
+            }
+            var index = new InvertedIndex(corpus, documents, weights, lengths, maxWeights, indexed);
+            index.refresh();
+            return index;
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        var total = 0L;
+        for (var term = 0; term < terms; term++) {
+            total += lengths[term];
+        }
+        if (total > Integer.MAX_VALUE) {
+            throw new IOException("Too many postings to save: " + total);
+        }
+        var allDocuments = new int[(int) total];
+        var allWeights = new float[(int) total];
+        var offset = 0;
+        for (var term = 0; term < terms; term++) {
+            System.arraycopy(documents[term], 0, allDocuments, offset, lengths[term]);
+            System.arraycopy(weights[term], 0, allWeights, offset, lengths[term]);
+            offset += lengths[term];
+        }
+        try (var file = MappedFile.create(path, MAGIC, VERSION, 3)) {
+            file.setField(INDEXED_FIELD, indexed);
+            file.setField(TERMS_FIELD, terms);
+            file.setField(POSTINGS_FIELD, offset);
+            file.writeInts(lengths, terms);
+            file.writeFloats(maxWeights, terms);
+            file.writeInts(allDocuments, offset);
+            file.writeFloats(allWeights, offset);
+        }
+    }
+
+    /**
+     * Adds the text to the corpus and indexes it.
+     *
+     * @return id of the document
+     */
+    public int add(CharSequence text) {
+        var document = corpus.add(text);
+        refresh();
+        return document;
+    }
+
+    /**
+     * Indexes documents added to the corpus since the last refresh.
+     */
+    public void refresh() {
+        for (; indexed < corpus.size(); indexed++) {
+            var vector = corpus.vector(indexed);
+            for (var i = 0; i < vector.size(); i++) {
+                append(vector.term(i), indexed, vector.weight(i));
+            }
+        }
+    }
+
+    public int size() {
+        return indexed;
+    }
+
+    public List<Match> topK(CharSequence query, int k) {
+        return topK(corpus.vocabulary().query(query), k);
+    }
+
+    /**
+     * @return up to {@code k} documents most similar to the query, by descending similarity; the same documents
+     * {@link SparseCorpus#topK(SparseVector, int)} finds, both add exact products in double and round the sum to
+     * float, so scores only differ when the order of addition changes the last bit of the double
+     */
+    public List<Match> topK(SparseVector query, int k) {
+        if (k <= 0) {
+            return List.of();
+        }
+        var cursors = cursors(query);
+        var count = cursors.length;
+        var prefix = new double[count];
+        for (var i = 0; i < count; i++) {
+            prefix[i] = (i == 0 ? 0 : prefix[i - 1]) + cursors[i].bound;
+        }
+        var top = new TopK(k);
+        var essential = 0;
+        while (true) {
+            var threshold = top.threshold();
+            while (essential < count && prefix[essential] <= threshold) {
+                essential++;
+            }
+            var document = Integer.MAX_VALUE;
+            for (var i = essential; i < count; i++) {
+                document = Math.min(document, cursors[i].document());
+            }
+            if (document == Integer.MAX_VALUE) {
+                break;
+            }
+            var score = 0d;
+            for (var i = essential; i < count; i++) {
+                var cursor = cursors[i];
+                if (cursor.document() == document) {
+                    score += cursor.score();
+                    cursor.position++;
+                }
+            }
+            for (var i = essential - 1; i >= 0 && score + prefix[i] > threshold; i--) {
+                var cursor = cursors[i];
+                cursor.advance(document);
+                if (cursor.document() == document) {
+                    score += cursor.score();
+                }
+            }
+            if (score > 0 && score > threshold) {
+                top.offer(document, (float) score);
+            }
+        }
+        return top.matches();
+    }
+
+    /**
+     * @return cursors of the query terms with postings, by ascending upper bound
+     */
+    private Cursor[] cursors(SparseVector query) {
+        var cursors = new Cursor[query.size()];
+        var count = 0;
+        for (var i = 0; i < query.size(); i++) {
+            var term = query.term(i);
+            if (term < terms && lengths[term] > 0) {
+                cursors[count++] = new Cursor(
+                        documents[term], weights[term], lengths[term],
+                        query.weight(i), query.weight(i) * maxWeights[term] * BOUND_SLACK
+                );
+            }
+        }
+        cursors = Arrays.copyOf(cursors, count);
+        Arrays.sort(cursors, (a, b) -> Double.compare(a.bound, b.bound));
+        return cursors;
+    }
+
+    private void append(int term, int document, float weight) {
+        if (term >= documents.length) {
+            var capacity = Math.max(term + 1, documents.length * 2);
+            documents = Arrays.copyOf(documents, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            lengths = Arrays.copyOf(lengths, capacity);
+            maxWeights = Arrays.copyOf(maxWeights, capacity);
+        }
+        terms = Math.max(terms, term + 1);
+        var length = lengths[term];
+        if (documents[term] == null) {
+            documents[term] = new int[4];
+            weights[term] = new float[4];
+        } else if (length == documents[term].length) {
+            documents[term] = Arrays.copyOf(documents[term], length * 2);
+            weights[term] = Arrays.copyOf(weights[term], length * 2);
+        }
+        documents[term][length] = document;
+        weights[term][length] = weight;
+        lengths[term] = length + 1;
+        maxWeights[term] = Math.max(maxWeights[term], weight);
+    }
+
+    /**
+     * Position in one posting list during a search.
+     */
+    private static final class Cursor {
+        private final int[] documents;
+        private final float[] weights;
+        private final int length;
+        private final float queryWeight;
+        private final double bound;
+        private int position;
+
+        private Cursor(int[] documents, float[] weights, int length, float queryWeight, double bound) {
+            this.documents = documents;
+            this.weights = weights;
+            this.length = length;
+            this.queryWeight = queryWeight;
+            this.bound = bound;
+        }
+
+        /**
+         * @return current document or {@code Integer.MAX_VALUE} at the end of the list
+         */
+        private int document() {
+            return position < length ? documents[position] : Integer.MAX_VALUE;
+        }
+
+        private double score() {
+            return (double) queryWeight * weights[position];
+        }
+
+        /**
+         * Moves to the first document not before the target, galloping then binary search.
+         */
+        private void advance(int target) {
+            if (position >= length || documents[position] >= target) {
+                return;
+            }
+            var low = position;
+            var step = 1;
+            var high = position + step;
+            while (high < length && documents[high] < target) {
+                low = high;
+                step <<= 1;
+                high = position + step;
+            }
+            high = Math.min(high, length);
+            // documents[low] < target, documents[high] >= target or high == length
+            while (low + 1 < high) {
+                var middle = (low + high) >>> 1;
+                if (documents[middle] < target) {
+                    low = middle;
+                } else {
+                    high = middle;
+                }
+            }
+            position = high;
+        }
+    }
+}
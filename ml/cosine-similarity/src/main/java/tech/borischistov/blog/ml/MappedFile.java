@@ -0,0 +1,174 @@
+package tech.borischistov.blog.ml;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader and writer of index files. Arrays are copied to and from memory mapped regions in bulk, so
+ * loading an index is a few memcpy-like copies instead of parsing. Regions are mapped in chunks of at most
+ * {@value #CHUNK} bytes since a single mapping can't exceed 2 GB. Values are little endian.
+ * <p>
+ * A file starts with a header of magic, version and a fixed number of {@code long} fields for the sizes and settings
+ * of the file's format. The header is mapped once when the file is created or opened, its fields are read and written
+ * through that mapping, and the arrays follow it.
+ */
+final class MappedFile implements Closeable {
+
+    private static final int CHUNK = 1 << 30;
+
+    private final FileChannel channel;
+    private final FileChannel.MapMode mode;
+    private final ByteBuffer header;
+    private long position;
+
+    private MappedFile(FileChannel channel, FileChannel.MapMode mode, int fields) throws IOException {
+        this.channel = channel;
+        this.mode = mode;
+        this.header = map(2 * Integer.BYTES + (long) fields * Long.BYTES);
+    }
+
+    /**
+     * @param fields number of header fields of the format
+     */
+    static MappedFile create(Path path, int magic, int version, int fields) throws IOException {
+        var file = new MappedFile(
+                FileChannel.open(
+                        path,
+                        StandardOpenOption.CREATE,
+                        StandardOpenOption.TRUNCATE_EXISTING,
+                        StandardOpenOption.READ,
+                        StandardOpenOption.WRITE
+                ),
+                FileChannel.MapMode.READ_WRITE,
+                fields
+        );
+        file.header.putInt(0, magic).putInt(Integer.BYTES, version);
+        return file;
+    }
+
+    static MappedFile open(Path path, int magic, int version, int fields) throws IOException {
+        var channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < 2 * Integer.BYTES + (long) fields * Long.BYTES) {
+                throw new IOException("Not an index file: " + path);
+            }
+            var file = new MappedFile(channel, FileChannel.MapMode.READ_ONLY, fields);
+            if (file.header.getInt(0) != magic || file.header.getInt(Integer.BYTES) != version) {
+                throw new IOException("Not an index file or unsupported version: " + path);
+            }
+            return file;
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    void setField(int field, long value) {
+        header.putLong(offset(field), value);
+    }
+
+    long field(int field) {
+        return header.getLong(offset(field));
+    }
+
+    /**
+     * @throws IOException when the field doesn't fit an {@code int}, the file is corrupt
+     */
+    int intField(int field) throws IOException {
+        var value = field(field);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IOException("Corrupt header field " + field + ": " + value);
+        }
+        return (int) value;
+    }
+
+    void writeInts(int[] values, int length) throws IOException {
+        var step = CHUNK / Integer.BYTES;
+        for (var from = 0; from < length; from += step) {
+            var count = Math.min(step, length - from);
+            map((long) count * Integer.BYTES).asIntBuffer().put(values, from, count);
+        }
+    }
+
+    int[] readInts(int length) throws IOException {
+        var values = new int[length];
+        var step = CHUNK / Integer.BYTES;
+        for (var from = 0; from < length; from += step) {
+            var count = Math.min(step, length - from);
+            map((long) count * Integer.BYTES).asIntBuffer().get(values, from, count);
+        }
+        return values;
+    }
+
+    void writeFloats(float[] values, int length) throws IOException {
+        var step = CHUNK / Float.BYTES;
+        for (var from = 0; from < length; from += step) {
+            var count = Math.min(step, length - from);
+            map((long) count * Float.BYTES).asFloatBuffer().put(values, from, count);
+        }
+    }
+
+    float[] readFloats(int length) throws IOException {
+        var values = new float[length];
+        var step = CHUNK / Float.BYTES;
+        for (var from = 0; from < length; from += step) {
+            var count = Math.min(step, length - from);
+            map((long) count * Float.BYTES).asFloatBuffer().get(values, from, count);
+        }
+        return values;
+    }
+
+    void writeLongs(long[] values, int length) throws IOException {
+        var step = CHUNK / Long.BYTES;
+        for (var from = 0; from < length; from += step) {
+            var count = Math.min(step, length - from);
+            map((long) count * Long.BYTES).asLongBuffer().put(values, from, count);
+        }
+    }
+
+    long[] readLongs(int length) throws IOException {
+        var values = new long[length];
+        var step = CHUNK / Long.BYTES;
+        for (var from = 0; from < length; from += step) {
+            var count = Math.min(step, length - from);
+            map((long) count * Long.BYTES).asLongBuffer().get(values, from, count);
+        }
+        return values;
+    }
+
+    void writeBytes(byte[] values, int length) throws IOException {
+        for (var from = 0; from < length; from += CHUNK) {
+            var count = Math.min(CHUNK, length - from);
+            map(count).put(values, from, count);
+        }
+    }
+
+    byte[] readBytes(int length) throws IOException {
+        var values = new byte[length];
+        for (var from = 0; from < length; from += CHUNK) {
+            var count = Math.min(CHUNK, length - from);
+            map(count).get(values, from, count);
+        }
+        return values;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private int offset(int field) {
+        return 2 * Integer.BYTES + field * Long.BYTES;
+    }
+
+    private ByteBuffer map(long size) throws IOException {
+        var buffer = channel.map(mode, position, size).order(ByteOrder.LITTLE_ENDIAN);
+        position += size;
+        return buffer;
+    }
+}
@@ -0,0 +1,28 @@
+package tech.borischistov.blog.ml;
+
+/**
+ * Document of a corpus and its cosine similarity to a query.
+ */
+public final class Match {
+
+    private final int document;
+    private final double similarity;
+
+    Match(int document, double similarity) {
+        this.document = document;
+        this.similarity = similarity;
+    }
+
+    public int document() {
+        return document;
+    }
+
+    public double similarity() {
+        return similarity;
+    }
+
+    @Override
+    public String toString() {
+        return document + ": " + similarity;
+    }
+}
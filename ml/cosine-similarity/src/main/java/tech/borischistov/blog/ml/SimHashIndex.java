@@ -0,0 +1,327 @@
+package tech.borischistov.blog.ml;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Approximate top-k over a {@link SparseCorpus} with random hyperplane LSH (SimHash). Each of {@code tables} hash
+ * tables signs a document with {@code bits} random hyperplanes, so two documents land in the same bucket with
+ * probability {@code (1 - angle / pi) ^ bits} per table. Hyperplanes are never stored: the component of a hyperplane
+ * for a term is a bit of a hash of the term, table and seed.
+ * <p>
+ * A search collects the documents in the query's bucket of every table, plus {@code probes} neighbouring buckets per
+ * table reached by flipping the signature bits the query was closest to, and ranks the candidates by exact cosine.
+ * More tables or probes raise recall and latency, more bits lower both.
+ * <p>
+ * Buckets are chained through a per-table {@code next} array, so adding a document is one hash table update per
+ * table and the index is a handful of primitive arrays. Documents added to the corpus are indexed by
+ * {@link #refresh()}. Not thread safe while indexing, searches can run concurrently.
+ */
+public class SimHashIndex {
+
+    private static final int MAGIC = 0x534D4858;
+    private static final int VERSION = 2;
+    private static final int TABLES_FIELD = 0;
+    private static final int BITS_FIELD = 1;
+    private static final int SEED_FIELD = 2;
+    private static final int INDEXED_FIELD = 3;
+    private static final int END = -1;
+
+    private final SparseCorpus corpus;
+    private final int tables;
+    private final int bits;
+    private final long seed;
+    private final Buckets[] heads;
+    private int[][] next;
+    private int indexed;
+
+    /**
+     * Indexes the documents already in the corpus.
+     *
+     * @param bits signature bits per table, at most 32
+     */
+    public SimHashIndex(SparseCorpus corpus, int tables, int bits, long seed) {
+        if (bits < 1 || bits > Integer.SIZE) {
+            throw new IllegalArgumentException("Bits must be in [1, 32]: " + bits);
+        }
+        this.corpus = corpus;
+        this.tables = tables;
+        this.bits = bits;
+        this.seed = seed;
+        this.heads = new Buckets[tables];
+        this.next = new int[tables][];
+        for (var table = 0; table < tables; table++) {
+            heads[table] = new Buckets(1024);
+            next[table] = new int[1024];
+        }
+        refresh();
+    }
+
+    private SimHashIndex(SparseCorpus corpus, int tables, int bits, long seed, Buckets[] heads, int[][] next, int indexed) {
+        this.corpus = corpus;
+        this.tables = tables;
+        this.bits = bits;
+        this.seed = seed;
+        this.heads = heads;
+        this.next = next;
+        this.indexed = indexed;
+    }
+
+    /**
+     * Loads an index written by {@link #save(Path)} for the same corpus and indexes the documents added to the corpus
+     * since it was saved.
+     */
+    public static SimHashIndex load(Path path, SparseCorpus corpus) throws IOException {
+        try (var file = MappedFile.open(path, MAGIC, VERSION, 4)) {
+            var tables = file.intField(TABLES_FIELD);
+            var bits = file.intField(BITS_FIELD);
+            var seed = file.field(SEED_FIELD);
+            var indexed = file.intField(INDEXED_FIELD);
+            if (indexed > corpus.size()) {
+                throw new IOException("Index has " + indexed + " documents, corpus only " + corpus.size());
+            }
+            var capacities = file.readInts(tables);
+            var sizes = file.readInts(tables);
+            var heads = new Buckets[tables];
+            var next = new int[tables][];
+            for (var table = 0; table < tables; table++) {
+                heads[table] = Buckets.read(file, capacities[table], sizes[table]);
+                next[table] = file.readInts(indexed);
+            }
+            var index = new SimHashIndex(corpus, tables, bits, seed, heads, next, indexed);
+            index.refresh();
+            return index;
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        var capacities = new int[tables];
+        var sizes = new int[tables];
+        for (var table = 0; table < tables; table++) {
+            capacities[table] = heads[table].keys.length;
+            sizes[table] = heads[table].size;
+        }
+        try (var file = MappedFile.create(path, MAGIC, VERSION, 4)) {
+            file.setField(TABLES_FIELD, tables);
+            file.setField(BITS_FIELD, bits);
+            file.setField(SEED_FIELD, seed);
+            file.setField(INDEXED_FIELD, indexed);
+            file.writeInts(capacities, tables);
+            file.writeInts(sizes, tables);
+            for (var table = 0; table < tables; table++) {
+                heads[table].write(file);
+                file.writeInts(next[table], indexed);
+            }
+        }
+    }
+
+    /**
+     * Adds the text to the corpus and indexes it.
+     *
+     * @return id of the document
+     */
+    public int add(CharSequence text) {
+        var document = corpus.add(text);
+        refresh();
+        return document;
+    }
+
+    /**
+     * Indexes documents added to the corpus since the last refresh.
+     */
+    public void refresh() {
+        var sums = new float[bits];
+        for (; indexed < corpus.size(); indexed++) {
+            var vector = corpus.vector(indexed);
+            for (var table = 0; table < tables; table++) {
+                if (indexed == next[table].length) {
+                    next[table] = Arrays.copyOf(next[table], Math.max(16, indexed * 2));
+                }
+                var signature = signature(vector, table, sums);
+                next[table][indexed] = heads[table].put(signature, indexed);
+            }
+        }
+    }
+
+    public int size() {
+        return indexed;
+    }
+
+    public List<Match> topK(CharSequence query, int k, int probes) {
+        return topK(corpus.vocabulary().query(query), k, probes);
+    }
+
+    /**
+     * @param probes extra buckets searched per table, {@code 0} for the query's own buckets only
+     * @return up to {@code k} of the candidates most similar to the query, by descending similarity
+     */
+    public List<Match> topK(SparseVector query, int k, int probes) {
+        if (k <= 0 || query.size() == 0) {
+            return List.of();
+        }
+        var top = new TopK(k);
+        var candidates = candidates(query, probes);
+        for (var document = candidates.nextSetBit(0); document >= 0; document = candidates.nextSetBit(document + 1)) {
+            var score = (float) corpus.cosine(document, query);
+            if (score > 0 && score > top.threshold()) {
+                top.offer(document, score);
+            }
+        }
+        return top.matches();
+    }
+
+    /**
+     * @return number of documents a search would rank exactly, the cost side of the recall trade-off
+     */
+    public int candidateCount(SparseVector query, int probes) {
+        return candidates(query, probes).cardinality();
+    }
+
+    private BitSet candidates(SparseVector query, int probes) {
+        var candidates = new BitSet(indexed);
+        var sums = new float[bits];
+        var order = new Integer[bits];
+        for (var table = 0; table < tables; table++) {
+            var signature = signature(query, table, sums);
+            collect(table, signature, candidates);
+            if (probes > 0) {
+                // flip the bits whose hyperplane the query is closest to first
+                for (var bit = 0; bit < bits; bit++) {
+                    order[bit] = bit;
+                }
+                Arrays.sort(order, (a, b) -> Float.compare(Math.abs(sums[a]), Math.abs(sums[b])));
+                for (var probe = 0; probe < Math.min(probes, bits); probe++) {
+                    collect(table, signature ^ (1 << order[probe]), candidates);
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private void collect(int table, int signature, BitSet candidates) {
+        var links = next[table];
+        for (var document = heads[table].get(signature); document != END; document = links[document]) {
+            candidates.set(document);
+        }
+    }
+
+    /**
+     * Signs of the vector's projections on the table's hyperplanes, {@code sums} receives the projections.
+     */
+    private int signature(SparseVector vector, int table, float[] sums) {
+        Arrays.fill(sums, 0);
+        var tableSeed = mix(seed + table * 0x9E3779B97F4A7C15L);
+        for (var i = 0; i < vector.size(); i++) {
+            var hash = mix(tableSeed ^ vector.term(i));
+            var weight = vector.weight(i);
+            for (var bit = 0; bit < bits; bit++) {
+                sums[bit] += (hash >>> bit & 1) != 0 ? weight : -weight;
+            }
+        }
+        var signature = 0;
+        for (var bit = 0; bit < bits; bit++) {
+            if (sums[bit] > 0) {
+                signature |= 1 << bit;
+            }
+        }
+        return signature;
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long value) {
+        value = (value ^ value >>> 30) * 0xBF58476D1CE4E5B9L;
+        value = (value ^ value >>> 27) * 0x94D049BB133111EBL;
+        return value ^ value >>> 31;
+    }
+
+    /**
+     * Open addressing map from signature to the last document added to its bucket.
+     */
+    private static final class Buckets {
+        private int[] keys;
+        private int[] values;
+        private int size;
+
+        private Buckets(int capacity) {
+            this(new int[capacity], filled(capacity), 0);
+        }
+
+        private Buckets(int[] keys, int[] values, int size) {
+            this.keys = keys;
+            this.values = values;
+            this.size = size;
+        }
+
+        private static Buckets read(MappedFile file, int capacity, int size) throws IOException {
+            return new Buckets(file.readInts(capacity), file.readInts(capacity), size);
+        }
+
+        private void write(MappedFile file) throws IOException {
+            file.writeInts(keys, keys.length);
+            file.writeInts(values, values.length);
+        }
+
+        private int get(int key) {
+            var mask = keys.length - 1;
+            for (var slot = slot(key, mask); ; slot = slot + 1 & mask) {
+                if (values[slot] == END) {
+                    return END;
+                }
+                if (keys[slot] == key) {
+                    return values[slot];
+                }
+            }
+        }
+
+        /**
+         * @return previous value of the key or {@link #END}
+         */
+        private int put(int key, int value) {
+            if (size * 2 >= keys.length) {
+                grow();
+            }
+            var mask = keys.length - 1;
+            for (var slot = slot(key, mask); ; slot = slot + 1 & mask) {
+                if (values[slot] == END) {
+                    keys[slot] = key;
+                    values[slot] = value;
+                    size++;
+                    return END;
+                }
+                if (keys[slot] == key) {
+                    var previous = values[slot];
+                    values[slot] = value;
+                    return previous;
+                }
+            }
+        }
+
+        private void grow() {
+            var oldKeys = keys;
+            var oldValues = values;
+            keys = new int[oldKeys.length * 2];
+            values = filled(keys.length);
+            size = 0;
+            for (var i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != END) {
+                    put(oldKeys[i], oldValues[i]);
+                }
+            }
+        }
+
+        private static int slot(int key, int mask) {
+            return (int) mix(key) & mask;
+        }
+
+        private static int[] filled(int capacity) {
+            var values = new int[capacity];
+            Arrays.fill(values, END);
+            return values;
+        }
+    }
+}
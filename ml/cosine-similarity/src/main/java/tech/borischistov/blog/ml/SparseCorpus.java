@@ -0,0 +1,196 @@
+package tech.borischistov.blog.ml;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Documents tokenized once and stored as normalized sparse vectors in three flat arrays (CSR layout): term ids and
+ * weights of all documents back to back, plus the offset of every document. Millions of documents cost a few arrays
+ * instead of millions of objects, and a scan walks memory sequentially.
+ * <p>
+ * {@link #topK(CharSequence, int)} scans the corpus in parallel on a fork-join pool, each leaf keeps a bounded
+ * {@link TopK} heap and the heaps are merged on the way up. Documents are added from one thread, searches may run
+ * concurrently once adding is done.
+ */
+public class SparseCorpus {
+
+    /**
+     * Documents scanned by one fork-join leaf.
+     */
+    private static final int LEAF_DOCUMENTS = 8192;
+    private static final int MAGIC = 0x53505243;
+    private static final int VERSION = 2;
+    private static final int TERMS_FIELD = 0;
+    private static final int DOCUMENTS_FIELD = 1;
+
+    private final Vocabulary vocabulary;
+    private final ForkJoinPool pool;
+    private int[] offsets;
+    private int[] terms;
+    private float[] weights;
+    private int documents;
+
+    public SparseCorpus() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public SparseCorpus(ForkJoinPool pool) {
+        this(new Vocabulary(), pool, new int[1024], new int[16384], new float[16384], 0);
+    }
+
+    private SparseCorpus(Vocabulary vocabulary, ForkJoinPool pool, int[] offsets, int[] terms, float[] weights, int documents) {
+        this.vocabulary = vocabulary;
+        this.pool = pool;
+        this.offsets = offsets;
+        this.terms = terms;
+        this.weights = weights;
+        this.documents = documents;
+    }
+
+    /**
+     * Loads a corpus written by {@link #save(Path)}, documents can be added to it as usual.
+     */
+    public static SparseCorpus load(Path path) throws IOException {
+        return load(path, ForkJoinPool.commonPool());
+    }
+
+    public static SparseCorpus load(Path path, ForkJoinPool pool) throws IOException {
+        try (var file = MappedFile.open(path, MAGIC, VERSION, 2)) {
+            var vocabulary = Vocabulary.read(file, file.intField(TERMS_FIELD));
+            var documents = file.intField(DOCUMENTS_FIELD);
+            var offsets = file.readInts(documents + 1);
+            var terms = file.readInts(offsets[documents]);
+            var weights = file.readFloats(offsets[documents]);
+            return new SparseCorpus(vocabulary, pool, offsets, terms, weights, documents);
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        try (var file = MappedFile.create(path, MAGIC, VERSION, 2)) {
+            file.setField(TERMS_FIELD, vocabulary.size());
+            file.setField(DOCUMENTS_FIELD, documents);
+            vocabulary.write(file);
+            file.writeInts(offsets, documents + 1);
+            file.writeInts(terms, offsets[documents]);
+            file.writeFloats(weights, offsets[documents]);
+        }
+    }
+
+    /**
+     * @return id of the document, documents are numbered from {@code 0} in the order they are added
+     */
+    public int add(CharSequence text) {
+        return add(vocabulary.index(text));
+    }
+
+    public void addAll(List<? extends CharSequence> texts) {
+        for (var text : texts) {
+            add(text);
+        }
+    }
+
+    public int size() {
+        return documents;
+    }
+
+    public Vocabulary vocabulary() {
+        return vocabulary;
+    }
+
+    public SparseVector vector(int document) {
+        var from = offsets[document];
+        var to = offsets[document + 1];
+        return new SparseVector(Arrays.copyOfRange(terms, from, to), Arrays.copyOfRange(weights, from, to));
+    }
+
+    public double cosine(int document, SparseVector query) {
+        return SparseVector.dot(
+                terms, weights, offsets[document], offsets[document + 1],
+                query.terms(), query.weights(), 0, query.size()
+        );
+    }
+
+    /**
+     * @return up to {@code k} documents most similar to the text, by descending similarity; documents sharing no term
+     * with the query are not returned
+     */
+    public List<Match> topK(CharSequence query, int k) {
+        return topK(vocabulary.query(query), k);
+    }
+
+    public List<Match> topK(SparseVector query, int k) {
+        if (k <= 0 || query.size() == 0 || documents == 0) {
+            return List.of();
+        }
+        return pool.invoke(new Scan(query, k, 0, documents)).matches();
+    }
+
+    private int add(SparseVector vector) {
+        if (documents + 2 > offsets.length) {
+            offsets = Arrays.copyOf(offsets, offsets.length * 2);
+        }
+        var from = offsets[documents];
+        var to = from + vector.size();
+        if (to > terms.length) {
+            var capacity = Math.max(to, terms.length + (terms.length >> 1));
+            terms = Arrays.copyOf(terms, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        System.arraycopy(vector.terms(), 0, terms, from, vector.size());
+        System.arraycopy(vector.weights(), 0, weights, from, vector.size());
+        offsets[documents + 1] = to;
+        return documents++;
+    }
+
+    private class Scan extends RecursiveTask<TopK> {
+        private final SparseVector query;
+        private final int k;
+        private final int from;
+        private final int to;
+
+        private Scan(SparseVector query, int k, int from, int to) {
+            this.query = query;
+            this.k = k;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected TopK compute() {
+            if (to - from <= LEAF_DOCUMENTS) {
+                return scan();
+            }
+            var middle = (from + to) >>> 1;
+            var left = new Scan(query, k, from, middle);
+            left.fork();
+            var right = new Scan(query, k, middle, to).compute();
+            return left.join().merge(right);
+        }
+
+        private TopK scan() {
+            var top = new TopK(k);
+            var queryTerms = query.terms();
+            var queryWeights = query.weights();
+            var querySize = query.size();
+            var first = queryTerms[0];
+            var last = queryTerms[querySize - 1];
+            for (var document = from; document < to; document++) {
+                var start = offsets[document];
+                var end = offsets[document + 1];
+                // skip documents whose term range doesn't overlap the query's
+                if (start == end || terms[end - 1] < first || terms[start] > last) {
+                    continue;
+                }
+                var score = (float) SparseVector.dot(terms, weights, start, end, queryTerms, queryWeights, 0, querySize);
+                if (score > 0 && score > top.threshold()) {
+                    top.offer(document, score);
+                }
+            }
+            return top;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package tech.borischistov.blog.ml;
+
+import java.util.Arrays;
+
+/**
+ * L2 normalized term frequency vector: ascending term ids and their weights in two primitive arrays. Since both sides
+ * are normalized up front, cosine similarity is just the dot product, a merge of two sorted arrays.
+ */
+public final class SparseVector {
+
+    static final SparseVector EMPTY = new SparseVector(new int[0], new float[0]);
+
+    private final int[] terms;
+    private final float[] weights;
+
+    SparseVector(int[] terms, float[] weights) {
+        this.terms = terms;
+        this.weights = weights;
+    }
+
+    /**
+     * @param tokens         term id of every token, in any order, only the first {@code count} are used
+     * @param extraSquares   sum of squared frequencies of terms left out of the vector but part of its norm
+     */
+    static SparseVector ofTerms(int[] tokens, int count, long extraSquares) {
+        if (count == 0) {
+            return EMPTY;
+        }
+        var sorted = Arrays.copyOf(tokens, count);
+        Arrays.sort(sorted);
+        var terms = new int[count];
+        var frequencies = new int[count];
+        var size = 0;
+        for (var i = 0; i < count; i++) {
+            if (size > 0 && terms[size - 1] == sorted[i]) {
+                frequencies[size - 1]++;
+            } else {
+                terms[size] = sorted[i];
+                frequencies[size++] = 1;
+            }
+        }
+        var squares = extraSquares;
+        for (var i = 0; i < size; i++) {
+            squares += (long) frequencies[i] * frequencies[i];
+        }
+        var norm = Math.sqrt(squares);
+        var weights = new float[size];
+        for (var i = 0; i < size; i++) {
+            weights[i] = (float) (frequencies[i] / norm);
+        }
+        return new SparseVector(Arrays.copyOf(terms, size), weights);
+    }
+
+    public int size() {
+        return terms.length;
+    }
+
+    public int term(int index) {
+        return terms[index];
+    }
+
+    public float weight(int index) {
+        return weights[index];
+    }
+
+    public double cosine(SparseVector other) {
+        return dot(terms, weights, 0, terms.length, other.terms, other.weights, 0, other.terms.length);
+    }
+
+    /**
+     * Dot product of two sorted sparse slices. Products of two floats are exact in a double and are added in double,
+     * the same arithmetic {@link InvertedIndex} scores with.
+     */
+    static double dot(int[] aTerms, float[] aWeights, int aFrom, int aTo, int[] bTerms, float[] bWeights, int bFrom, int bTo) {
+        var sum = 0d;
+        var i = aFrom;
+        var j = bFrom;
+        while (i < aTo && j < bTo) {
+            var a = aTerms[i];
+            var b = bTerms[j];
+            if (a == b) {
+                sum += (double) aWeights[i++] * bWeights[j++];
+            } else if (a < b) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return sum;
+    }
+
+    int[] terms() {
+        return terms;
+    }
+
+    float[] weights() {
+        return weights;
+    }
+}
@@ -36,9 +36,30 @@ public class TextSimilarity {
         System.out.println(cosineDistance(vect1, vect2));
         System.out.println(cosineDistance(vect1, vect3));
         System.out.println();
+
+        // sparse engine - tokenized once, top k over a corpus
+        var corpus = new SparseCorpus();
+        corpus.add(s2);
+        corpus.add(s3);
+        System.out.println("Sparse corpus result: ");
+        System.out.println(1 - corpus.cosine(0, corpus.vocabulary().query(s1)));
+        System.out.println(1 - corpus.cosine(1, corpus.vocabulary().query(s1)));
+        System.out.println(corpus.topK(s1, 1));
+        System.out.println();
+
+        // dense batch - normalized once, all pairs above a threshold
+        var vectors = new DenseVectors(v1.length);
+        vectors.add(v1);
+        vectors.add(v2);
+        vectors.add(v3);
+        System.out.println("Dense vectors result: ");
+        System.out.println(1 - vectors.cosine(0, 1));
+        System.out.println(1 - vectors.cosine(0, 2));
+        vectors.allPairs(0.5f, (first, second, similarity) -> System.out.println(first + " " + second + ": " + similarity));
+        System.out.println();
     }
 
-    private static double cosineDistance(RealVector v1, RealVector v2) {
+    static double cosineDistance(RealVector v1, RealVector v2) {
         var dotProduct = v1.dotProduct(v2);
         var v1Norm = v1.getNorm();
         var v2Norm = v2.getNorm();
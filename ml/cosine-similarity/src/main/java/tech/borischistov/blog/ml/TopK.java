@@ -0,0 +1,99 @@
+package tech.borischistov.blog.ml;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Bounded min-heap of the {@code k} best scores seen so far, in primitive arrays. Offering a score below the current
+ * minimum of a full heap is one comparison, which is the common case once the heap has warmed up.
+ */
+final class TopK {
+
+    private final int[] documents;
+    private final float[] scores;
+    private int size;
+
+    TopK(int k) {
+        this.documents = new int[k];
+        this.scores = new float[k];
+    }
+
+    /**
+     * @return score a document has to beat to get in, {@code -Infinity} until the heap is full
+     */
+    float threshold() {
+        return size < scores.length ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    void offer(int document, float score) {
+        if (size < scores.length) {
+            documents[size] = document;
+            scores[size] = score;
+            up(size++);
+        } else if (score > scores[0]) {
+            documents[0] = document;
+            scores[0] = score;
+            down(0);
+        }
+    }
+
+    TopK merge(TopK other) {
+        for (var i = 0; i < other.size; i++) {
+            offer(other.documents[i], other.scores[i]);
+        }
+        return this;
+    }
+
+    /**
+     * @return matches by descending similarity, ties by ascending document
+     */
+    List<Match> matches() {
+        var matches = new ArrayList<Match>(size);
+        for (var i = 0; i < size; i++) {
+            matches.add(new Match(documents[i], scores[i]));
+        }
+        matches.sort((a, b) -> a.similarity() != b.similarity()
+                ? Double.compare(b.similarity(), a.similarity())
+                : Integer.compare(a.document(), b.document()));
+        return matches;
+    }
+
+    private void up(int index) {
+        while (index > 0) {
+            var parent = (index - 1) >>> 1;
+            if (scores[parent] <= scores[index]) {
+                return;
+            }
+            swap(parent, index);
+            index = parent;
+        }
+    }
+
+    private void down(int index) {
+        while (true) {
+            var smallest = index;
+            var left = 2 * index + 1;
+            var right = left + 1;
+            if (left < size && scores[left] < scores[smallest]) {
+                smallest = left;
+            }
+            if (right < size && scores[right] < scores[smallest]) {
+                smallest = right;
+            }
+            if (smallest == index) {
+                return;
+            }
+            swap(smallest, index);
+            index = smallest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        var document = documents[i];
+        documents[i] = documents[j];
+        documents[j] = document;
+        var score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
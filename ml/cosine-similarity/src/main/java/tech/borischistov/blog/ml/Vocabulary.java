@@ -0,0 +1,113 @@
+package tech.borischistov.blog.ml;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Maps terms to dense int ids and turns text into {@link SparseVector}s. Terms are runs of {@code [A-Za-z0-9_]}, the
+ * same tokens commons-text {@code CosineDistance} counts, so similarities of the two match.
+ * <p>
+ * Not thread safe while terms are added, {@link #query(CharSequence)} only reads and can run concurrently once
+ * indexing is done.
+ */
+public class Vocabulary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    public int size() {
+        return ids.size();
+    }
+
+    /**
+     * Vector of a document, unseen terms get new ids.
+     */
+    public SparseVector index(CharSequence text) {
+        var tokens = new Tokens();
+        tokenize(text, term -> tokens.add(ids.computeIfAbsent(term, key -> ids.size())));
+        return SparseVector.ofTerms(tokens.ids, tokens.count, 0);
+    }
+
+    /**
+     * Vector of a query. Terms the vocabulary doesn't know can't match any document but still count towards the
+     * norm, so the similarity is the same as if they were indexed.
+     */
+    public SparseVector query(CharSequence text) {
+        var tokens = new Tokens();
+        var unknown = new HashMap<String, Integer>();
+        tokenize(text, term -> {
+            var id = ids.get(term);
+            if (id == null) {
+                unknown.merge(term, 1, Integer::sum);
+            } else {
+                tokens.add(id);
+            }
+        });
+        var unknownSquares = 0L;
+        for (var frequency : unknown.values()) {
+            unknownSquares += (long) frequency * frequency;
+        }
+        return SparseVector.ofTerms(tokens.ids, tokens.count, unknownSquares);
+    }
+
+    void write(MappedFile file) throws IOException {
+        var terms = new String[ids.size()];
+        ids.forEach((term, id) -> terms[id] = term);
+        var offsets = new int[terms.length + 1];
+        var bytes = new byte[Math.max(16, terms.length * 8)];
+        for (var id = 0; id < terms.length; id++) {
+            var encoded = terms[id].getBytes(StandardCharsets.UTF_8);
+            if (offsets[id] + encoded.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(offsets[id] + encoded.length, bytes.length * 2));
+            }
+            System.arraycopy(encoded, 0, bytes, offsets[id], encoded.length);
+            offsets[id + 1] = offsets[id] + encoded.length;
+        }
+        file.writeInts(offsets, offsets.length);
+        file.writeBytes(bytes, offsets[terms.length]);
+    }
+
+    static Vocabulary read(MappedFile file, int size) throws IOException {
+        var offsets = file.readInts(size + 1);
+        var bytes = file.readBytes(offsets[size]);
+        var vocabulary = new Vocabulary();
+        for (var id = 0; id < size; id++) {
+            vocabulary.ids.put(new String(bytes, offsets[id], offsets[id + 1] - offsets[id], StandardCharsets.UTF_8), id);
+        }
+        return vocabulary;
+    }
+
+    private static void tokenize(CharSequence text, Consumer<String> terms) {
+        var length = text.length();
+        var start = -1;
+        for (var i = 0; i <= length; i++) {
+            if (i < length && isWordChar(text.charAt(i))) {
+                if (start < 0) {
+                    start = i;
+                }
+            } else if (start >= 0) {
+                terms.accept(text.subSequence(start, i).toString());
+                start = -1;
+            }
+        }
+    }
+
+    private static boolean isWordChar(char c) {
+        return c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '_';
+    }
+
+    private static class Tokens {
+        private int[] ids = new int[16];
+        private int count;
+
+        private void add(int id) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+            }
+            ids[count++] = id;
+        }
+    }
+}
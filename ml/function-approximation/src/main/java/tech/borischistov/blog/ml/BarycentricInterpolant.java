@@ -0,0 +1,129 @@
+package tech.borischistov.blog.ml;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Polynomial interpolant in barycentric Lagrange form:
+ * <pre>
+ * p(x) = sum(w[j] * y[j] / (x - x[j])) / sum(w[j] / (x - x[j]))
+ * </pre>
+ * No linear system is solved and no power of {@code x} is taken, so it stays accurate with hundreds of nodes where
+ * a Vandermonde solve breaks down past about 15. Weights cost {@code O(n^2)} for arbitrary nodes and {@code O(n)}
+ * on Chebyshev nodes, where they are known in closed form; an evaluation is {@code O(n)}.
+ */
+public final class BarycentricInterpolant implements DoubleUnaryOperator {
+
+    private final double[] nodes;
+    private final double[] values;
+    private final double[] weights;
+
+    private BarycentricInterpolant(double[] nodes, double[] values, double[] weights) {
+        this.nodes = nodes;
+        this.values = values;
+        this.weights = weights;
+    }
+
+    /**
+     * Interpolates the function on {@code count} Chebyshev points of {@code [from, to]}.
+     */
+    public static BarycentricInterpolant chebyshev(DoubleUnaryOperator function, double from, double to, int count) {
+        var nodes = Interpolation.chebyshevNodes(from, to, count);
+        var weights = new double[count];
+        for (var j = 0; j < count; j++) {
+            weights[j] = (j & 1) == 0 ? 1 : -1;
+        }
+        weights[0] /= 2;
+        weights[count - 1] /= 2;
+        return new BarycentricInterpolant(nodes, Interpolation.values(function, nodes), weights);
+    }
+
+    /**
+     * Interpolates through arbitrary distinct nodes.
+     */
+    public static BarycentricInterpolant of(double[] nodes, double[] values) {
+        if (nodes.length != values.length || nodes.length == 0) {
+            throw new IllegalArgumentException("Expected as many values as nodes, got " + values.length + " for " + nodes.length);
+        }
+        var min = Arrays.stream(nodes).min().getAsDouble();
+        var max = Arrays.stream(nodes).max().getAsDouble();
+        // every factor is scaled by 4 / (max - min) so that the products neither overflow nor underflow
+        var scale = max > min ? 4 / (max - min) : 1;
+        var weights = new double[nodes.length];
+        for (var j = 0; j < nodes.length; j++) {
+            var product = 1d;
+            for (var k = 0; k < nodes.length; k++) {
+                if (k != j) {
+                    var difference = nodes[j] - nodes[k];
+                    if (difference == 0) {
+                        throw new IllegalArgumentException("Duplicate node: " + nodes[j]);
+                    }
+                    product *= scale * difference;
+                }
+            }
+            weights[j] = 1 / product;
+        }
+        return new BarycentricInterpolant(nodes.clone(), values.clone(), weights);
+    }
+
+    @Override
+    public double applyAsDouble(double x) {
+        var numerator = 0d;
+        var denominator = 0d;
+        for (var j = 0; j < nodes.length; j++) {
+            var difference = x - nodes[j];
+            if (difference == 0) {
+                return values[j];
+            }
+            var term = weights[j] / difference;
+            numerator += term * values[j];
+            denominator += term;
+        }
+        return numerator / denominator;
+    }
+
+    /**
+     * Evaluates all points in parallel chunks.
+     */
+    public double[] evaluate(double[] x) {
+        var out = new double[x.length];
+        evaluate(x, out);
+        return out;
+    }
+
+    public void evaluate(double[] x, double[] out) {
+        Interpolation.evaluate(x, out, this::evaluate);
+    }
+
+    public int size() {
+        return nodes.length;
+    }
+
+    public double[] nodes() {
+        return nodes.clone();
+    }
+
+    /**
+     * Node by node over the whole chunk, so the inner loop has no dependency between points and the JIT can
+     * vectorize it. A point on a node divides by zero, its {@code NaN} is replaced by the node's value afterwards.
+     */
+    private void evaluate(double[] x, double[] out, int from, int to) {
+        var length = to - from;
+        var numerators = new double[length];
+        var denominators = new double[length];
+        for (var j = 0; j < nodes.length; j++) {
+            var node = nodes[j];
+            var weight = weights[j];
+            var weightedValue = weight * values[j];
+            for (var i = 0; i < length; i++) {
+                var inverse = 1 / (x[from + i] - node);
+                numerators[i] += weightedValue * inverse;
+                denominators[i] += weight * inverse;
+            }
+        }
+        for (var i = 0; i < length; i++) {
+            var value = numerators[i] / denominators[i];
+            out[from + i] = Double.isNaN(value) ? applyAsDouble(x[from + i]) : value;
+        }
+    }
+}
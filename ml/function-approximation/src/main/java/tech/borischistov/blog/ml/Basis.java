@@ -0,0 +1,32 @@
+package tech.borischistov.blog.ml;
+
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Functions whose linear combination is fitted to samples, a model is {@code sum(c[k] * phi[k](x))}.
+ */
+public interface Basis {
+
+    int size();
+
+    /**
+     * Writes {@code phi[k](x)} for every function of the basis into {@code out}.
+     */
+    void evaluate(double x, double[] out);
+
+    /**
+     * Chebyshev polynomials {@code T[0] .. T[degree]} of {@code x} mapped onto {@code [-1, 1]}. Unlike powers of
+     * {@code x} they stay between -1 and 1 on the interval and are nearly orthogonal over evenly spread samples, so
+     * the normal equations stay well conditioned at high degree.
+     */
+    static Basis chebyshev(int degree, double from, double to) {
+        return new ChebyshevBasis(degree, from, to);
+    }
+
+    /**
+     * Arbitrary functions, for models that aren't polynomials.
+     */
+    static Basis of(DoubleUnaryOperator... functions) {
+        return new FunctionBasis(functions);
+    }
+}
@@ -0,0 +1,42 @@
+package tech.borischistov.blog.ml;
+
+final class ChebyshevBasis implements Basis {
+
+    private final int size;
+    private final double center;
+    private final double scale;
+
+    ChebyshevBasis(int degree, double from, double to) {
+        if (degree < 0) {
+            throw new IllegalArgumentException("Degree must not be negative: " + degree);
+        }
+        if (!(from < to)) {
+            throw new IllegalArgumentException("Empty interval: [" + from + ", " + to + "]");
+        }
+        this.size = degree + 1;
+        this.center = (from + to) / 2;
+        this.scale = 2 / (to - from);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void evaluate(double x, double[] out) {
+        var t = (x - center) * scale;
+        out[0] = 1;
+        if (size > 1) {
+            out[1] = t;
+        }
+        for (var k = 2; k < size; k++) {
+            out[k] = 2 * t * out[k - 1] - out[k - 2];
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "chebyshev(" + (size - 1) + ")";
+    }
+}
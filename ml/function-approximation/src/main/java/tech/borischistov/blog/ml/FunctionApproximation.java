@@ -5,8 +5,10 @@ import org.apache.commons.math3.linear.ArrayRealVector;
 import org.apache.commons.math3.linear.LUDecomposition;
 import org.apache.commons.math3.linear.MatrixUtils;
 import org.knowm.xchart.BitmapEncoder;
+import org.knowm.xchart.XYChart;
 import org.knowm.xchart.XYChartBuilder;
 import org.knowm.xchart.internal.chartpart.Chart;
+import org.knowm.xchart.style.markers.SeriesMarkers;
 
 import java.io.IOException;
 import java.nio.file.Files;
@@ -14,12 +16,15 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.function.DoubleUnaryOperator;
-import java.util.stream.DoubleStream;
 import java.util.stream.IntStream;
 
 public class FunctionApproximation {
 
     private static final Path EXPORT_PATH = Paths.get("ml/graph-export/function-approximation/");
+    private static final double X_FROM = 1;
+    private static final double X_TO = 15;
+    private static final long SAMPLES = 10_000_000;
+    private static final int PLOT_POINTS = 2_000;
 
     public static void main(String[] args) throws IOException {
         double[][] matrix = new double[][]{
@@ -32,12 +37,9 @@ public class FunctionApproximation {
         double[] vector = new double[]{3.252216865271419, 1.7468459495903677, 2.5054164070002463, 0.6352214195786656};
         simpleMatrixSolveMethod(matrix, vector);
 
-        var xValues = DoubleStream.iterate(1., (v) -> v < 15., (v) -> v + 0.5).toArray();
-        var yValues = Arrays.stream(xValues).map(baseFunction()).toArray();
         var chart = new XYChartBuilder().xAxisTitle("X").yAxisTitle("Y").build();
-        chart.addSeries("original function", xValues, yValues);
-        yValues = Arrays.stream(xValues).map(producedFunction4Values()).toArray();
-        chart.addSeries("4 variables approximation", xValues, yValues);
+        addSeries(chart, "original function", baseFunction());
+        addSeries(chart, "4 variables approximation", producedFunction4Values());
         exportPlot("function-approximation-1.png", chart);
 
 
@@ -49,15 +51,50 @@ public class FunctionApproximation {
         var xValued4V = new double[]{1, 4, 10, 15};
         var coefficients4V = solve(baseFunction(), xValued4V);
 
-        yValues = Arrays.stream(xValues).map(baseFunction()).toArray();
-        chart.addSeries("original function", xValues, yValues);
-        yValues = Arrays.stream(xValues).map(producedFunction(coefficients2V)).toArray();
-        chart.addSeries("2 variables approximation", xValues, yValues);
-        yValues = Arrays.stream(xValues).map(producedFunction(coefficients3V)).toArray();
-        chart.addSeries("3 variables approximation", xValues, yValues);
-        yValues = Arrays.stream(xValues).map(producedFunction(coefficients4V)).toArray();
-        chart.addSeries("4 variables approximation", xValues, yValues);
+        addSeries(chart, "original function", baseFunction());
+        addSeries(chart, "2 variables approximation", producedFunction(coefficients2V));
+        addSeries(chart, "3 variables approximation", producedFunction(coefficients3V));
+        addSeries(chart, "4 variables approximation", producedFunction(coefficients4V));
         exportPlot("function-approximation-2.png", chart);
+
+        chart = new XYChartBuilder().xAxisTitle("X").yAxisTitle("Y").build();
+        addSeries(chart, "original function", baseFunction());
+        addSeries(chart, "6 chebyshev nodes barycentric", BarycentricInterpolant.chebyshev(baseFunction(), X_FROM, X_TO, 6));
+        addSeries(chart, "6 chebyshev nodes newton", NewtonPolynomial.chebyshev(baseFunction(), X_FROM, X_TO, 6));
+        exportPlot("function-approximation-3.png", chart);
+
+        printErrors();
+    }
+
+    /**
+     * Max error on a grid of a million points of the Vandermonde solve against the Chebyshev interpolants as the
+     * number of nodes grows. Past 30 nodes the Vandermonde matrix is singular in double precision and is skipped.
+     */
+    private static void printErrors() {
+        var grid = SeriesPipeline.grid(X_FROM, X_TO, 1_000_000).toArray();
+        var expected = Arrays.stream(grid).map(baseFunction()).toArray();
+        for (var nodes : new int[]{4, 8, 15, 30, 100, 500}) {
+            var equidistant = SeriesPipeline.grid(X_FROM, X_TO, nodes).toArray();
+            DoubleUnaryOperator vandermonde = x -> Double.NaN;
+            if (nodes <= 30) {
+                vandermonde = producedFunction(solve(baseFunction(), equidistant));
+            }
+            var barycentric = BarycentricInterpolant.chebyshev(baseFunction(), X_FROM, X_TO, nodes);
+            var newton = NewtonPolynomial.chebyshev(baseFunction(), X_FROM, X_TO, nodes);
+            System.out.printf("%3d nodes - vandermonde: %.2e, barycentric: %.2e, newton: %.2e%n",
+                    nodes,
+                    maxError(expected, Arrays.stream(grid).map(vandermonde).toArray()),
+                    maxError(expected, barycentric.evaluate(grid)),
+                    maxError(expected, newton.evaluate(grid)));
+        }
+    }
+
+    private static double maxError(double[] expected, double[] actual) {
+        var error = 0d;
+        for (var i = 0; i < expected.length; i++) {
+            error = Math.max(error, Math.abs(expected[i] - actual[i]));
+        }
+        return error;
     }
 
     public static double[] solve(DoubleUnaryOperator function, double[] values) {
@@ -79,19 +116,25 @@ public class FunctionApproximation {
     }
 
     private static DoubleUnaryOperator producedFunction(double[] coefficients) {
+        // Horner's scheme, one multiply and add per coefficient instead of a Math.pow
         return (x) -> {
             var result = 0d;
-            for(var scale = 0; scale < coefficients.length; scale++) {
-                result += Math.pow(x, scale) * coefficients[scale];
+            for(var scale = coefficients.length - 1; scale >= 0; scale--) {
+                result = result * x + coefficients[scale];
             }
             return result;
         };
     }
 
-    private static DoubleUnaryOperator baseFunction() {
+    static DoubleUnaryOperator baseFunction() {
         return (x) ->  Math.sin(x / 5.) * Math.exp(x / 10.) + 5. * Math.exp(-x / 2.);
     }
 
+    private static void addSeries(XYChart chart, String name, DoubleUnaryOperator function) {
+        var series = SeriesPipeline.sample(function, X_FROM, X_TO, SAMPLES, PLOT_POINTS);
+        chart.addSeries(name, series.x(), series.y()).setMarker(SeriesMarkers.NONE);
+    }
+
     private static void exportPlot(String fineName, Chart<?, ?> chart) throws IOException {
         if(Files.notExists(EXPORT_PATH)) Files.createDirectories(EXPORT_PATH);
         try(var out = Files.newOutputStream(EXPORT_PATH.resolve(fineName))) {
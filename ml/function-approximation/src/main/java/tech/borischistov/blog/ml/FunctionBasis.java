@@ -0,0 +1,32 @@
+package tech.borischistov.blog.ml;
+
+import java.util.function.DoubleUnaryOperator;
+
+final class FunctionBasis implements Basis {
+
+    private final DoubleUnaryOperator[] functions;
+
+    FunctionBasis(DoubleUnaryOperator[] functions) {
+        if (functions.length == 0) {
+            throw new IllegalArgumentException("Basis needs at least one function");
+        }
+        this.functions = functions.clone();
+    }
+
+    @Override
+    public int size() {
+        return functions.length;
+    }
+
+    @Override
+    public void evaluate(double x, double[] out) {
+        for (var k = 0; k < functions.length; k++) {
+            out[k] = functions[k].applyAsDouble(x);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "functions(" + functions.length + ")";
+    }
+}
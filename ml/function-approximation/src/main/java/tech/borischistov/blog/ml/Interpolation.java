@@ -0,0 +1,72 @@
+package tech.borischistov.blog.ml;
+
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.IntStream;
+
+/**
+ * Node selection and chunked batch evaluation shared by the interpolants.
+ */
+final class Interpolation {
+
+    /**
+     * Points evaluated together, sized so a chunk's points and accumulators stay in L1 cache.
+     */
+    static final int CHUNK_POINTS = 1024;
+
+    private Interpolation() {
+    }
+
+    /**
+     * Chebyshev points of the second kind, the extrema of the Chebyshev polynomial mapped onto the interval, in
+     * ascending order and including both ends. They cluster toward the ends, which keeps the interpolation error
+     * close to the best polynomial approximation instead of growing at the ends like on an even grid (Runge).
+     */
+    static double[] chebyshevNodes(double from, double to, int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be positive: " + count);
+        }
+        if (!(from < to)) {
+            throw new IllegalArgumentException("Empty interval: [" + from + ", " + to + "]");
+        }
+        var nodes = new double[count];
+        var middle = (from + to) / 2;
+        var half = (to - from) / 2;
+        if (count == 1) {
+            nodes[0] = middle;
+            return nodes;
+        }
+        for (var j = 0; j < count; j++) {
+            nodes[j] = middle - half * Math.cos(Math.PI * j / (count - 1));
+        }
+        nodes[0] = from;
+        nodes[count - 1] = to;
+        return nodes;
+    }
+
+    static double[] values(DoubleUnaryOperator function, double[] nodes) {
+        var values = new double[nodes.length];
+        for (var j = 0; j < nodes.length; j++) {
+            values[j] = function.applyAsDouble(nodes[j]);
+        }
+        return values;
+    }
+
+    /**
+     * Evaluates {@code x} into {@code out} in chunks of {@link #CHUNK_POINTS} on the common fork-join pool.
+     */
+    static void evaluate(double[] x, double[] out, Chunk chunk) {
+        if (out.length < x.length) {
+            throw new IllegalArgumentException("Output has " + out.length + " slots for " + x.length + " points");
+        }
+        var chunks = (x.length + CHUNK_POINTS - 1) / CHUNK_POINTS;
+        IntStream.range(0, chunks).parallel().forEach(c -> {
+            var from = c * CHUNK_POINTS;
+            chunk.evaluate(x, out, from, Math.min(from + CHUNK_POINTS, x.length));
+        });
+    }
+
+    @FunctionalInterface
+    interface Chunk {
+        void evaluate(double[] x, double[] out, int from, int to);
+    }
+}
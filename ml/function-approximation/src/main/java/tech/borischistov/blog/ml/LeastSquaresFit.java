@@ -0,0 +1,91 @@
+package tech.borischistov.blog.ml;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Coefficients of a fitted model with the fit error and the throughput of the pass that accumulated the samples.
+ */
+public final class LeastSquaresFit implements DoubleUnaryOperator {
+
+    private final Basis basis;
+    private final double[] coefficients;
+    private final long samples;
+    private final long skipped;
+    private final long bytes;
+    private final long fitNanos;
+    private double rmsError = Double.NaN;
+    private double maxError = Double.NaN;
+
+    LeastSquaresFit(Basis basis, double[] coefficients, long samples, long skipped, long bytes, long fitNanos) {
+        this.basis = basis;
+        this.coefficients = coefficients;
+        this.samples = samples;
+        this.skipped = skipped;
+        this.bytes = bytes;
+        this.fitNanos = fitNanos;
+    }
+
+    @Override
+    public double applyAsDouble(double x) {
+        var row = new double[coefficients.length];
+        basis.evaluate(x, row);
+        var value = 0d;
+        for (var k = 0; k < coefficients.length; k++) {
+            value += coefficients[k] * row[k];
+        }
+        return value;
+    }
+
+    public double[] coefficients() {
+        return coefficients.clone();
+    }
+
+    public long samples() {
+        return samples;
+    }
+
+    /**
+     * @return CSV lines that didn't hold two numbers, such as a header
+     */
+    public long skipped() {
+        return skipped;
+    }
+
+    /**
+     * @return root mean square of the residuals, {@code NaN} until measured
+     */
+    public double rmsError() {
+        return rmsError;
+    }
+
+    /**
+     * @return largest absolute residual, {@code NaN} until measured
+     */
+    public double maxError() {
+        return maxError;
+    }
+
+    public double samplesPerSecond() {
+        return samples * 1e9 / fitNanos;
+    }
+
+    public double megabytesPerSecond() {
+        return bytes * 1e9 / fitNanos / (1 << 20);
+    }
+
+    void errors(double rmsError, double maxError) {
+        this.rmsError = rmsError;
+        this.maxError = maxError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "basis: %s, samples: %d, skipped: %d, rms error: %.3e, max error: %.3e, fit: %.1f ms, %.3e samples/s, %.1f MB/s, "
+                        + "coefficients: %s",
+                basis, samples, skipped, rmsError, maxError, fitNanos / 1e6, samplesPerSecond(), megabytesPerSecond(),
+                Arrays.toString(coefficients)
+        );
+    }
+}
@@ -0,0 +1,145 @@
+package tech.borischistov.blog.ml;
+
+import java.util.Arrays;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Polynomial interpolant in Newton form, built from divided differences in {@code O(n^2)}:
+ * <pre>
+ * p(x) = c[0] + (t - t[0]) * (c[1] + (t - t[1]) * (c[2] + ...))
+ * </pre>
+ * and evaluated with Horner's nested scheme in {@code O(n)}. {@code t} is {@code x} mapped onto {@code [-2, 2]}, an
+ * interval of logarithmic capacity 1, so the coefficients of a smooth function neither overflow nor underflow with
+ * hundreds of nodes. Chebyshev nodes are taken in Leja order, each node as far as possible from the ones before it,
+ * which keeps the nested products, and so the rounding error of the scheme, bounded.
+ */
+public final class NewtonPolynomial implements DoubleUnaryOperator {
+
+    private final double center;
+    private final double scale;
+    private final double[] nodes;
+    private final double[] coefficients;
+
+    private NewtonPolynomial(double center, double scale, double[] nodes, double[] coefficients) {
+        this.center = center;
+        this.scale = scale;
+        this.nodes = nodes;
+        this.coefficients = coefficients;
+    }
+
+    /**
+     * Interpolates the function on {@code count} Chebyshev points of {@code [from, to]}.
+     */
+    public static NewtonPolynomial chebyshev(DoubleUnaryOperator function, double from, double to, int count) {
+        var nodes = leja(Interpolation.chebyshevNodes(from, to, count));
+        return of(nodes, Interpolation.values(function, nodes));
+    }
+
+    /**
+     * Interpolates through arbitrary distinct nodes, taken in the given order.
+     */
+    public static NewtonPolynomial of(double[] nodes, double[] values) {
+        if (nodes.length != values.length || nodes.length == 0) {
+            throw new IllegalArgumentException("Expected as many values as nodes, got " + values.length + " for " + nodes.length);
+        }
+        var min = Arrays.stream(nodes).min().getAsDouble();
+        var max = Arrays.stream(nodes).max().getAsDouble();
+        var center = (min + max) / 2;
+        var scale = max > min ? 4 / (max - min) : 1;
+        var scaled = new double[nodes.length];
+        for (var j = 0; j < nodes.length; j++) {
+            scaled[j] = (nodes[j] - center) * scale;
+        }
+        var coefficients = values.clone();
+        for (var order = 1; order < nodes.length; order++) {
+            for (var i = nodes.length - 1; i >= order; i--) {
+                var difference = scaled[i] - scaled[i - order];
+                if (difference == 0) {
+                    throw new IllegalArgumentException("Duplicate node: " + nodes[i]);
+                }
+                coefficients[i] = (coefficients[i] - coefficients[i - 1]) / difference;
+            }
+        }
+        return new NewtonPolynomial(center, scale, scaled, coefficients);
+    }
+
+    @Override
+    public double applyAsDouble(double x) {
+        var t = (x - center) * scale;
+        var last = coefficients.length - 1;
+        var result = coefficients[last];
+        for (var k = last - 1; k >= 0; k--) {
+            result = result * (t - nodes[k]) + coefficients[k];
+        }
+        return result;
+    }
+
+    /**
+     * Evaluates all points in parallel chunks.
+     */
+    public double[] evaluate(double[] x) {
+        var out = new double[x.length];
+        evaluate(x, out);
+        return out;
+    }
+
+    public void evaluate(double[] x, double[] out) {
+        Interpolation.evaluate(x, out, this::evaluate);
+    }
+
+    public int size() {
+        return coefficients.length;
+    }
+
+    /**
+     * Horner step by step over the whole chunk, so the inner loop has no dependency between points and the JIT can
+     * vectorize it.
+     */
+    private void evaluate(double[] x, double[] out, int from, int to) {
+        var length = to - from;
+        var t = new double[length];
+        var results = new double[length];
+        var last = coefficients.length - 1;
+        for (var i = 0; i < length; i++) {
+            t[i] = (x[from + i] - center) * scale;
+            results[i] = coefficients[last];
+        }
+        for (var k = last - 1; k >= 0; k--) {
+            var node = nodes[k];
+            var coefficient = coefficients[k];
+            for (var i = 0; i < length; i++) {
+                results[i] = results[i] * (t[i] - node) + coefficient;
+            }
+        }
+        System.arraycopy(results, 0, out, from, length);
+    }
+
+    /**
+     * Greedy Leja ordering of ascending nodes: the lowest node first, then each time the node with the largest product
+     * of distances to those already taken, compared as sums of logarithms.
+     */
+    private static double[] leja(double[] nodes) {
+        var count = nodes.length;
+        var ordered = nodes.clone();
+        var logDistances = new double[count];
+        for (var taken = 1; taken < count; taken++) {
+            var last = ordered[taken - 1];
+            var best = taken;
+            for (var j = taken; j < count; j++) {
+                logDistances[j] += Math.log(Math.abs(ordered[j] - last));
+                if (logDistances[j] > logDistances[best]) {
+                    best = j;
+                }
+            }
+            swap(ordered, taken, best);
+            swap(logDistances, taken, best);
+        }
+        return ordered;
+    }
+
+    private static void swap(double[] array, int i, int j) {
+        var value = array[i];
+        array[i] = array[j];
+        array[j] = value;
+    }
+}
@@ -0,0 +1,75 @@
+package tech.borischistov.blog.ml;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.MatrixUtils;
+import org.apache.commons.math3.linear.SingularValueDecomposition;
+
+/**
+ * Running sums of the normal equations {@code (A^T A) c = A^T y} of a least squares fit, where each sample adds one
+ * row of basis values to {@code A}. Memory is {@code O(n^2)} in the number of coefficients whatever the number of
+ * samples, and accumulators of disjoint samples merge by addition, so every thread keeps its own and they are merged
+ * once at the end.
+ */
+final class NormalEquations {
+
+    private final Basis basis;
+    private final int size;
+    /**
+     * Upper triangle of {@code A^T A}, row-major.
+     */
+    private final double[] gram;
+    private final double[] moments;
+    private final double[] row;
+    private long count;
+
+    NormalEquations(Basis basis) {
+        this.basis = basis;
+        this.size = basis.size();
+        this.gram = new double[size * size];
+        this.moments = new double[size];
+        this.row = new double[size];
+    }
+
+    void add(double x, double y) {
+        basis.evaluate(x, row);
+        for (var i = 0; i < size; i++) {
+            var value = row[i];
+            var offset = i * size;
+            for (var j = i; j < size; j++) {
+                gram[offset + j] += value * row[j];
+            }
+            moments[i] += value * y;
+        }
+        count++;
+    }
+
+    NormalEquations merge(NormalEquations other) {
+        for (var i = 0; i < gram.length; i++) {
+            gram[i] += other.gram[i];
+        }
+        for (var i = 0; i < size; i++) {
+            moments[i] += other.moments[i];
+        }
+        count += other.count;
+        return this;
+    }
+
+    long count() {
+        return count;
+    }
+
+    /**
+     * Solved with an SVD, which returns the minimum norm solution instead of failing when samples don't pin down
+     * every coefficient, e.g. fewer distinct x values than coefficients.
+     */
+    double[] solve() {
+        var matrix = MatrixUtils.createRealMatrix(size, size);
+        for (var i = 0; i < size; i++) {
+            for (var j = i; j < size; j++) {
+                matrix.setEntry(i, j, gram[i * size + j]);
+                matrix.setEntry(j, i, gram[i * size + j]);
+            }
+        }
+        return new SingularValueDecomposition(matrix).getSolver().solve(new ArrayRealVector(moments)).toArray();
+    }
+}
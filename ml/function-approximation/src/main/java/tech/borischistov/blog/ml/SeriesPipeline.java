@@ -0,0 +1,239 @@
+package tech.borischistov.blog.ml;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleUnaryOperator;
+import java.util.stream.DoubleStream;
+import java.util.stream.LongStream;
+
+/**
+ * Samples a function on a dense uniform grid and downsamples it with Largest-Triangle-Three-Buckets for plotting.
+ * x values are computed from the point index, the function is evaluated in parallel chunks and only a bounded window
+ * of chunks is kept in memory, so memory does not depend on the number of samples.
+ */
+public final class SeriesPipeline {
+
+    private static final int CHUNK_POINTS = 1 << 16;
+    private static final int MAX_STORED = CHUNK_POINTS * 2;
+    private static final int WINDOW = ForkJoinPool.getCommonPoolParallelism() * 2;
+
+    private SeriesPipeline() {
+    }
+
+    /**
+     * Lazy grid of {@code count} evenly spaced values from {@code from} to {@code to} inclusive.
+     */
+    public static DoubleStream grid(double from, double to, long count) {
+        var step = step(from, to, count);
+        return LongStream.range(0, count).mapToDouble(i -> from + i * step);
+    }
+
+    /**
+     * Evaluates the function on the grid and keeps at most {@code threshold} points of it.
+     *
+     * @param threshold at least {@code 3}: first, last and one selected point
+     */
+    public static Series sample(DoubleUnaryOperator function, double from, double to, long count, int threshold) {
+        if (count < 1) {
+            throw new IllegalArgumentException("Count must be positive: " + count);
+        }
+        if (threshold < 3) {
+            throw new IllegalArgumentException("Threshold must be at least 3: " + threshold);
+        }
+        if (threshold >= count) {
+            if (count > Integer.MAX_VALUE - 8) {
+                throw new IllegalArgumentException("Too many points without downsampling: " + count);
+            }
+            var x = grid(from, to, count).toArray();
+            return new Series(x, DoubleStream.of(x).parallel().map(function).toArray());
+        }
+        return new Downsampler(function, from, step(from, to, count), count, threshold).run();
+    }
+
+    private static double step(double from, double to, long count) {
+        return count > 1 ? (to - from) / (count - 1) : 0;
+    }
+
+    public static final class Series {
+        private final double[] x;
+        private final double[] y;
+
+        Series(double[] x, double[] y) {
+            this.x = x;
+            this.y = y;
+        }
+
+        public double[] x() {
+            return x;
+        }
+
+        public double[] y() {
+            return y;
+        }
+
+        public int size() {
+            return x.length;
+        }
+    }
+
+    /**
+     * Points {@code 1 .. count - 2} are split into {@code threshold - 2} buckets, one point is selected per bucket,
+     * first and last points are always kept. Buckets are evaluated in chunks of whole buckets, selection walks the
+     * chunks in order because each bucket depends on the point selected in the previous one.
+     * <p>
+     * A chunk keeps the values of at most {@value #MAX_STORED} points. A bucket larger than that is evaluated twice:
+     * once for its average and once more, streaming, when its point is selected.
+     */
+    private static final class Downsampler {
+        private final DoubleUnaryOperator function;
+        private final double from;
+        private final double step;
+        private final long count;
+        private final int buckets;
+        private final double every;
+        private final int bucketsPerChunk;
+
+        private final double[] x;
+        private final double[] y;
+        private int size;
+
+        private Downsampler(DoubleUnaryOperator function, double from, double step, long count, int threshold) {
+            this.function = function;
+            this.from = from;
+            this.step = step;
+            this.count = count;
+            this.buckets = threshold - 2;
+            this.every = (count - 2) / (double) buckets;
+            this.bucketsPerChunk = (int) Math.max(1, CHUNK_POINTS / Math.ceil(every));
+            this.x = new double[threshold];
+            this.y = new double[threshold];
+        }
+
+        private Series run() {
+            var chunks = (buckets + bucketsPerChunk - 1) / bucketsPerChunk;
+            var pending = new ArrayDeque<CompletableFuture<Chunk>>(WINDOW);
+            var submitted = 0;
+            for (; submitted < Math.min(WINDOW, chunks); submitted++) {
+                pending.add(submit(submitted));
+            }
+
+            add(from, function.applyAsDouble(from));
+            var lastX = x(count - 1);
+            var lastY = function.applyAsDouble(lastX);
+            for (var c = 0; c < chunks; c++) {
+                var chunk = pending.poll().join();
+                if (submitted < chunks) {
+                    pending.add(submit(submitted++));
+                }
+                var next = pending.peek();
+                for (var b = 0; b < chunk.buckets; b++) {
+                    double cx;
+                    double cy;
+                    if (b + 1 < chunk.buckets) {
+                        cx = chunk.averageX[b + 1];
+                        cy = chunk.averageY[b + 1];
+                    } else if (next != null) {
+                        var following = next.join();
+                        cx = following.averageX[0];
+                        cy = following.averageY[0];
+                    } else {
+                        cx = lastX;
+                        cy = lastY;
+                    }
+                    select(chunk, b, cx, cy);
+                }
+            }
+            add(lastX, lastY);
+            return new Series(x, y);
+        }
+
+        private void select(Chunk chunk, int bucket, double cx, double cy) {
+            var ax = x[size - 1];
+            var ay = y[size - 1];
+            var start = chunk.bucketStart[bucket];
+            var end = chunk.bucketStart[bucket + 1];
+            var bestX = 0d;
+            var bestY = 0d;
+            var bestArea = -1d;
+            for (var i = start; i < end; i++) {
+                var px = x(chunk.firstPoint + i);
+                var py = chunk.y != null ? chunk.y[(int) i] : function.applyAsDouble(px);
+                var area = Math.abs((ax - cx) * (py - ay) - (ax - px) * (cy - ay));
+                if (area > bestArea) {
+                    bestArea = area;
+                    bestX = px;
+                    bestY = py;
+                }
+            }
+            add(bestX, bestY);
+        }
+
+        private CompletableFuture<Chunk> submit(int chunk) {
+            return CompletableFuture.supplyAsync(() -> evaluate(chunk));
+        }
+
+        private Chunk evaluate(int index) {
+            var firstBucket = index * bucketsPerChunk;
+            var bucketCount = Math.min(bucketsPerChunk, buckets - firstBucket);
+            var firstPoint = bucketStart(firstBucket);
+            var points = bucketStart(firstBucket + bucketCount) - firstPoint;
+            var chunk = new Chunk(firstPoint, bucketCount, points <= MAX_STORED ? new double[(int) points] : null);
+            for (var b = 0; b < bucketCount; b++) {
+                var start = bucketStart(firstBucket + b) - firstPoint;
+                var end = bucketStart(firstBucket + b + 1) - firstPoint;
+                var sumX = 0d;
+                var sumY = 0d;
+                for (var i = start; i < end; i++) {
+                    var px = x(firstPoint + i);
+                    var py = function.applyAsDouble(px);
+                    if (chunk.y != null) {
+                        chunk.y[(int) i] = py;
+                    }
+                    sumX += px;
+                    sumY += py;
+                }
+                chunk.bucketStart[b] = start;
+                chunk.averageX[b] = sumX / (end - start);
+                chunk.averageY[b] = sumY / (end - start);
+            }
+            chunk.bucketStart[bucketCount] = points;
+            return chunk;
+        }
+
+        private long bucketStart(int bucket) {
+            return bucket >= buckets ? count - 1 : (long) Math.floor(bucket * every) + 1;
+        }
+
+        private double x(long index) {
+            return from + index * step;
+        }
+
+        private void add(double px, double py) {
+            x[size] = px;
+            y[size] = py;
+            size++;
+        }
+    }
+
+    private static final class Chunk {
+        private final long firstPoint;
+        private final int buckets;
+        /**
+         * Values of the chunk's points or {@code null} when there are too many to keep.
+         */
+        private final double[] y;
+        private final long[] bucketStart;
+        private final double[] averageX;
+        private final double[] averageY;
+
+        private Chunk(long firstPoint, int buckets, double[] y) {
+            this.firstPoint = firstPoint;
+            this.buckets = buckets;
+            this.y = y;
+            this.bucketStart = new long[buckets + 1];
+            this.averageX = new double[buckets];
+            this.averageY = new double[buckets];
+        }
+    }
+}
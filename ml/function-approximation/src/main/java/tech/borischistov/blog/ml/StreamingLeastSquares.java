@@ -0,0 +1,394 @@
+package tech.borischistov.blog.ml;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * Least squares fit of a {@link Basis} model to samples streamed from a file too large for the heap. The file is
+ * split into byte ranges, each range is memory mapped and read by one thread of the common fork-join pool into its
+ * own {@link NormalEquations}, the accumulators are merged and solved once. A second pass over the file measures
+ * the fit error. Memory depends on the number of coefficients and partitions only, never on the number of samples.
+ * <p>
+ * Two formats are read: {@link Format#BINARY}, pairs of little endian doubles {@code x, y} back to back, and
+ * {@link Format#CSV}, one {@code x,y} pair per line; lines that aren't two numbers, like a header, are skipped.
+ * Samples with a NaN or infinite value, e.g. {@code Infinity} or {@code 1e400}, are skipped in both formats, a single
+ * one would turn the whole fit into NaN.
+ * <pre>
+ * java -cp function-approximation.jar tech.borischistov.blog.ml.StreamingLeastSquares --generate=100000000 --file=samples.bin
+ * java -cp function-approximation.jar tech.borischistov.blog.ml.StreamingLeastSquares --file=samples.bin --degree=12
+ * java -cp function-approximation.jar tech.borischistov.blog.ml.StreamingLeastSquares --file=samples.csv --format=csv
+ * </pre>
+ */
+public class StreamingLeastSquares {
+
+    /**
+     * Largest byte range read by one task, well under the 2 GB limit of a single mapping.
+     */
+    private static final long PARTITION_BYTES = 1 << 28;
+    private static final int RECORD_BYTES = 2 * Double.BYTES;
+    /**
+     * Bytes mapped past the end of a CSV range to finish its last line.
+     */
+    private static final int MAX_LINE = 1 << 16;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    public enum Format {
+        BINARY, CSV
+    }
+
+    private final Basis basis;
+
+    public StreamingLeastSquares(Basis basis) {
+        this.basis = basis;
+    }
+
+    public static void main(String[] args) throws IOException {
+        var options = Options.parse(args, 0);
+        var file = Paths.get(options.get("file", "samples.bin"));
+        var format = Format.valueOf(options.get("format", "binary").toUpperCase());
+        var from = options.getDouble("from", 1);
+        var to = options.getDouble("to", 15);
+        if (options.has("generate")) {
+            var started = System.nanoTime();
+            var samples = options.getLong("generate", 0);
+            generate(file, format, samples, from, to, options.getDouble("noise", 0.01));
+            System.out.printf("Generated %d samples in %s in %.1f s%n", samples, file, (System.nanoTime() - started) / 1e9);
+            return;
+        }
+        var degree = options.getInt("degree", 10);
+        var fit = new StreamingLeastSquares(Basis.chebyshev(degree, from, to)).fit(file, format);
+        System.out.println(fit);
+    }
+
+    /**
+     * Fits the model to the samples of the file, then measures the fit error in a second pass. Throughput is that of
+     * the first pass.
+     */
+    public LeastSquaresFit fit(Path path, Format format) throws IOException {
+        var started = System.nanoTime();
+        var fitting = scan(path, format, () -> new Fitting(basis), Fitting::merge);
+        var coefficients = fitting.equations.solve();
+        var fit = new LeastSquaresFit(
+                basis, coefficients, fitting.equations.count(), fitting.skipped, Files.size(path), System.nanoTime() - started
+        );
+        var residuals = scan(path, format, () -> new Residuals(basis, coefficients), Residuals::merge);
+        fit.errors(
+                residuals.count > 0 ? Math.sqrt(residuals.sumSquares / residuals.count) : Double.NaN,
+                residuals.count > 0 ? residuals.max : Double.NaN
+        );
+        return fit;
+    }
+
+    /**
+     * Reads every partition of the file into its own sink on the common pool and merges the sinks.
+     */
+    private static <T extends Sink> T scan(Path path, Format format, Supplier<T> sinks, BinaryOperator<T> merge)
+            throws IOException {
+        try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            var size = channel.size();
+            if (format == Format.BINARY && size % RECORD_BYTES != 0) {
+                throw new IOException("Binary sample file size is not a multiple of " + RECORD_BYTES + ": " + size);
+            }
+            var bounds = bounds(size, format == Format.BINARY ? RECORD_BYTES : 1);
+            try {
+                return IntStream.range(0, bounds.length - 1).parallel().mapToObj(partition -> {
+                    var sink = sinks.get();
+                    try {
+                        if (format == Format.BINARY) {
+                            readBinary(channel, bounds[partition], bounds[partition + 1], sink);
+                        } else {
+                            readCsv(channel, size, bounds[partition], bounds[partition + 1], sink);
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    return sink;
+                }).reduce(merge).orElseGet(sinks);
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        }
+    }
+
+    /**
+     * Splits the file into at least four ranges per thread, so a slow range doesn't leave the others idle, and into
+     * ranges of at most {@link #PARTITION_BYTES}.
+     */
+    private static long[] bounds(long size, int alignment) {
+        var records = size / alignment;
+        var partitions = Math.max(ForkJoinPool.getCommonPoolParallelism() * 4L, (size + PARTITION_BYTES - 1) / PARTITION_BYTES);
+        partitions = Math.max(1, Math.min(partitions, records));
+        var bounds = new long[(int) partitions + 1];
+        for (var i = 0; i <= partitions; i++) {
+            bounds[i] = records * i / partitions * alignment;
+        }
+        return bounds;
+    }
+
+    private static void readBinary(FileChannel channel, long from, long to, Sink sink) throws IOException {
+        var buffer = channel
+                .map(FileChannel.MapMode.READ_ONLY, from, to - from)
+                .order(ByteOrder.LITTLE_ENDIAN)
+                .asDoubleBuffer();
+        for (var i = 0; i + 1 < buffer.limit(); i += 2) {
+            var x = buffer.get(i);
+            var y = buffer.get(i + 1);
+            if (Double.isFinite(x) && Double.isFinite(y)) {
+                sink.add(x, y);
+            } else {
+                sink.skipped++;
+            }
+        }
+    }
+
+    /**
+     * Reads the lines that start in {@code [from, to)}. The byte before the range is mapped too, to tell whether the
+     * range starts at a line or in the middle of one that belongs to the previous range.
+     */
+    private static void readCsv(FileChannel channel, long size, long from, long to, Sink sink) throws IOException {
+        var mapFrom = Math.max(0, from - 1);
+        var mapTo = Math.min(size, to + MAX_LINE);
+        var buffer = channel.map(FileChannel.MapMode.READ_ONLY, mapFrom, mapTo - mapFrom);
+        var limit = buffer.limit();
+        var end = (int) (to - mapFrom);
+        var position = (int) (from - mapFrom);
+        if (position > 0 && buffer.get(position - 1) != '\n') {
+            while (position < limit && buffer.get(position) != '\n') {
+                position++;
+            }
+            position++;
+        }
+        while (position < end) {
+            var lineEnd = position;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            if (lineEnd == limit && mapTo < size) {
+                throw new IOException("Line longer than " + MAX_LINE + " bytes at offset " + (mapFrom + position));
+            }
+            var textEnd = lineEnd > position && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            line(buffer, position, textEnd, sink);
+            position = lineEnd + 1;
+        }
+    }
+
+    private static void line(ByteBuffer buffer, int from, int to, Sink sink) {
+        var separator = from;
+        while (separator < to && !isSeparator(buffer.get(separator))) {
+            separator++;
+        }
+        if (separator == to) {
+            sink.skipped++;
+            return;
+        }
+        var x = parse(buffer, from, separator);
+        var y = parse(buffer, separator + 1, to);
+        if (!Double.isFinite(x) || !Double.isFinite(y)) {
+            sink.skipped++;
+            return;
+        }
+        sink.add(x, y);
+    }
+
+    private static boolean isSeparator(byte value) {
+        return value == ',' || value == ';' || value == '\t';
+    }
+
+    /**
+     * Parses a decimal without creating a string. A mantissa below 2^53 and a power of ten up to 22 are both exact in
+     * a double, so one multiplication or division of the two rounds once and gives the correctly rounded value;
+     * longer mantissas and anything else go through {@link Double#parseDouble(String)}.
+     *
+     * @return the number or {@code NaN} if the bytes aren't one
+     */
+    static double parse(ByteBuffer buffer, int from, int to) {
+        while (from < to && buffer.get(from) == ' ') {
+            from++;
+        }
+        while (to > from && buffer.get(to - 1) == ' ') {
+            to--;
+        }
+        var position = from;
+        var negative = position < to && buffer.get(position) == '-';
+        if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+            position++;
+        }
+        var mantissa = 0L;
+        var digits = 0;
+        var any = false;
+        var exponent = 0;
+        var dot = false;
+        for (; position < to; position++) {
+            var value = buffer.get(position);
+            if (value >= '0' && value <= '9') {
+                any = true;
+                if (mantissa > 0 || value != '0') {
+                    digits++;
+                }
+                mantissa = mantissa * 10 + (value - '0');
+                if (dot) {
+                    exponent--;
+                }
+            } else if (value == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+        if (position < to && (buffer.get(position) == 'e' || buffer.get(position) == 'E')) {
+            position++;
+            var negativeExponent = position < to && buffer.get(position) == '-';
+            if (position < to && (buffer.get(position) == '-' || buffer.get(position) == '+')) {
+                position++;
+            }
+            var power = 0;
+            var start = position;
+            for (; position < to && buffer.get(position) >= '0' && buffer.get(position) <= '9' && power < 10_000; position++) {
+                power = power * 10 + (buffer.get(position) - '0');
+            }
+            if (position == start) {
+                return slowParse(buffer, from, to);
+            }
+            exponent += negativeExponent ? -power : power;
+        }
+        if (!any || position != to || digits > 18 || mantissa >= 1L << 53 || Math.abs(exponent) >= POWERS_OF_TEN.length) {
+            return slowParse(buffer, from, to);
+        }
+        var value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private static double slowParse(ByteBuffer buffer, int from, int to) {
+        var bytes = new byte[to - from];
+        for (var i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(from + i);
+        }
+        try {
+            return Double.parseDouble(new String(bytes, StandardCharsets.US_ASCII));
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+
+    /**
+     * Writes {@code samples} points of {@link FunctionApproximation#baseFunction()} at random x with gaussian noise.
+     */
+    private static void generate(Path path, Format format, long samples, double from, double to, double noise)
+            throws IOException {
+        var function = FunctionApproximation.baseFunction();
+        var random = new Random(42);
+        if (format == Format.BINARY) {
+            try (var channel = FileChannel.open(
+                    path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+                var buffer = ByteBuffer.allocateDirect(RECORD_BYTES * 65536).order(ByteOrder.LITTLE_ENDIAN);
+                for (var i = 0L; i < samples; i++) {
+                    var x = from + (to - from) * random.nextDouble();
+                    buffer.putDouble(x).putDouble(function.applyAsDouble(x) + noise * random.nextGaussian());
+                    if (!buffer.hasRemaining()) {
+                        write(channel, buffer);
+                    }
+                }
+                write(channel, buffer);
+            }
+            return;
+        }
+        try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+            writer.write("x,y\n");
+            for (var i = 0L; i < samples; i++) {
+                var x = from + (to - from) * random.nextDouble();
+                writer.write(Double.toString(x));
+                writer.write(',');
+                writer.write(Double.toString(function.applyAsDouble(x) + noise * random.nextGaussian()));
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Samples of one partition, only touched by the thread reading it.
+     */
+    private abstract static class Sink {
+        long skipped;
+
+        abstract void add(double x, double y);
+    }
+
+    private static final class Fitting extends Sink {
+        private final NormalEquations equations;
+
+        private Fitting(Basis basis) {
+            this.equations = new NormalEquations(basis);
+        }
+
+        @Override
+        void add(double x, double y) {
+            equations.add(x, y);
+        }
+
+        private Fitting merge(Fitting other) {
+            equations.merge(other.equations);
+            skipped += other.skipped;
+            return this;
+        }
+    }
+
+    private static final class Residuals extends Sink {
+        private final Basis basis;
+        private final double[] coefficients;
+        private final double[] row;
+        private long count;
+        private double sumSquares;
+        private double max;
+
+        private Residuals(Basis basis, double[] coefficients) {
+            this.basis = basis;
+            this.coefficients = coefficients;
+            this.row = new double[coefficients.length];
+        }
+
+        @Override
+        void add(double x, double y) {
+            basis.evaluate(x, row);
+            var residual = y;
+            for (var k = 0; k < coefficients.length; k++) {
+                residual -= coefficients[k] * row[k];
+            }
+            sumSquares += residual * residual;
+            max = Math.max(max, Math.abs(residual));
+            count++;
+        }
+
+        private Residuals merge(Residuals other) {
+            count += other.count;
+            sumSquares += other.sumSquares;
+            max = Math.max(max, other.max);
+            skipped += other.skipped;
+            return this;
+        }
+    }
+}
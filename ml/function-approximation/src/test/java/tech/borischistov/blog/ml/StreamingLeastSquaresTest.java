@@ -0,0 +1,115 @@
+package tech.borischistov.blog.ml;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StreamingLeastSquaresTest {
+
+    @Test
+    void parsesMantissasAroundTwoToTheFiftyThird() {
+        assertParsed("9007199254740991");
+        assertParsed("9007199254740992");
+        assertParsed("9007199254740993");
+        assertParsed("9007199254740995");
+        assertParsed("9007199254740993e-5");
+        assertParsed("900719925474099.3");
+    }
+
+    @Test
+    void parsesEighteenDigitMantissas() {
+        assertParsed("123456789012345678");
+        assertParsed("999999999999999999");
+        assertParsed("0.12345678901234567");
+        assertParsed("1234567890123456789");
+        assertParsed("0.123456789012345678901");
+    }
+
+    @Test
+    void parsesExponents() {
+        assertParsed("1e22");
+        assertParsed("1e23");
+        assertParsed("1e-22");
+        assertParsed("1e-23");
+        assertParsed("2E10");
+        assertParsed("2e-300");
+        assertParsed("4.9e-324");
+        assertParsed("1.7976931348623157e308");
+        assertParsed("1e400");
+        assertParsed("1e-400");
+    }
+
+    @Test
+    void parsesSigns() {
+        assertParsed("-1.5e-3");
+        assertParsed("+2.5");
+        assertParsed("-0");
+        assertParsed("-0.0");
+        assertParsed("5e+3");
+        assertParsed("-9007199254740993");
+    }
+
+    @Test
+    void parsesNonFiniteValues() {
+        assertParsed("Infinity");
+        assertParsed("-Infinity");
+        assertParsed("NaN");
+        assertEquals(Double.POSITIVE_INFINITY, parse("1e400"));
+    }
+
+    @Test
+    void returnsNaNForNonNumbers() {
+        assertTrue(Double.isNaN(parse("x")));
+        assertTrue(Double.isNaN(parse("-")));
+        assertTrue(Double.isNaN(parse("")));
+        assertTrue(Double.isNaN(parse("1.2.3")));
+    }
+
+    @Test
+    void ignoresSurroundingBytes() {
+        var buffer = ByteBuffer.wrap("x, 12.5,y".getBytes(StandardCharsets.US_ASCII));
+        assertEquals(12.5, StreamingLeastSquares.parse(buffer, 2, 7));
+    }
+
+    @Test
+    void matchesParseDoubleOnRandomInputs() {
+        var random = new Random(42);
+        for (var i = 0; i < 2_000_000; i++) {
+            var mantissa = random.nextLong() >>> 1 + random.nextInt(63);
+            var digits = Long.toString(mantissa);
+            var point = random.nextInt(digits.length() + 1);
+            var text = new StringBuilder();
+            switch (random.nextInt(3)) {
+                case 1:
+                    text.append('-');
+                    break;
+                case 2:
+                    text.append('+');
+                    break;
+                default:
+            }
+            text.append(digits, 0, point);
+            if (point < digits.length()) {
+                text.append('.').append(digits, point, digits.length());
+            }
+            if (random.nextBoolean()) {
+                text.append('e').append(random.nextInt(60) - 30);
+            }
+            assertParsed(text.toString());
+        }
+    }
+
+    private static void assertParsed(String text) {
+        assertEquals(Double.parseDouble(text), parse(text), text);
+    }
+
+    private static double parse(String text) {
+        var buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        return StreamingLeastSquares.parse(buffer, 0, buffer.limit());
+    }
+}
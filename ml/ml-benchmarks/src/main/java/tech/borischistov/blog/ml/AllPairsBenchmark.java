@@ -0,0 +1,105 @@
+package tech.borischistov.blog.ml;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Near-duplicate pairs in a set of embeddings: {@link TextSimilarity#cosineDistance} on commons-math vectors for
+ * every pair, {@link DenseVectors#cosine(int, int)} for every pair, and the tiled {@link DenseVectors#allPairs}.
+ * Embeddings are random with one in ten a slightly perturbed copy of another. The commons-math loop takes minutes on
+ * 20000 vectors, run it with {@code -p vectors=2000}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 10)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@State(Scope.Benchmark)
+public class AllPairsBenchmark {
+
+    private static final float THRESHOLD = 0.9f;
+
+    @Param({"2000", "20000"})
+    public int vectors;
+
+    @Param({"128", "384"})
+    public int dimension;
+
+    private RealVector[] realVectors;
+    private DenseVectors dense;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var random = new SplittableRandom(42);
+        var embeddings = new double[vectors][];
+        for (var i = 0; i < vectors; i++) {
+            var embedding = new double[dimension];
+            if (i > 0 && random.nextInt(10) == 0) {
+                var original = embeddings[random.nextInt(i)];
+                for (var k = 0; k < dimension; k++) {
+                    embedding[k] = original[k] + random.nextDouble(-0.05, 0.05);
+                }
+            } else {
+                for (var k = 0; k < dimension; k++) {
+                    embedding[k] = random.nextDouble(-1, 1);
+                }
+            }
+            embeddings[i] = embedding;
+        }
+        realVectors = new RealVector[vectors];
+        dense = new DenseVectors(dimension);
+        for (var i = 0; i < vectors; i++) {
+            realVectors[i] = new ArrayRealVector(embeddings[i]);
+            dense.add(embeddings[i]);
+        }
+    }
+
+    @Benchmark
+    public long commonsMath() {
+        var pairs = 0L;
+        for (var i = 0; i < vectors; i++) {
+            for (var j = i + 1; j < vectors; j++) {
+                if (1 - TextSimilarity.cosineDistance(realVectors[i], realVectors[j]) >= THRESHOLD) {
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    @Benchmark
+    public long perPair() {
+        var pairs = 0L;
+        for (var i = 0; i < vectors; i++) {
+            for (var j = i + 1; j < vectors; j++) {
+                if (dense.cosine(i, j) >= THRESHOLD) {
+                    pairs++;
+                }
+            }
+        }
+        return pairs;
+    }
+
+    @Benchmark
+    public long tiled() {
+        var pairs = new AtomicLong();
+        dense.allPairs(THRESHOLD, (first, second, similarity) -> pairs.incrementAndGet());
+        return pairs.get();
+    }
+}
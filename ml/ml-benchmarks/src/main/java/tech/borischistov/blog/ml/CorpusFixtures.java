@@ -0,0 +1,60 @@
+package tech.borischistov.blog.ml;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic text corpora. Word frequencies follow a Zipf distribution over a fixed vocabulary, like natural language,
+ * so a few terms appear in most documents and most terms in few.
+ */
+final class CorpusFixtures {
+
+    static final int VOCABULARY = 50_000;
+
+    private CorpusFixtures() {
+    }
+
+    static List<String> documents(int count, int words, long seed) {
+        var random = new SplittableRandom(seed);
+        var cumulative = zipf(VOCABULARY, 1.1);
+        var documents = new ArrayList<String>(count);
+        var builder = new StringBuilder();
+        for (var i = 0; i < count; i++) {
+            builder.setLength(0);
+            var length = words / 2 + random.nextInt(words);
+            for (var j = 0; j < length; j++) {
+                builder.append('w').append(sample(cumulative, random.nextDouble())).append(' ');
+            }
+            documents.add(builder.toString());
+        }
+        return documents;
+    }
+
+    private static double[] zipf(int terms, double exponent) {
+        var cumulative = new double[terms];
+        var sum = 0d;
+        for (var i = 0; i < terms; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        for (var i = 0; i < terms; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    private static int sample(double[] cumulative, double value) {
+        var low = 0;
+        var high = cumulative.length - 1;
+        while (low < high) {
+            var middle = (low + high) >>> 1;
+            if (cumulative[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
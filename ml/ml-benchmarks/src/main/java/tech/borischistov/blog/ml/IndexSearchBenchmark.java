@@ -0,0 +1,88 @@
+package tech.borischistov.blog.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a top 10 search: full {@link SparseCorpus} scan, exact {@link InvertedIndex} and approximate
+ * {@link SimHashIndex}. Queries rotate through a fixed set so that no single query's posting lists stay in cache.
+ * The recall side of the LSH trade-off is printed by {@link RecallReport}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@State(Scope.Benchmark)
+public class IndexSearchBenchmark {
+
+    private static final int K = 10;
+    private static final int QUERIES = 256;
+
+    @Param({"100000", "1000000"})
+    public int documents;
+
+    @Param({"50"})
+    public int words;
+
+    @Param({"8"})
+    public int tables;
+
+    @Param({"12", "16"})
+    public int bits;
+
+    @Param({"0", "4"})
+    public int probes;
+
+    private SparseCorpus corpus;
+    private InvertedIndex inverted;
+    private SimHashIndex simHash;
+    private SparseVector[] queries;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        corpus = new SparseCorpus();
+        corpus.addAll(CorpusFixtures.documents(documents, words, 42));
+        inverted = new InvertedIndex(corpus);
+        simHash = new SimHashIndex(corpus, tables, bits, 42);
+        queries = new SparseVector[QUERIES];
+        var texts = CorpusFixtures.documents(QUERIES, words, 7);
+        for (var i = 0; i < QUERIES; i++) {
+            queries[i] = corpus.vocabulary().query(texts.get(i));
+        }
+    }
+
+    @Benchmark
+    public List<Match> scan() {
+        return corpus.topK(query(), K);
+    }
+
+    @Benchmark
+    public List<Match> invertedIndex() {
+        return inverted.topK(query(), K);
+    }
+
+    @Benchmark
+    public List<Match> simHash() {
+        return simHash.topK(query(), K, probes);
+    }
+
+    private SparseVector query() {
+        next = next + 1 & QUERIES - 1;
+        return queries[next];
+    }
+}
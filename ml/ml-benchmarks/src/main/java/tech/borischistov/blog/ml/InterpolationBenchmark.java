@@ -0,0 +1,99 @@
+package tech.borischistov.blog.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * Building an interpolant through {@code nodes} points and evaluating it on a million points:
+ * {@link BarycentricInterpolant} against {@link NewtonPolynomial}, point by point and with the chunked batch
+ * evaluators. The Vandermonde solve they replace is in {@link VandermondeBenchmark}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InterpolationBenchmark {
+
+    static final double FROM = 1;
+    static final double TO = 15;
+    static final DoubleUnaryOperator FUNCTION = x -> Math.sin(x / 5.) * Math.exp(x / 10.) + 5. * Math.exp(-x / 2.);
+
+    @Param({"15", "100", "500"})
+    public int nodes;
+
+    @Param({"1000000"})
+    public int points;
+
+    private double[] chebyshev;
+    private double[] values;
+    private double[] grid;
+    private double[] out;
+    private BarycentricInterpolant barycentric;
+    private NewtonPolynomial newton;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        barycentric = BarycentricInterpolant.chebyshev(FUNCTION, FROM, TO, nodes);
+        newton = NewtonPolynomial.chebyshev(FUNCTION, FROM, TO, nodes);
+        chebyshev = barycentric.nodes();
+        values = new double[nodes];
+        for (var i = 0; i < nodes; i++) {
+            values[i] = FUNCTION.applyAsDouble(chebyshev[i]);
+        }
+        grid = SeriesPipeline.grid(FROM, TO, points).toArray();
+        out = new double[points];
+    }
+
+    @Benchmark
+    public BarycentricInterpolant buildBarycentric() {
+        return BarycentricInterpolant.of(chebyshev, values);
+    }
+
+    @Benchmark
+    public NewtonPolynomial buildNewton() {
+        return NewtonPolynomial.of(chebyshev, values);
+    }
+
+    @Benchmark
+    public double[] evaluateBarycentricPointwise() {
+        for (var i = 0; i < points; i++) {
+            out[i] = barycentric.applyAsDouble(grid[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] evaluateBarycentricBatch() {
+        barycentric.evaluate(grid, out);
+        return out;
+    }
+
+    @Benchmark
+    public double[] evaluateNewtonPointwise() {
+        for (var i = 0; i < points; i++) {
+            out[i] = newton.applyAsDouble(grid[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public double[] evaluateNewtonBatch() {
+        newton.evaluate(grid, out);
+        return out;
+    }
+}
@@ -0,0 +1,85 @@
+package tech.borischistov.blog.ml;
+
+import org.apache.commons.math3.linear.ArrayRealVector;
+import org.apache.commons.math3.linear.RealVector;
+import org.apache.commons.text.similarity.CosineDistance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One document against another: commons-text {@link CosineDistance} on strings, commons-math on dense
+ * vocabulary-sized vectors as in {@link TextSimilarity}, and {@link SparseVector} with and without tokenizing the
+ * query on every call.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PairwiseCosineBenchmark {
+
+    @Param({"20", "200"})
+    public int words;
+
+    private String left;
+    private String right;
+    private final CosineDistance distance = new CosineDistance();
+    private RealVector denseLeft;
+    private RealVector denseRight;
+    private Vocabulary vocabulary;
+    private SparseVector sparseLeft;
+    private SparseVector sparseRight;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var documents = CorpusFixtures.documents(2, words, 42);
+        left = documents.get(0);
+        right = documents.get(1);
+        vocabulary = new Vocabulary();
+        sparseLeft = vocabulary.index(left);
+        sparseRight = vocabulary.index(right);
+        denseLeft = dense(sparseLeft, vocabulary.size());
+        denseRight = dense(sparseRight, vocabulary.size());
+    }
+
+    @Benchmark
+    public double commonsText() {
+        return distance.apply(left, right);
+    }
+
+    @Benchmark
+    public double commonsMathDense() {
+        return TextSimilarity.cosineDistance(denseLeft, denseRight);
+    }
+
+    @Benchmark
+    public double sparse() {
+        return 1 - sparseLeft.cosine(sparseRight);
+    }
+
+    @Benchmark
+    public double sparseTokenizeQuery() {
+        return 1 - vocabulary.query(left).cosine(sparseRight);
+    }
+
+    private static RealVector dense(SparseVector vector, int dimension) {
+        var values = new double[dimension];
+        for (var i = 0; i < vector.size(); i++) {
+            values[vector.term(i)] = vector.weight(i);
+        }
+        return new ArrayRealVector(values);
+    }
+}
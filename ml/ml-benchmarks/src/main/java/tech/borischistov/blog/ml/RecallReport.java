@@ -0,0 +1,169 @@
+package tech.borischistov.blog.ml;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * Recall against latency for {@link SimHashIndex} configurations, with the exact scan and {@link InvertedIndex} as
+ * the baseline, and the time to build, save and load each index. Recall is the share of the exact top k found; the
+ * inverted index sums scores in a different order than the scan, so float rounding between near ties can put it a
+ * hair under 1.
+ * <pre>
+ * java -Xmx8g -cp target/benchmarks.jar tech.borischistov.blog.ml.RecallReport --documents=1000000 --queries=500
+ * </pre>
+ */
+public class RecallReport {
+
+    private static final int[][] CONFIGURATIONS = {
+            // tables, bits, probes
+            {4, 12, 0}, {8, 12, 0}, {8, 12, 4}, {16, 12, 4},
+            {8, 16, 0}, {8, 16, 8}, {16, 16, 8}, {32, 16, 8},
+    };
+
+    public static void main(String[] args) throws IOException {
+        var options = parse(args);
+        var documents = Integer.parseInt(options.getOrDefault("documents", "200000"));
+        var words = Integer.parseInt(options.getOrDefault("words", "50"));
+        var count = Integer.parseInt(options.getOrDefault("queries", "200"));
+        var k = Integer.parseInt(options.getOrDefault("k", "10"));
+
+        var started = System.nanoTime();
+        var corpus = new SparseCorpus();
+        corpus.addAll(CorpusFixtures.documents(documents, words, 42));
+        System.out.printf("Corpus: %d documents, built in %d ms%n", corpus.size(), millis(started));
+
+        var texts = CorpusFixtures.documents(count, words, 7);
+        var queries = new SparseVector[count];
+        var exact = new ArrayList<Set<Integer>>(count);
+        for (var i = 0; i < count; i++) {
+            queries[i] = corpus.vocabulary().query(texts.get(i));
+            exact.add(documents(corpus.topK(queries[i], k)));
+        }
+        var scan = measure(queries, exact, query -> corpus.topK(query, k));
+        System.out.printf("%-24s recall %.3f, %8.1f us/query%n", "scan", scan[0], scan[1]);
+
+        var directory = Files.createTempDirectory("recall-report");
+        try {
+            started = System.nanoTime();
+            var inverted = new InvertedIndex(corpus);
+            var built = millis(started);
+            var file = directory.resolve("inverted.idx");
+            started = System.nanoTime();
+            inverted.save(file);
+            var saved = millis(started);
+            started = System.nanoTime();
+            inverted = InvertedIndex.load(file, corpus);
+            var loaded = millis(started);
+            var exactIndex = inverted;
+            var search = measure(queries, exact, query -> exactIndex.topK(query, k));
+            System.out.printf("%-24s recall %.3f, %8.1f us/query, build %d ms, save %d ms, load %d ms, %d MB%n",
+                    "inverted", search[0], search[1], built, saved, loaded, megabytes(file));
+
+            for (var configuration : CONFIGURATIONS) {
+                var tables = configuration[0];
+                var bits = configuration[1];
+                var probes = configuration[2];
+                started = System.nanoTime();
+                var simHash = new SimHashIndex(corpus, tables, bits, 42);
+                built = millis(started);
+                file = directory.resolve("simhash-" + tables + "-" + bits + ".idx");
+                started = System.nanoTime();
+                simHash.save(file);
+                saved = millis(started);
+                started = System.nanoTime();
+                simHash = SimHashIndex.load(file, corpus);
+                loaded = millis(started);
+                var approximateIndex = simHash;
+                search = measure(queries, exact, query -> approximateIndex.topK(query, k, probes));
+                var candidates = 0L;
+                for (var query : queries) {
+                    candidates += simHash.candidateCount(query, probes);
+                }
+                System.out.printf(
+                        "%-24s recall %.3f, %8.1f us/query, %d candidates/query, build %d ms, save %d ms, load %d ms, %d MB%n",
+                        "simhash " + tables + "x" + bits + " probes " + probes, search[0], search[1],
+                        candidates / count, built, saved, loaded, megabytes(file));
+            }
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (var file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+
+    /**
+     * Runs the queries once to warm up, then again timed.
+     *
+     * @return mean recall and mean latency in microseconds
+     */
+    private static double[] measure(
+            SparseVector[] queries,
+            List<Set<Integer>> exact,
+            Function<SparseVector, List<Match>> search
+    ) {
+        for (var query : queries) {
+            search.apply(query);
+        }
+        var found = 0d;
+        var started = System.nanoTime();
+        for (var i = 0; i < queries.length; i++) {
+            found += recall(exact.get(i), search.apply(queries[i]));
+        }
+        var elapsed = System.nanoTime() - started;
+        return new double[]{found / queries.length, elapsed / 1_000d / queries.length};
+    }
+
+    private static Set<Integer> documents(List<Match> matches) {
+        var documents = new HashSet<Integer>();
+        matches.forEach(match -> documents.add(match.document()));
+        return documents;
+    }
+
+    private static double recall(Set<Integer> exact, List<Match> matches) {
+        if (exact.isEmpty()) {
+            return 1;
+        }
+        var found = 0;
+        for (var match : matches) {
+            if (exact.contains(match.document())) {
+                found++;
+            }
+        }
+        return found / (double) exact.size();
+    }
+
+    private static long millis(long started) {
+        return (System.nanoTime() - started) / 1_000_000;
+    }
+
+    private static long megabytes(Path file) throws IOException {
+        return Files.size(file) >> 20;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        var options = new HashMap<String, String>();
+        for (var arg : args) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            var separator = arg.indexOf('=');
+            if (separator < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,74 @@
+package tech.borischistov.blog.ml;
+
+import org.apache.commons.text.similarity.CosineDistance;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Top 10 documents for a query over a corpus: {@link SparseCorpus} against scanning the raw texts with commons-text
+ * {@link CosineDistance}. The commons-text scan takes minutes per call on a million documents, run it with
+ * {@code -p documents=100000} or less.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx8g"})
+@State(Scope.Benchmark)
+public class TopKBenchmark {
+
+    private static final int K = 10;
+
+    @Param({"100000", "1000000"})
+    public int documents;
+
+    @Param({"50"})
+    public int words;
+
+    private List<String> texts;
+    private SparseCorpus corpus;
+    private String query;
+    private final CosineDistance distance = new CosineDistance();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        texts = CorpusFixtures.documents(documents, words, 42);
+        corpus = new SparseCorpus();
+        corpus.addAll(texts);
+        query = CorpusFixtures.documents(1, words, 7).get(0);
+    }
+
+    @Benchmark
+    public List<Match> sparseCorpus() {
+        return corpus.topK(query, K);
+    }
+
+    @Benchmark
+    public PriorityQueue<double[]> commonsTextScan() {
+        var top = new PriorityQueue<double[]>(K, (a, b) -> Double.compare(a[0], b[0]));
+        for (var i = 0; i < texts.size(); i++) {
+            var similarity = 1 - distance.apply(query, texts.get(i));
+            if (top.size() < K) {
+                top.offer(new double[]{similarity, i});
+            } else if (similarity > top.peek()[0]) {
+                top.poll();
+                top.offer(new double[]{similarity, i});
+            }
+        }
+        return top;
+    }
+}
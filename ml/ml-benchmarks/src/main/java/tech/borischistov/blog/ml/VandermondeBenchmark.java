@@ -0,0 +1,45 @@
+package tech.borischistov.blog.ml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Solving the Vandermonde system of {@link FunctionApproximation#solve} through {@code nodes} equidistant points, the
+ * baseline of {@link InterpolationBenchmark}. The matrix is singular in double precision well before 100 nodes, so
+ * node counts stop at 30.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class VandermondeBenchmark {
+
+    @Param({"4", "15", "30"})
+    public int nodes;
+
+    private double[] equidistant;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        equidistant = SeriesPipeline.grid(InterpolationBenchmark.FROM, InterpolationBenchmark.TO, nodes).toArray();
+    }
+
+    @Benchmark
+    public double[] build() {
+        return FunctionApproximation.solve(InterpolationBenchmark.FUNCTION, equidistant);
+    }
+}
@@ -0,0 +1,133 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Throughput and latency of {@code createQueue}, {@code getQueues} and {@code removeQueue} against
+ * {@link FakeQueueManager}, so only the manager and the simulated round trip are measured. {@code connections} is
+ * the number of commands the fake serves at once: the {@code *Concurrent} benchmarks run 8 threads, which queue up
+ * behind a single connection with {@code connections=1} and run in parallel with a pool of 8.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ManagerBenchmark {
+
+    private static final String PREFIX = "BENCH.";
+    private static final String QUEUE_PREFIX = PREFIX + "Q.";
+
+    @Param({"1", "8"})
+    public int connections;
+
+    /**
+     * Simulated command round trip in microseconds.
+     */
+    @Param({"0", "500"})
+    public int latencyMicros;
+
+    @Param({"1000"})
+    public int queues;
+
+    private Manager manager;
+    private Topology topology;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var fake = new FakeQueueManager(connections, 64).latency(Duration.ofNanos(latencyMicros * 1_000L));
+        manager = new Manager(fake);
+        var names = new ArrayList<String>(queues);
+        for (var i = 0; i < queues; i++) {
+            names.add(QUEUE_PREFIX + i);
+        }
+        var result = manager.createQueues(names);
+        if (!result.isSuccessful()) {
+            throw new IllegalStateException("Can't create benchmark queues: " + result);
+        }
+        topology = Topology.builder().queues(names).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        manager.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void createRemoveQueue() throws MQException, IOException {
+        createRemove();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void createRemoveQueueConcurrent() throws MQException, IOException {
+        createRemove();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public List<Queue> getQueues() throws MQException, IOException {
+        return manager.getQueues(QUEUE_PREFIX + "*");
+    }
+
+    @Benchmark
+    @Threads(8)
+    public List<Queue> getQueuesConcurrent() throws MQException, IOException {
+        return manager.getQueues(QUEUE_PREFIX + "*");
+    }
+
+    /**
+     * One batch of 100 queues created and removed through the bulk API, for comparison with
+     * 100 {@link #createRemoveQueue()} calls.
+     */
+    @Benchmark
+    @Threads(1)
+    public BulkResult bulkCreateRemove100() {
+        var names = new ArrayList<String>(100);
+        var batch = sequence.incrementAndGet();
+        for (var i = 0; i < 100; i++) {
+            names.add(PREFIX + "BULK." + batch + "." + i);
+        }
+        manager.createQueues(names);
+        return manager.removeQueues(names);
+    }
+
+    /**
+     * Reconcile of a topology the queue manager already matches, three inquiries and no commands.
+     */
+    @Benchmark
+    @Threads(1)
+    public ReconcileResult reconcileUpToDate() throws MQException, IOException {
+        return manager.reconcile(topology);
+    }
+
+    private void createRemove() throws MQException, IOException {
+        var name = PREFIX + "TMP." + sequence.incrementAndGet();
+        manager.createQueue(name);
+        manager.removeQueue(name);
+    }
+}
@@ -0,0 +1,143 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Closed loop load driver for {@link Manager}. Each of {@code --concurrency} threads repeats create, get and remove
+ * of its own queue and records the latency of every call into an HdrHistogram per operation.
+ * <p>
+ * Runs against {@link FakeQueueManager} with {@code --latency-us} round trip by default, {@code --mq} switches to
+ * the queue manager from the {@code mq.*} system properties. Only {@code BENCH.LOAD.*} queues created by the
+ * driver itself are removed.
+ * <pre>
+ * java -cp target/benchmarks.jar com.borischistov.mq.ManagerLoadDriver --connections=8 --concurrency=8 --latency-us=500
+ * java -Dmq.host=mq1 -cp target/benchmarks.jar com.borischistov.mq.ManagerLoadDriver --mq --connections=4 --concurrency=16
+ * </pre>
+ */
+public class ManagerLoadDriver {
+
+    private static final Logger logger = LoggerFactory.getLogger(ManagerLoadDriver.class);
+    private static final long HIGHEST_LATENCY = TimeUnit.MINUTES.toNanos(1);
+    private static final String PREFIX = "BENCH.LOAD.";
+
+    private final Manager manager;
+    private final Map<String, Recorder> recorders = new LinkedHashMap<>();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile boolean running = true;
+
+    private ManagerLoadDriver(Manager manager) {
+        this.manager = manager;
+        for (var operation : new String[]{"createQueue", "getQueues", "removeQueue"}) {
+            recorders.put(operation, new Recorder(HIGHEST_LATENCY, 3));
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = Options.parse(args, 0);
+        var connections = options.getInt("connections", 4);
+        var concurrency = options.getInt("concurrency", 8);
+        var latency = options.getInt("latency-us", 500);
+        var warmup = options.getInt("warmup", 10);
+        var duration = options.getInt("duration", 30);
+
+        PcfTransport transport;
+        if (options.has("mq")) {
+            var settings = ConnectionSettings
+                    .fromProperties(System.getProperties())
+                    .toBuilder()
+                    .poolSize(connections)
+                    .minIdle(connections)
+                    .build();
+            transport = new PooledPcfTransport(settings);
+            logger.info("Target: {}:{}/{}", settings.getHost(), settings.getPort(), settings.getQueueManager());
+        } else {
+            transport = new FakeQueueManager(connections, 64).latency(Duration.ofNanos(latency * 1_000L));
+            logger.info("Target: fake queue manager, latency: {} us", latency);
+        }
+        logger.info("Connections: {}, concurrency: {}, warmup: {}s, duration: {}s", connections, concurrency, warmup, duration);
+
+        try (var manager = new Manager(transport)) {
+            var driver = new ManagerLoadDriver(manager);
+            var threads = new ArrayList<Thread>();
+            for (var i = 0; i < concurrency; i++) {
+                var thread = new Thread(driver::run, "load-" + i);
+                thread.setDaemon(true);
+                thread.start();
+                threads.add(thread);
+            }
+            TimeUnit.SECONDS.sleep(warmup);
+            driver.recorders.values().forEach(Recorder::reset);
+            driver.errors.set(0);
+
+            var started = System.nanoTime();
+            TimeUnit.SECONDS.sleep(duration);
+            var histograms = new LinkedHashMap<String, Histogram>();
+            driver.recorders.forEach((operation, recorder) -> histograms.put(operation, recorder.getIntervalHistogram()));
+            var elapsed = System.nanoTime() - started;
+            driver.running = false;
+            for (var thread : threads) {
+                thread.join(TimeUnit.SECONDS.toMillis(30));
+            }
+
+            report(histograms, driver.errors.get(), elapsed);
+        }
+    }
+
+    private void run() {
+        while (running) {
+            var name = PREFIX + sequence.incrementAndGet();
+            var created = call("createQueue", () -> manager.createQueue(name));
+            call("getQueues", () -> manager.getQueues(name));
+            if (created) {
+                call("removeQueue", () -> {
+                    manager.removeQueue(name);
+                    return null;
+                });
+            }
+        }
+    }
+
+    private boolean call(String operation, Manager.Command<?> command) {
+        var started = System.nanoTime();
+        try {
+            command.call();
+            recorders.get(operation).recordValue(Math.min(System.nanoTime() - started, HIGHEST_LATENCY));
+            return true;
+        } catch (MQException | IOException e) {
+            errors.incrementAndGet();
+            return false;
+        }
+    }
+
+    private static void report(Map<String, Histogram> histograms, long errors, long elapsedNanos) {
+        var seconds = elapsedNanos / 1_000_000_000d;
+        logger.info("Errors: {}", errors);
+        histograms.forEach((operation, histogram) -> {
+            logger.info("{} - calls: {}, throughput: {} ops/s",
+                    operation, histogram.getTotalCount(), String.format("%.1f", histogram.getTotalCount() / seconds));
+            logger.info("{} - latency us - p50: {}, p99: {}, p99.9: {}, max: {}",
+                    operation,
+                    micros(histogram.getValueAtPercentile(50)),
+                    micros(histogram.getValueAtPercentile(99)),
+                    micros(histogram.getValueAtPercentile(99.9)),
+                    micros(histogram.getMaxValue()));
+        });
+    }
+
+    private static String micros(long nanos) {
+        return String.format("%.1f", nanos / 1_000d);
+    }
+}
@@ -0,0 +1,149 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.PCFException;
+import com.ibm.mq.pcf.PCFMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs many independent PCF commands through {@link PcfSession}s. Each worker holds one pooled connection and keeps
+ * up to {@code window} requests in flight on it, so a batch costs roughly {@code size / (workers * window)} round
+ * trips instead of {@code size}. Workers pull the next request from a shared index, a worker that loses its
+ * connection leaves the rest of the batch to the others.
+ */
+class BulkExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(BulkExecutor.class);
+    private static final Object SUCCESS = new Object();
+
+    private final ConnectionPool pool;
+    private final Executor executor;
+    private final int workers;
+    private final int window;
+    private final int timeoutMillis;
+
+    BulkExecutor(ConnectionPool pool, Executor executor, ConnectionSettings settings) {
+        this.pool = pool;
+        this.executor = executor;
+        this.workers = settings.getPoolSize();
+        this.window = settings.getBulkWindow();
+        this.timeoutMillis = (int) settings.getCommandTimeout().toMillis();
+    }
+
+    /**
+     * @param requests requests keyed by the object name they are reported under
+     */
+    BulkResult execute(Map<String, PCFMessage> requests) {
+        var started = System.nanoTime();
+        var names = new ArrayList<>(requests.keySet());
+        var commands = new ArrayList<>(requests.values());
+        var outcomes = new AtomicReferenceArray<Object>(names.size());
+        var next = new AtomicInteger();
+        var lastError = new AtomicReference<Exception>();
+
+        var futures = new ArrayList<CompletableFuture<Void>>();
+        for (var i = 0; i < Math.min(workers, names.size()); i++) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    work(names, commands, outcomes, next);
+                } catch (MQException | IOException e) {
+                    logger.warn("Bulk worker failed: {}", e.getMessage());
+                    lastError.set(e);
+                }
+            }, executor));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).join();
+
+        var succeeded = new ArrayList<String>();
+        var failed = new LinkedHashMap<String, Exception>();
+        for (var i = 0; i < names.size(); i++) {
+            var outcome = outcomes.get(i);
+            if (outcome == SUCCESS) {
+                succeeded.add(names.get(i));
+            } else if (outcome instanceof Exception) {
+                failed.put(names.get(i), (Exception) outcome);
+            } else {
+                var error = lastError.get();
+                failed.put(names.get(i), error != null ? error : new IOException("Command was not sent"));
+            }
+        }
+        return new BulkResult(succeeded, failed, System.nanoTime() - started);
+    }
+
+    private void work(
+            List<String> names,
+            List<PCFMessage> commands,
+            AtomicReferenceArray<Object> outcomes,
+            AtomicInteger next
+    ) throws MQException, IOException {
+        try (var connection = pool.borrow()) {
+            var outstanding = new HashMap<ByteBuffer, Integer>(window * 2);
+            var errors = new HashMap<Integer, Exception>();
+            try {
+                var exhausted = false;
+                while (true) {
+                    while (!exhausted && outstanding.size() < window) {
+                        var index = next.getAndIncrement();
+                        if (index >= commands.size()) {
+                            exhausted = true;
+                            break;
+                        }
+                        outstanding.put(ByteBuffer.wrap(connection.session().send(commands.get(index))), index);
+                    }
+                    if (outstanding.isEmpty()) {
+                        return;
+                    }
+                    var reply = connection.session().receive(timeoutMillis);
+                    if (reply == null) {
+                        var timeout = new IOException("No reply within " + timeoutMillis + " ms");
+                        outstanding.values().forEach(index -> outcomes.set(index, timeout));
+                        outstanding.clear();
+                        continue;
+                    }
+                    var key = ByteBuffer.wrap(reply.correlationId());
+                    var index = outstanding.get(key);
+                    if (index == null) {
+                        // late reply to a request that already timed out
+                        continue;
+                    }
+                    var response = reply.message();
+                    if (response.getCompCode() != MQConstants.MQCC_OK && !errors.containsKey(index)) {
+                        var error = new PCFException(response.getCompCode(), response.getReason(), names.get(index));
+                        logger.debug("Error: {}, object: {}", MQConstants.lookupReasonCode(response.getReason()), names.get(index));
+                        errors.put(index, error);
+                    }
+                    if (reply.isLast()) {
+                        outstanding.remove(key);
+                        var error = errors.remove(index);
+                        outcomes.set(index, error == null ? SUCCESS : error);
+                    }
+                }
+            } catch (MQException e) {
+                if (ConnectionPool.isConnectionError(e)) {
+                    connection.invalidate();
+                }
+                outstanding.values().forEach(index -> outcomes.set(index, e));
+                throw e;
+            } catch (IOException e) {
+                connection.invalidate();
+                outstanding.values().forEach(index -> outcomes.set(index, e));
+                throw e;
+            }
+        }
+    }
+}
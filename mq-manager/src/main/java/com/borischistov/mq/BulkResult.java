@@ -0,0 +1,39 @@
+package com.borischistov.mq;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of a bulk operation, one entry per object name. A failed item does not stop the rest of the batch.
+ */
+@Getter
+public class BulkResult {
+    private final List<String> succeeded;
+    private final Map<String, Exception> failed;
+    private final long durationNanos;
+
+    BulkResult(List<String> succeeded, Map<String, Exception> failed, long durationNanos) {
+        this.succeeded = Collections.unmodifiableList(succeeded);
+        this.failed = Collections.unmodifiableMap(failed);
+        this.durationNanos = durationNanos;
+    }
+
+    public boolean isSuccessful() {
+        return failed.isEmpty();
+    }
+
+    public int size() {
+        return succeeded.size() + failed.size();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d succeeded, %d failed in %.1f ms",
+                succeeded.size(), failed.size(), durationNanos / 1_000_000d
+        );
+    }
+}
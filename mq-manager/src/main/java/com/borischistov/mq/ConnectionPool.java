@@ -0,0 +1,175 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.MQQueueManager;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.PCFMessage;
+import com.ibm.mq.pcf.PCFMessageAgent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Bounded pool of queue manager connections, each with its own {@link PCFMessageAgent}. Borrowing is thread safe,
+ * a caller owns the connection until it is closed. Connections idle longer than the health check interval are pinged
+ * before reuse, broken ones are dropped and replaced by a new connection opened with exponential backoff.
+ */
+public class ConnectionPool implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConnectionPool.class);
+
+    private final ConnectionSettings settings;
+    private final Semaphore permits;
+    private final BlockingQueue<PooledConnection> idle;
+    private volatile boolean closed;
+
+    public ConnectionPool(ConnectionSettings settings) throws MQException {
+        this.settings = settings;
+        this.permits = new Semaphore(settings.getPoolSize(), true);
+        this.idle = new ArrayBlockingQueue<>(settings.getPoolSize());
+        try {
+            for (var i = 0; i < Math.min(settings.getMinIdle(), settings.getPoolSize()); i++) {
+                idle.add(open());
+            }
+        } catch (MQException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Takes an idle connection or opens a new one, waits up to the borrow timeout when all connections are in use.
+     */
+    public PooledConnection borrow() throws MQException, IOException {
+        if (closed) {
+            throw new IOException("Connection pool is closed");
+        }
+        try {
+            if (!permits.tryAcquire(settings.getBorrowTimeout().toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new IOException("No connection available within " + settings.getBorrowTimeout());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for a connection");
+        }
+        try {
+            PooledConnection connection;
+            while ((connection = idle.poll()) != null) {
+                if (isHealthy(connection)) {
+                    return connection.lease();
+                }
+                connection.disconnect();
+            }
+            return connectWithBackoff().lease();
+        } catch (MQException | IOException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    public int idleCount() {
+        return idle.size();
+    }
+
+    public int activeCount() {
+        return settings.getPoolSize() - permits.availablePermits();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        var connections = new ArrayList<PooledConnection>();
+        idle.drainTo(connections);
+        connections.forEach(PooledConnection::disconnect);
+    }
+
+    /**
+     * Connection errors mean the connection can't be used anymore, command errors leave it intact.
+     */
+    static boolean isConnectionError(MQException e) {
+        switch (e.getReason()) {
+            case MQConstants.MQRC_CONNECTION_BROKEN:
+            case MQConstants.MQRC_HCONN_ERROR:
+            case MQConstants.MQRC_Q_MGR_NOT_AVAILABLE:
+            case MQConstants.MQRC_Q_MGR_QUIESCING:
+            case MQConstants.MQRC_Q_MGR_STOPPING:
+            case MQConstants.MQRC_CONNECTION_QUIESCING:
+            case MQConstants.MQRC_CONNECTION_STOPPING:
+            case MQConstants.MQRC_HOST_NOT_AVAILABLE:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    void release(PooledConnection connection) {
+        if (connection.isBroken() || closed || !idle.offer(connection)) {
+            connection.disconnect();
+        }
+        permits.release();
+    }
+
+    private boolean isHealthy(PooledConnection connection) {
+        if (!connection.queueManager().isConnected()) {
+            return false;
+        }
+        if (System.nanoTime() - connection.lastUsed() < settings.getHealthCheckInterval().toNanos()) {
+            return true;
+        }
+        try {
+            connection.agent().send(new PCFMessage(MQConstants.MQCMD_PING_Q_MGR));
+            connection.touch();
+            return true;
+        } catch (MQException | IOException e) {
+            logger.info("Dropping connection failed health check: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private PooledConnection connectWithBackoff() throws MQException, IOException {
+        var delay = settings.getReconnectDelay().toMillis();
+        var attempt = 1;
+        while (true) {
+            try {
+                return open();
+            } catch (MQException e) {
+                if (attempt >= settings.getConnectAttempts() || !isConnectionError(e)) {
+                    throw e;
+                }
+                logger.warn(
+                        "Can't connect to queue manager: {}, attempt: {}, retry in {} ms",
+                        settings.getQueueManager(), attempt, delay
+                );
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while reconnecting");
+            }
+            delay = Math.min(delay * 2, settings.getMaxReconnectDelay().toMillis());
+            attempt++;
+        }
+    }
+
+    private PooledConnection open() throws MQException {
+        var qm = new MQQueueManager(settings.getQueueManager(), settings.connectionProperties());
+        try {
+            var agent = new PCFMessageAgent(qm);
+            agent.setCheckResponses(true);
+            logger.debug("Connected to queue manager: {}", settings.getQueueManager());
+            return new PooledConnection(this, qm, agent);
+        } catch (MQException e) {
+            qm.disconnect();
+            throw e;
+        }
+    }
+}
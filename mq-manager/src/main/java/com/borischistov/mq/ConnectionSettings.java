@@ -0,0 +1,92 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.constants.MQConstants;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+import java.util.Hashtable;
+import java.util.Properties;
+
+/**
+ * Queue manager connection and {@link ConnectionPool} settings. Defaults point to the local development queue manager.
+ */
+@Data
+@Builder(toBuilder = true)
+public class ConnectionSettings {
+    @Builder.Default
+    private String host = "127.0.0.1";
+    @Builder.Default
+    private int port = 1414;
+    @Builder.Default
+    private String channel = "SRVCHL";
+    @Builder.Default
+    private String queueManager = "QM1";
+    @Builder.Default
+    private String user = "mqm";
+    @Builder.Default
+    private String password = "RfyHYSZJ";
+
+    /**
+     * Maximum number of open connections.
+     */
+    @Builder.Default
+    private int poolSize = 4;
+    /**
+     * Connections opened up front, the first one also validates the settings.
+     */
+    @Builder.Default
+    private int minIdle = 1;
+    @Builder.Default
+    private Duration borrowTimeout = Duration.ofSeconds(30);
+    /**
+     * Idle connections are pinged before they are handed out again after this time.
+     */
+    @Builder.Default
+    private Duration healthCheckInterval = Duration.ofSeconds(30);
+    @Builder.Default
+    private int connectAttempts = 5;
+    @Builder.Default
+    private Duration reconnectDelay = Duration.ofMillis(200);
+    @Builder.Default
+    private Duration maxReconnectDelay = Duration.ofSeconds(10);
+
+    /**
+     * Requests a bulk operation keeps in flight on each connection.
+     */
+    @Builder.Default
+    private int bulkWindow = 64;
+    /**
+     * Wait for a reply to a pipelined command.
+     */
+    @Builder.Default
+    private Duration commandTimeout = Duration.ofSeconds(30);
+
+    /**
+     * Reads {@code mq.host}, {@code mq.port}, {@code mq.channel}, {@code mq.queue-manager}, {@code mq.user},
+     * {@code mq.password} and {@code mq.pool-size}, missing properties keep their defaults.
+     */
+    public static ConnectionSettings fromProperties(Properties properties) {
+        var defaults = ConnectionSettings.builder().build();
+        return defaults
+                .toBuilder()
+                .host(properties.getProperty("mq.host", defaults.getHost()))
+                .port(Integer.parseInt(properties.getProperty("mq.port", String.valueOf(defaults.getPort()))))
+                .channel(properties.getProperty("mq.channel", defaults.getChannel()))
+                .queueManager(properties.getProperty("mq.queue-manager", defaults.getQueueManager()))
+                .user(properties.getProperty("mq.user", defaults.getUser()))
+                .password(properties.getProperty("mq.password", defaults.getPassword()))
+                .poolSize(Integer.parseInt(properties.getProperty("mq.pool-size", String.valueOf(defaults.getPoolSize()))))
+                .build();
+    }
+
+    Hashtable<String, Object> connectionProperties() {
+        var connectionParams = new Hashtable<String, Object>();
+        connectionParams.put(MQConstants.HOST_NAME_PROPERTY, host);
+        connectionParams.put(MQConstants.PORT_PROPERTY, port);
+        connectionParams.put(MQConstants.USER_ID_PROPERTY, user);
+        connectionParams.put(MQConstants.PASSWORD_PROPERTY, password);
+        connectionParams.put(MQConstants.CHANNEL_PROPERTY, channel);
+        return connectionParams;
+    }
+}
@@ -0,0 +1,570 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.MQCFIF;
+import com.ibm.mq.pcf.PCFException;
+import com.ibm.mq.pcf.PCFMessage;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * In-memory queue manager for tests and benchmarks of {@link Manager} without a running MQ. It keeps queues, topics
+ * and subscriptions in maps and answers the PCF commands {@code Manager} sends the way the command server does,
+ * including {@code MQRCCF_OBJECT_ALREADY_EXISTS} and {@code MQRC_UNKNOWN_OBJECT_NAME} errors.
+ * <p>
+ * Every command waits for its configured latency while holding one of {@code parallelism} permits, so the fake
+ * behaves like a pool of that many connections to a remote command server. Bulk commands pay the latency once per
+ * {@code parallelism * window} commands, like {@link BulkExecutor} does. Failures are injected either with a rate or
+ * one by one with {@link #failNext(int)}, connection reasons are thrown as {@link MQException} and the rest as
+ * {@link PCFException}.
+ */
+public class FakeQueueManager implements PcfTransport {
+
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final Map<String, FakeQueue> queues = new ConcurrentHashMap<>();
+    private final Map<String, String> topics = new ConcurrentHashMap<>();
+    private final Map<String, Subscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<Integer, Duration> latencies = new ConcurrentHashMap<>();
+    private final Queue<Integer> failures = new ConcurrentLinkedQueue<>();
+    private final int parallelism;
+    private final int window;
+    private final Semaphore permits;
+    private volatile Duration latency = Duration.ZERO;
+    private volatile double failureRate;
+    private volatile int failureReason = MQConstants.MQRCCF_COMMAND_FAILED;
+
+    public FakeQueueManager() {
+        this(4, 64);
+    }
+
+    /**
+     * @param parallelism commands served at the same time, the pool size of a real transport
+     * @param window      commands each connection keeps in flight during bulk operations
+     */
+    public FakeQueueManager(int parallelism, int window) {
+        this.parallelism = parallelism;
+        this.window = window;
+        this.permits = new Semaphore(parallelism, true);
+    }
+
+    /**
+     * Round trip of every command without its own latency.
+     */
+    public FakeQueueManager latency(Duration latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * Round trip of one {@code MQCMD_*} command.
+     */
+    public FakeQueueManager latency(int command, Duration latency) {
+        latencies.put(command, latency);
+        return this;
+    }
+
+    /**
+     * Fails this share of commands with the reason.
+     */
+    public FakeQueueManager failureRate(double rate, int reason) {
+        this.failureReason = reason;
+        this.failureRate = rate;
+        return this;
+    }
+
+    /**
+     * Fails the next command with the reason, calls queue up.
+     */
+    public FakeQueueManager failNext(int reason) {
+        failures.add(reason);
+        return this;
+    }
+
+    /**
+     * Sets the depth of a local queue, as if applications put or got messages.
+     */
+    public FakeQueueManager depth(String queueName, int depth) throws PCFException {
+        var queue = local(queueName);
+        synchronized (queue) {
+            if (depth > queue.depth) {
+                queue.enqueued += depth - queue.depth;
+            } else {
+                queue.dequeued += queue.depth - depth;
+            }
+            queue.depth = depth;
+            queue.highDepth = Math.max(queue.highDepth, depth);
+        }
+        return this;
+    }
+
+    @Override
+    public PCFMessage[] send(PCFMessage request) throws MQException, IOException {
+        acquire();
+        try {
+            pause(latencyOf(request.getCommand()));
+            return handle(request).toArray(PCFMessage[]::new);
+        } finally {
+            permits.release();
+        }
+    }
+
+    @Override
+    public Stream<PCFMessage> stream(PCFMessage request) throws MQException, IOException {
+        try {
+            return Stream.of(send(request));
+        } catch (MQException e) {
+            if (isNoneFound(e.getReason())) {
+                return Stream.empty();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Runs the commands in rounds of {@code parallelism * window}. A round holds every permit, as a bulk operation
+     * keeps all pooled connections busy, and pays the latency of its slowest command once.
+     */
+    @Override
+    public BulkResult sendAll(Map<String, PCFMessage> requests) {
+        var started = System.nanoTime();
+        var succeeded = new LinkedHashSet<String>();
+        var failed = new LinkedHashMap<String, Exception>();
+        var round = Math.max(1, parallelism * window);
+        var entries = requests.entrySet().iterator();
+        try {
+            while (entries.hasNext()) {
+                acquire(parallelism);
+                try {
+                    var slowest = Duration.ZERO;
+                    for (var inRound = 0; inRound < round && entries.hasNext(); inRound++) {
+                        var entry = entries.next();
+                        var command = latencyOf(entry.getValue().getCommand());
+                        slowest = command.compareTo(slowest) > 0 ? command : slowest;
+                        try {
+                            handle(entry.getValue());
+                            succeeded.add(entry.getKey());
+                        } catch (MQException e) {
+                            failed.put(entry.getKey(), e);
+                        }
+                    }
+                    pause(slowest);
+                } finally {
+                    permits.release(parallelism);
+                }
+            }
+        } catch (IOException e) {
+            requests.keySet().stream()
+                    .filter(name -> !succeeded.contains(name) && !failed.containsKey(name))
+                    .forEach(name -> failed.put(name, e));
+        }
+        return new BulkResult(new ArrayList<>(succeeded), failed, System.nanoTime() - started);
+    }
+
+    @Override
+    public int parallelism() {
+        return parallelism;
+    }
+
+    @Override
+    public void close() {
+        failures.clear();
+    }
+
+    private List<PCFMessage> handle(PCFMessage request) throws MQException {
+        inject();
+        var command = request.getCommand();
+        switch (command) {
+            case MQConstants.MQCMD_PING_Q_MGR:
+                return List.of(response(command));
+            case MQConstants.MQCMD_CREATE_Q:
+                return createQueue(request);
+            case MQConstants.MQCMD_CHANGE_Q:
+                return changeQueue(request);
+            case MQConstants.MQCMD_DELETE_Q:
+                if (queues.remove(name(request, MQConstants.MQCA_Q_NAME)) == null) {
+                    throw error(MQConstants.MQRC_UNKNOWN_OBJECT_NAME);
+                }
+                return List.of(response(command));
+            case MQConstants.MQCMD_CLEAR_Q:
+                depth(name(request, MQConstants.MQCA_Q_NAME), 0);
+                return List.of(response(command));
+            case MQConstants.MQCMD_INQUIRE_Q:
+                return inquireQueues(request);
+            case MQConstants.MQCMD_INQUIRE_Q_STATUS:
+                return inquireQueueStatus(request);
+            case MQConstants.MQCMD_RESET_Q_STATS:
+                return resetQueueStatistics(request);
+            case MQConstants.MQCMD_CREATE_TOPIC:
+                var topicString = name(request, MQConstants.MQCA_TOPIC_STRING);
+                if (topics.putIfAbsent(name(request, MQConstants.MQCA_TOPIC_NAME), topicString) != null) {
+                    throw error(MQConstants.MQRCCF_OBJECT_ALREADY_EXISTS);
+                }
+                return List.of(response(command));
+            case MQConstants.MQCMD_DELETE_TOPIC:
+                if (topics.remove(name(request, MQConstants.MQCA_TOPIC_NAME)) == null) {
+                    throw error(MQConstants.MQRC_UNKNOWN_OBJECT_NAME);
+                }
+                return List.of(response(command));
+            case MQConstants.MQCMD_INQUIRE_TOPIC:
+                return inquireTopics(request);
+            case MQConstants.MQCMD_CREATE_SUBSCRIPTION:
+                return createSubscription(request);
+            case MQConstants.MQCMD_DELETE_SUBSCRIPTION:
+                if (subscriptions.remove(name(request, MQConstants.MQCACF_SUB_NAME)) == null) {
+                    throw error(MQConstants.MQRC_NO_SUBSCRIPTION);
+                }
+                return List.of(response(command));
+            case MQConstants.MQCMD_CHANGE_SUBSCRIPTION:
+                return changeSubscription(request);
+            case MQConstants.MQCMD_INQUIRE_SUBSCRIPTION:
+                return inquireSubscriptions(request);
+            default:
+                throw error(MQConstants.MQRCCF_COMMAND_FAILED);
+        }
+    }
+
+    private List<PCFMessage> createQueue(PCFMessage request) throws PCFException {
+        var queue = new FakeQueue();
+        queue.type = intValue(request, MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_LOCAL);
+        queue.baseObject = (String) request.getParameterValue(MQConstants.MQCA_BASE_OBJECT_NAME);
+        queue.resetAt = System.currentTimeMillis();
+        if (queue.type == MQConstants.MQQT_ALIAS && !topics.containsKey(queue.baseObject)) {
+            throw error(MQConstants.MQRC_UNKNOWN_OBJECT_NAME);
+        }
+        if (queues.putIfAbsent(name(request, MQConstants.MQCA_Q_NAME), queue) != null) {
+            throw error(MQConstants.MQRCCF_OBJECT_ALREADY_EXISTS);
+        }
+        return List.of(response(request.getCommand()));
+    }
+
+    private List<PCFMessage> changeQueue(PCFMessage request) throws PCFException {
+        var queue = existing(queues, name(request, MQConstants.MQCA_Q_NAME));
+        var baseObject = (String) request.getParameterValue(MQConstants.MQCA_BASE_OBJECT_NAME);
+        if (baseObject != null) {
+            if (queue.type != MQConstants.MQQT_ALIAS) {
+                throw error(MQConstants.MQRCCF_Q_WRONG_TYPE);
+            }
+            existing(topics, baseObject);
+            queue.baseObject = baseObject;
+        }
+        return List.of(response(request.getCommand()));
+    }
+
+    private List<PCFMessage> changeSubscription(PCFMessage request) throws PCFException {
+        var name = name(request, MQConstants.MQCACF_SUB_NAME);
+        var destination = name(request, MQConstants.MQCACF_DESTINATION);
+        existing(queues, destination);
+        var changed = subscriptions.computeIfPresent(
+                name,
+                (key, subscription) -> new Subscription(key, subscription.getTopicName(), destination)
+        );
+        if (changed == null) {
+            throw error(MQConstants.MQRC_NO_SUBSCRIPTION);
+        }
+        return List.of(response(request.getCommand()));
+    }
+
+    private List<PCFMessage> createSubscription(PCFMessage request) throws PCFException {
+        var subscription = Subscription
+                .builder()
+                .name(name(request, MQConstants.MQCACF_SUB_NAME))
+                .topicName(name(request, MQConstants.MQCA_TOPIC_NAME))
+                .destination(name(request, MQConstants.MQCACF_DESTINATION))
+                .build();
+        existing(topics, subscription.getTopicName());
+        existing(queues, subscription.getDestination());
+        if (subscriptions.putIfAbsent(subscription.getName(), subscription) != null) {
+            throw error(MQConstants.MQRCCF_SUB_ALREADY_EXISTS);
+        }
+        return List.of(response(request.getCommand()));
+    }
+
+    private List<PCFMessage> inquireQueues(PCFMessage request) throws PCFException {
+        var pattern = name(request, MQConstants.MQCA_Q_NAME);
+        var type = intValue(request, MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_ALL);
+        var filter = depthFilter(request);
+        var matched = new ArrayList<Map.Entry<String, FakeQueue>>();
+        for (var entry : queues.entrySet()) {
+            var queue = entry.getValue();
+            if (matches(pattern, entry.getKey())
+                    && (type == MQConstants.MQQT_ALL || type == queue.type)
+                    && (filter == null || queue.type == MQConstants.MQQT_LOCAL && passes(filter, queue.depth))) {
+                matched.add(entry);
+            }
+        }
+        return replies(request.getCommand(), pattern, matched.size(), (response, index) -> {
+            var entry = matched.get(index);
+            var queue = entry.getValue();
+            response.addParameter(MQConstants.MQCA_Q_NAME, entry.getKey());
+            response.addParameter(MQConstants.MQIA_Q_TYPE, queue.type);
+            if (queue.type == MQConstants.MQQT_LOCAL) {
+                response.addParameter(MQConstants.MQIA_CURRENT_Q_DEPTH, queue.depth);
+            } else if (queue.baseObject != null) {
+                response.addParameter(MQConstants.MQIA_BASE_TYPE, MQConstants.MQOT_TOPIC);
+                response.addParameter(MQConstants.MQCA_BASE_OBJECT_NAME, queue.baseObject);
+            }
+        });
+    }
+
+    private List<PCFMessage> inquireQueueStatus(PCFMessage request) throws PCFException {
+        var pattern = name(request, MQConstants.MQCA_Q_NAME);
+        var matched = localQueues(pattern);
+        return replies(request.getCommand(), pattern, matched.size(), (response, index) -> {
+            var entry = matched.get(index);
+            response.addParameter(MQConstants.MQCA_Q_NAME, entry.getKey());
+            response.addParameter(MQConstants.MQIA_CURRENT_Q_DEPTH, entry.getValue().depth);
+            response.addParameter(MQConstants.MQIACF_OLDEST_MSG_AGE, entry.getValue().depth > 0 ? 0 : -1);
+            response.addParameter(MQConstants.MQIA_OPEN_INPUT_COUNT, 0);
+            response.addParameter(MQConstants.MQIA_OPEN_OUTPUT_COUNT, 0);
+        });
+    }
+
+    private List<PCFMessage> resetQueueStatistics(PCFMessage request) throws PCFException {
+        var pattern = name(request, MQConstants.MQCA_Q_NAME);
+        var matched = localQueues(pattern);
+        var now = System.currentTimeMillis();
+        return replies(request.getCommand(), pattern, matched.size(), (response, index) -> {
+            var entry = matched.get(index);
+            var queue = entry.getValue();
+            synchronized (queue) {
+                response.addParameter(MQConstants.MQCA_Q_NAME, entry.getKey());
+                response.addParameter(MQConstants.MQIA_MSG_ENQ_COUNT, queue.enqueued);
+                response.addParameter(MQConstants.MQIA_MSG_DEQ_COUNT, queue.dequeued);
+                response.addParameter(MQConstants.MQIA_HIGH_Q_DEPTH, queue.highDepth);
+                response.addParameter(MQConstants.MQIA_TIME_SINCE_RESET, (int) ((now - queue.resetAt) / 1000));
+                queue.enqueued = 0;
+                queue.dequeued = 0;
+                queue.highDepth = queue.depth;
+                queue.resetAt = now;
+            }
+        });
+    }
+
+    private List<PCFMessage> inquireTopics(PCFMessage request) throws PCFException {
+        var pattern = name(request, MQConstants.MQCA_TOPIC_NAME);
+        var matched = new ArrayList<Map.Entry<String, String>>();
+        for (var entry : topics.entrySet()) {
+            if (matches(pattern, entry.getKey())) {
+                matched.add(entry);
+            }
+        }
+        return replies(request.getCommand(), pattern, matched.size(), (response, index) -> {
+            response.addParameter(MQConstants.MQCA_TOPIC_NAME, matched.get(index).getKey());
+            response.addParameter(MQConstants.MQCA_TOPIC_STRING, matched.get(index).getValue());
+        });
+    }
+
+    private List<PCFMessage> inquireSubscriptions(PCFMessage request) throws PCFException {
+        var pattern = name(request, MQConstants.MQCACF_SUB_NAME);
+        var matched = new ArrayList<Subscription>();
+        for (var subscription : subscriptions.values()) {
+            if (matches(pattern, subscription.getName())) {
+                matched.add(subscription);
+            }
+        }
+        return replies(request.getCommand(), pattern, matched.size(), (response, index) -> {
+            response.addParameter(MQConstants.MQCACF_SUB_NAME, matched.get(index).getName());
+            response.addParameter(MQConstants.MQCA_TOPIC_NAME, matched.get(index).getTopicName());
+            response.addParameter(MQConstants.MQCACF_DESTINATION, matched.get(index).getDestination());
+        });
+    }
+
+    private List<Map.Entry<String, FakeQueue>> localQueues(String pattern) {
+        var matched = new ArrayList<Map.Entry<String, FakeQueue>>();
+        for (var entry : queues.entrySet()) {
+            if (entry.getValue().type == MQConstants.MQQT_LOCAL && matches(pattern, entry.getKey())) {
+                matched.add(entry);
+            }
+        }
+        return matched;
+    }
+
+    /**
+     * One response per object with the last one flagged, a specific name that matched nothing fails the way the
+     * command server does.
+     */
+    private List<PCFMessage> replies(int command, String pattern, int count, Reply reply) throws PCFException {
+        if (count == 0) {
+            throw error(isGeneric(pattern) ? MQConstants.MQRCCF_NONE_FOUND : MQConstants.MQRC_UNKNOWN_OBJECT_NAME);
+        }
+        var responses = new ArrayList<PCFMessage>(count);
+        for (var i = 0; i < count; i++) {
+            var response = new PCFMessage(MQConstants.MQCFT_RESPONSE, command, i + 1, i == count - 1);
+            reply.fill(response, i);
+            responses.add(response);
+        }
+        return responses;
+    }
+
+    private static PCFMessage response(int command) {
+        return new PCFMessage(MQConstants.MQCFT_RESPONSE, command, 1, true);
+    }
+
+    private static MQCFIF depthFilter(PCFMessage request) {
+        var parameters = request.getParameters();
+        while (parameters.hasMoreElements()) {
+            var parameter = parameters.nextElement();
+            if (parameter instanceof MQCFIF && ((MQCFIF) parameter).getParameter() == MQConstants.MQIA_CURRENT_Q_DEPTH) {
+                return (MQCFIF) parameter;
+            }
+        }
+        return null;
+    }
+
+    private static boolean passes(MQCFIF filter, int value) {
+        var operand = filter.getFilterValue();
+        switch (filter.getOperator()) {
+            case MQConstants.MQCFOP_LESS:
+                return value < operand;
+            case MQConstants.MQCFOP_EQUAL:
+                return value == operand;
+            case MQConstants.MQCFOP_GREATER:
+                return value > operand;
+            case MQConstants.MQCFOP_NOT_LESS:
+                return value >= operand;
+            case MQConstants.MQCFOP_NOT_EQUAL:
+                return value != operand;
+            case MQConstants.MQCFOP_NOT_GREATER:
+                return value <= operand;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Generic names end with an asterisk, everything else matches exactly.
+     */
+    private static boolean matches(String pattern, String name) {
+        if (isGeneric(pattern)) {
+            return name.startsWith(pattern.substring(0, pattern.length() - 1));
+        }
+        return name.equals(pattern);
+    }
+
+    private static boolean isGeneric(String pattern) {
+        return pattern.endsWith("*");
+    }
+
+    private static boolean isNoneFound(int reason) {
+        return reason == MQConstants.MQRC_UNKNOWN_OBJECT_NAME || reason == MQConstants.MQRCCF_NONE_FOUND;
+    }
+
+    private FakeQueue local(String queueName) throws PCFException {
+        var queue = existing(queues, queueName);
+        if (queue.type != MQConstants.MQQT_LOCAL) {
+            throw error(MQConstants.MQRCCF_Q_WRONG_TYPE);
+        }
+        return queue;
+    }
+
+    private static <T> T existing(Map<String, T> objects, String name) throws PCFException {
+        var object = objects.get(name);
+        if (object == null) {
+            throw error(MQConstants.MQRC_UNKNOWN_OBJECT_NAME);
+        }
+        return object;
+    }
+
+    private static String name(PCFMessage request, int parameter) throws PCFException {
+        var value = request.getParameterValue(parameter);
+        if (!(value instanceof String)) {
+            throw error(MQConstants.MQRCCF_OBJECT_NAME_ERROR);
+        }
+        return ((String) value).trim();
+    }
+
+    private static int intValue(PCFMessage request, int parameter, int defaultValue) {
+        var value = request.getParameterValue(parameter);
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    private static PCFException error(int reason) {
+        return new PCFException(MQConstants.MQCC_FAILED, reason, FakeQueueManager.class.getSimpleName());
+    }
+
+    private void inject() throws MQException {
+        var reason = failures.poll();
+        if (reason == null && failureRate > 0 && ThreadLocalRandom.current().nextDouble() < failureRate) {
+            reason = failureReason;
+        }
+        if (reason == null) {
+            return;
+        }
+        var exception = new MQException(MQConstants.MQCC_FAILED, reason, this);
+        if (ConnectionPool.isConnectionError(exception)) {
+            throw exception;
+        }
+        throw error(reason);
+    }
+
+    private Duration latencyOf(int command) {
+        return latencies.getOrDefault(command, latency);
+    }
+
+    private void acquire() throws IOException {
+        acquire(1);
+    }
+
+    private void acquire(int count) throws IOException {
+        try {
+            permits.acquire(count);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for a connection", e);
+        }
+    }
+
+    /**
+     * Waits for the latency with microsecond precision. {@code Thread.sleep} rounds up to whole milliseconds on older
+     * JDKs, which would double a sub-millisecond round trip, so the wait parks until shortly before the deadline and
+     * spins for the rest.
+     */
+    private static void pause(Duration latency) throws IOException {
+        if (latency.isZero()) {
+            return;
+        }
+        var deadline = System.nanoTime() + latency.toNanos();
+        for (var remaining = latency.toNanos(); remaining > 0; remaining = deadline - System.nanoTime()) {
+            if (Thread.interrupted()) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted waiting for a reply");
+            }
+            if (remaining > SPIN_NANOS) {
+                LockSupport.parkNanos(remaining - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface Reply {
+        void fill(PCFMessage response, int index);
+    }
+
+    private static class FakeQueue {
+        private int type;
+        private String baseObject;
+        private int depth;
+        private int highDepth;
+        private int enqueued;
+        private int dequeued;
+        private long resetAt;
+    }
+}
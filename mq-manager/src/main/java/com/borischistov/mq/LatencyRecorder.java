@@ -0,0 +1,84 @@
+package com.borischistov.mq;
+
+/**
+ * Log-linear histogram of nanosecond values owned by a single thread, merged into a total once the threads are done.
+ * Every power of two range is split into {@value #SUB_BUCKETS} linear sub buckets, which keeps relative error under
+ * 12.5% with 496 counters, about 4 KB per recorder, and no allocation while recording.
+ */
+class LatencyRecorder {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (63 - SUB_BUCKET_BITS) * SUB_BUCKETS + 2 * SUB_BUCKETS;
+
+    private final long[] counts = new long[BUCKETS];
+    private long count;
+    private long sum;
+
+    void record(long nanos) {
+        var value = Math.max(0, nanos);
+        counts[index(value)]++;
+        count++;
+        sum += value;
+    }
+
+    void add(LatencyRecorder other) {
+        for (var i = 0; i < BUCKETS; i++) {
+            counts[i] += other.counts[i];
+        }
+        count += other.count;
+        sum += other.sum;
+    }
+
+    long count() {
+        return count;
+    }
+
+    double mean() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    long max() {
+        for (var i = BUCKETS - 1; i >= 0; i--) {
+            if (counts[i] != 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @param percentile value in {@code [0, 100]}
+     * @return upper bound of the bucket holding the percentile
+     */
+    long percentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        var rank = Math.max(1, (long) Math.ceil(percentile / 100d * count));
+        var seen = 0L;
+        for (var i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return upperBound(i);
+            }
+        }
+        return max();
+    }
+
+    private static int index(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        var shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return shift * SUB_BUCKETS + (int) (value >>> shift);
+    }
+
+    private static long upperBound(int index) {
+        if (index < 2 * SUB_BUCKETS) {
+            return index;
+        }
+        var shift = index / SUB_BUCKETS - 1;
+        return ((long) (index % SUB_BUCKETS + SUB_BUCKETS) << shift) + (1L << shift) - 1;
+    }
+}
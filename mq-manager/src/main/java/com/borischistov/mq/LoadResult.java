@@ -0,0 +1,77 @@
+package com.borischistov.mq;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Outcome of a {@link MessageLoader} run. Message latency is one put or get call, batch latency includes the commit.
+ */
+@Getter
+public class LoadResult {
+    private final long messages;
+    private final long batches;
+    private final long durationNanos;
+    private final List<Exception> errors;
+    @Getter(AccessLevel.NONE)
+    private final LatencyRecorder messageLatency;
+    @Getter(AccessLevel.NONE)
+    private final LatencyRecorder batchLatency;
+
+    LoadResult(
+            long messages,
+            long batches,
+            long durationNanos,
+            List<Exception> errors,
+            LatencyRecorder messageLatency,
+            LatencyRecorder batchLatency
+    ) {
+        this.messages = messages;
+        this.batches = batches;
+        this.durationNanos = durationNanos;
+        this.errors = Collections.unmodifiableList(errors);
+        this.messageLatency = messageLatency;
+        this.batchLatency = batchLatency;
+    }
+
+    public double messagesPerSecond() {
+        return durationNanos == 0 ? 0 : messages * 1_000_000_000d / durationNanos;
+    }
+
+    /**
+     * @param percentile value in {@code [0, 100]}
+     */
+    public long messageLatencyNanos(double percentile) {
+        return messageLatency.percentile(percentile);
+    }
+
+    /**
+     * @param percentile value in {@code [0, 100]}
+     */
+    public long batchLatencyNanos(double percentile) {
+        return batchLatency.percentile(percentile);
+    }
+
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d messages in %d batches, %.0f msgs/s, %d errors, message us p50/p99/p99.9/max: %.1f/%.1f/%.1f/%.1f, "
+                        + "batch us p50/p99/p99.9/max: %.1f/%.1f/%.1f/%.1f",
+                messages, batches, messagesPerSecond(), errors.size(),
+                micros(messageLatency.percentile(50)), micros(messageLatency.percentile(99)),
+                micros(messageLatency.percentile(99.9)), micros(messageLatency.max()),
+                micros(batchLatency.percentile(50)), micros(batchLatency.percentile(99)),
+                micros(batchLatency.percentile(99.9)), micros(batchLatency.max())
+        );
+    }
+
+    private static double micros(long nanos) {
+        return nanos / 1_000d;
+    }
+}
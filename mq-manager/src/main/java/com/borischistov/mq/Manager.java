@@ -1,22 +1,31 @@
 package com.borischistov.mq;
 
 import com.ibm.mq.MQException;
-import com.ibm.mq.MQQueueManager;
 import com.ibm.mq.constants.MQConstants;
 import com.ibm.mq.pcf.PCFException;
 import com.ibm.mq.pcf.PCFMessage;
-import com.ibm.mq.pcf.PCFMessageAgent;
 import com.ibm.mq.pcf.PCFParameter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.Closeable;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.UncheckedIOException;
+import java.util.Collection;
 import java.util.Enumeration;
-import java.util.Hashtable;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * ibm mq docs - https://www.ibm.com/support/knowledgecenter/en/SSFKSJ_8.0.0/com.ibm.mq.ref.adm.doc/q086990_.htm
@@ -26,7 +35,11 @@ public class Manager implements Closeable {
     private static final Logger logger = LoggerFactory.getLogger(Manager.class);
 
     public static void main(String[] args) throws MQException, IOException {
-        try (var manager = new Manager();) {
+        // runs against the in-memory queue manager, -Dmq.real=true connects to the queue manager in the mq.* properties
+        var transport = Boolean.getBoolean("mq.real")
+                ? new PooledPcfTransport(ConnectionSettings.fromProperties(System.getProperties()))
+                : new FakeQueueManager();
+        try (var manager = new Manager(transport)) {
             manager.createQueue("ARQ/1/2");
             manager.createQueue("ARQ/2/3");
             manager.createQueue("ARQ/3/4");
@@ -35,6 +48,10 @@ public class Manager implements Closeable {
             manager.getQueues("*").forEach(queue -> {
                 logger.info("Queue: {}, depth: {}", queue.getName(), queue.getDepth());
             });
+            var query = QueueQuery.builder().queueType(MQConstants.MQQT_LOCAL).depthGreaterThan(0).build();
+            try (var queues = manager.streamQueues(query)) {
+                queues.forEach(queue -> logger.info("Non empty queue: {}, depth: {}", queue.getName(), queue.getDepth()));
+            }
 //            manager.createTopic("T.1.2");
 //            manager.createAliasForTopic("TQ/1/2", "T.1.2");
 //            manager.createSubscription("ARQS/1/2", "T.1.2", "ARQ/1/2");
@@ -50,133 +67,332 @@ public class Manager implements Closeable {
         }
     }
 
-    private final MQQueueManager qm;
-    private final PCFMessageAgent agent;
+    private final PcfTransport transport;
+    private final ExecutorService executor;
+    private final Reconciler reconciler;
 
     public Manager() throws MQException {
-        var connectionParams = new Hashtable<String, Object>();
-        connectionParams.put(MQConstants.HOST_NAME_PROPERTY, "127.0.0.1");
-        connectionParams.put(MQConstants.PORT_PROPERTY, 1414);
-        connectionParams.put(MQConstants.USER_ID_PROPERTY, "mqm");
-        connectionParams.put(MQConstants.PASSWORD_PROPERTY, "RfyHYSZJ");
-        connectionParams.put(MQConstants.CHANNEL_PROPERTY, "SRVCHL");
+        this(ConnectionSettings.builder().build());
+    }
+
+    /**
+     * Commands run on connections borrowed from a pool, so blocking calls from different threads and the
+     * {@code *Async} calls run in parallel up to the pool size.
+     */
+    public Manager(ConnectionSettings settings) throws MQException {
+        this(new PooledPcfTransport(settings));
+    }
 
-        qm = new MQQueueManager("QM1", connectionParams);
-        agent = new PCFMessageAgent(qm);
-        agent.setCheckResponses(true);
+    /**
+     * Runs commands through the given transport, {@link FakeQueueManager} runs them without a queue manager.
+     * The manager closes the transport when it is closed.
+     */
+    public Manager(PcfTransport transport) {
+        this.transport = transport;
+        var threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(transport.parallelism(), runnable -> {
+            var thread = new Thread(runnable, "mq-manager-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.reconciler = new Reconciler(this, transport);
     }
 
     public void removeQueue(String qName) throws MQException, IOException {
-        var request = new PCFMessage(MQConstants.MQCMD_DELETE_Q);
-        request.addParameter(MQConstants.MQCA_Q_NAME, qName);
-        request.addParameter(MQConstants.MQIACF_PURGE, MQConstants.MQPO_YES);
-        for(var response : execute(request)) {
+        for(var response : execute(removeQueueRequest(qName))) {
             logParameters(response);
         }
     }
 
     public void createSubscription(String subsName, String tName, String qName) throws MQException, IOException {
-        var request = new PCFMessage(MQConstants.MQCMD_CREATE_SUBSCRIPTION);
-        request.addParameter(MQConstants.MQCACF_SUB_NAME, subsName);
-        request.addParameter(MQConstants.MQCA_TOPIC_NAME, tName);
-        request.addParameter(MQConstants.MQCACF_DESTINATION, qName);
-        for(var response : execute(request)) {
+        for(var response : execute(createSubscriptionRequest(subsName, tName, qName))) {
             logParameters(response);
         }
     }
 
     public Queue createAliasForTopic(String aliasName, String tName) throws MQException, IOException {
-        var request = new PCFMessage(MQConstants.MQCMD_CREATE_Q);
-        request.addParameter(MQConstants.MQCA_Q_NAME, aliasName);
-        request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_ALIAS);
-        request.addParameter(MQConstants.MQIA_BASE_TYPE, MQConstants.MQOT_TOPIC);
-        request.addParameter(MQConstants.MQCA_BASE_OBJECT_NAME, tName);
-        for(var response : execute(request)) {
+        for(var response : execute(createAliasForTopicRequest(aliasName, tName))) {
             logParameters(response);
         }
         return Queue.builder().name(aliasName).build();
     }
 
     public Queue createQueue(String qName) throws MQException, IOException {
-        var request = new PCFMessage(MQConstants.MQCMD_CREATE_Q);
-        request.addParameter(MQConstants.MQCA_Q_NAME, qName);
-        request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_LOCAL);
-        request.addParameter(MQConstants.MQIA_DIST_LISTS, MQConstants.MQDL_SUPPORTED);
-        for(var response : execute(request)) {
+        for(var response : execute(createQueueRequest(qName))) {
             logParameters(response);
         }
         return Queue.builder().name(qName).build();
     }
 
     public List<Queue> getQueues(String pattern) throws MQException, IOException {
+        return collect(streamQueues(QueueQuery.builder().pattern(pattern).build()));
+    }
+
+    /**
+     * Lazily maps inquiry replies into queues as they arrive, only the attributes of the query are filled in.
+     * The stream holds a pooled connection until it is consumed or closed.
+     */
+    public Stream<Queue> streamQueues(QueueQuery query) throws MQException, IOException {
         var request = new PCFMessage(MQConstants.MQCMD_INQUIRE_Q);
-        request.addParameter(MQConstants.MQCA_Q_NAME, pattern);
-        request.addParameter(MQConstants.MQIACF_Q_ATTRS, new int[]{MQConstants.MQIACF_ALL});
-        List<Queue> result = new ArrayList<>();
-        for (var response : execute(request)) {
-            logParameters(response);
-            var queue = new Queue();
-            extractParam(response, MQConstants.MQCA_Q_NAME, String.class).map(String::trim).ifPresent(queue::setName);
-            extractParam(response, MQConstants.MQIA_CURRENT_Q_DEPTH, Integer.class).ifPresent(queue::setDepth);
-            result.add(queue);
+        request.addParameter(MQConstants.MQCA_Q_NAME, query.getPattern());
+        if (query.getQueueType() != null) {
+            request.addParameter(MQConstants.MQIA_Q_TYPE, query.getQueueType());
         }
-        return result;
+        request.addParameter(MQConstants.MQIACF_Q_ATTRS, query.getAttributes());
+        if (query.getDepthGreaterThan() != null) {
+            request.addFilterParameter(MQConstants.MQIA_CURRENT_Q_DEPTH, MQConstants.MQCFOP_GREATER, query.getDepthGreaterThan());
+        }
+        return transport.stream(request).map(this::toQueue);
     }
 
     public void purgeQueue(String queueName) throws MQException, IOException {
-        var request = new PCFMessage(MQConstants.MQCMD_CLEAR_Q);
-        request.addParameter(MQConstants.MQCA_Q_NAME, queueName);
-        for(var response : execute(request)) {
+        for(var response : execute(purgeQueueRequest(queueName))) {
             logParameters(response);
         }
     }
 
     public void removeTopic(String tName) throws MQException, IOException {
-        var request = new PCFMessage(MQConstants.MQCMD_DELETE_TOPIC);
-        request.addParameter(MQConstants.MQCA_TOPIC_NAME, tName);
-        for(var response : execute(request)) {
+        for(var response : execute(removeTopicRequest(tName))) {
             logParameters(response);
         }
     }
 
     public void createTopic(String tName) throws MQException, IOException {
-        var request = new PCFMessage(MQConstants.MQCMD_CREATE_TOPIC);
-        request.addParameter(MQConstants.MQCA_TOPIC_NAME, tName);
-        request.addParameter(MQConstants.MQCA_TOPIC_STRING, tName);
-        for(var response : execute(request)) {
+        for(var response : execute(createTopicRequest(tName))) {
             logParameters(response);
         }
     }
 
     public List<Topic> getTopics(String pattern) throws MQException, IOException {
+        return collect(streamTopics(pattern, MQConstants.MQCA_TOPIC_NAME, MQConstants.MQCA_TOPIC_STRING));
+    }
+
+    /**
+     * Lazily maps inquiry replies into topics, see {@link #streamQueues(QueueQuery)}.
+     *
+     * @param attributes {@code MQIACF_TOPIC_ATTRS} selectors
+     */
+    public Stream<Topic> streamTopics(String pattern, int... attributes) throws MQException, IOException {
         var request = new PCFMessage(MQConstants.MQCMD_INQUIRE_TOPIC);
         request.addParameter(MQConstants.MQCA_TOPIC_NAME, pattern);
-        var result = new ArrayList<Topic>();
-        for(var response : execute(request)) {
+        request.addParameter(MQConstants.MQIACF_TOPIC_ATTRS, attributes);
+        return transport.stream(request).map(this::toTopic);
+    }
+
+    /**
+     * Current depth, oldest message age and open handle counts of local queues, see {@link QueueMonitor}.
+     */
+    public Stream<QueueStatus> streamQueueStatus(String pattern) throws MQException, IOException {
+        var request = new PCFMessage(MQConstants.MQCMD_INQUIRE_Q_STATUS);
+        request.addParameter(MQConstants.MQCA_Q_NAME, pattern);
+        request.addParameter(MQConstants.MQIACF_Q_STATUS_TYPE, MQConstants.MQIACF_Q_STATUS);
+        request.addParameter(MQConstants.MQIACF_Q_STATUS_ATTRS, new int[]{
+                MQConstants.MQCA_Q_NAME,
+                MQConstants.MQIA_CURRENT_Q_DEPTH,
+                MQConstants.MQIACF_OLDEST_MSG_AGE,
+                MQConstants.MQIA_OPEN_INPUT_COUNT,
+                MQConstants.MQIA_OPEN_OUTPUT_COUNT
+        });
+        return transport.stream(request).map(response -> QueueStatus
+                .builder()
+                .name(extractParam(response, MQConstants.MQCA_Q_NAME, String.class).map(String::trim).orElse(null))
+                .depth(extractParam(response, MQConstants.MQIA_CURRENT_Q_DEPTH, Integer.class).orElse(0))
+                .oldestMessageAge(extractParam(response, MQConstants.MQIACF_OLDEST_MSG_AGE, Integer.class).orElse(-1))
+                .openInputCount(extractParam(response, MQConstants.MQIA_OPEN_INPUT_COUNT, Integer.class).orElse(0))
+                .openOutputCount(extractParam(response, MQConstants.MQIA_OPEN_OUTPUT_COUNT, Integer.class).orElse(0))
+                .build()
+        );
+    }
+
+    /**
+     * Reads and resets enqueue and dequeue counters of local queues. Counters are shared by everyone reading them.
+     */
+    public Stream<QueueStatistics> resetQueueStatistics(String pattern) throws MQException, IOException {
+        var request = new PCFMessage(MQConstants.MQCMD_RESET_Q_STATS);
+        request.addParameter(MQConstants.MQCA_Q_NAME, pattern);
+        return transport.stream(request).map(response -> QueueStatistics
+                .builder()
+                .name(extractParam(response, MQConstants.MQCA_Q_NAME, String.class).map(String::trim).orElse(null))
+                .enqueueCount(extractParam(response, MQConstants.MQIA_MSG_ENQ_COUNT, Integer.class).orElse(0))
+                .dequeueCount(extractParam(response, MQConstants.MQIA_MSG_DEQ_COUNT, Integer.class).orElse(0))
+                .highDepth(extractParam(response, MQConstants.MQIA_HIGH_Q_DEPTH, Integer.class).orElse(0))
+                .secondsSinceReset(extractParam(response, MQConstants.MQIA_TIME_SINCE_RESET, Integer.class).orElse(0))
+                .build()
+        );
+    }
+
+    public List<Subscription> getSubscriptions(String pattern) throws MQException, IOException {
+        return collect(streamSubscriptions(pattern));
+    }
+
+    /**
+     * Lazily maps inquiry replies into subscriptions, see {@link #streamQueues(QueueQuery)}.
+     */
+    public Stream<Subscription> streamSubscriptions(String pattern) throws MQException, IOException {
+        var request = new PCFMessage(MQConstants.MQCMD_INQUIRE_SUBSCRIPTION);
+        request.addParameter(MQConstants.MQCACF_SUB_NAME, pattern);
+        request.addParameter(MQConstants.MQIACF_SUB_ATTRS, new int[]{
+                MQConstants.MQCACF_SUB_NAME,
+                MQConstants.MQCA_TOPIC_NAME,
+                MQConstants.MQCACF_DESTINATION
+        });
+        return transport.stream(request).map(this::toSubscription);
+    }
+
+    /**
+     * Changes {@link #reconcile(Topology)} would apply, without applying them.
+     */
+    public List<TopologyChange> plan(Topology topology) throws MQException, IOException {
+        return reconciler.plan(topology);
+    }
+
+    /**
+     * Reads the current queues, topics and subscriptions with one inquiry each and applies only the differences,
+     * see {@link Reconciler}. Running it against a queue manager that already matches sends no commands.
+     */
+    public ReconcileResult reconcile(Topology topology) throws MQException, IOException {
+        return reconciler.reconcile(topology);
+    }
+
+    public void removeSubscription(String subsName) throws MQException, IOException {
+        for(var response : execute(removeSubscriptionRequest(subsName))) {
             logParameters(response);
-            var topic = new Topic();
-            extractParam(response, MQConstants.MQCA_TOPIC_NAME, String.class).map(String::trim).ifPresent(topic::setTopicName);
-            extractParam(response, MQConstants.MQCA_TOPIC_STRING, String.class).map(String::trim).ifPresent(topic::setTopicTree);
-            result.add(topic);
         }
+    }
+
+    /**
+     * Bulk operations pipeline the commands where the transport supports it, see {@link BulkExecutor}. Errors are
+     * reported per object in the result instead of being thrown.
+     */
+    public BulkResult createQueues(Collection<String> qNames) {
+        return bulk(qNames, Manager::createQueueRequest);
+    }
+
+    public BulkResult removeQueues(Collection<String> qNames) {
+        return bulk(qNames, Manager::removeQueueRequest);
+    }
+
+    public BulkResult purgeQueues(Collection<String> qNames) {
+        return bulk(qNames, Manager::purgeQueueRequest);
+    }
+
+    public BulkResult createTopics(Collection<String> tNames) {
+        return bulk(tNames, Manager::createTopicRequest);
+    }
+
+    public BulkResult removeTopics(Collection<String> tNames) {
+        return bulk(tNames, Manager::removeTopicRequest);
+    }
+
+    /**
+     * @param aliases alias queue name to topic name
+     */
+    public BulkResult createAliasesForTopics(Map<String, String> aliases) {
+        var requests = new LinkedHashMap<String, PCFMessage>();
+        aliases.forEach((aliasName, tName) -> requests.put(aliasName, createAliasForTopicRequest(aliasName, tName)));
+        return transport.sendAll(requests);
+    }
+
+    public BulkResult createSubscriptions(Collection<Subscription> subscriptions) {
+        var requests = new LinkedHashMap<String, PCFMessage>();
+        for (var subscription : subscriptions) {
+            requests.put(
+                    subscription.getName(),
+                    createSubscriptionRequest(subscription.getName(), subscription.getTopicName(), subscription.getDestination())
+            );
+        }
+        return transport.sendAll(requests);
+    }
+
+    public BulkResult removeSubscriptions(Collection<String> subsNames) {
+        return bulk(subsNames, Manager::removeSubscriptionRequest);
+    }
+
+    public CompletableFuture<Queue> createQueueAsync(String qName) {
+        return async(() -> createQueue(qName));
+    }
+
+    public CompletableFuture<Void> removeQueueAsync(String qName) {
+        return async(() -> {
+            removeQueue(qName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> purgeQueueAsync(String queueName) {
+        return async(() -> {
+            purgeQueue(queueName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Queue>> getQueuesAsync(String pattern) {
+        return async(() -> getQueues(pattern));
+    }
+
+    public CompletableFuture<Queue> createAliasForTopicAsync(String aliasName, String tName) {
+        return async(() -> createAliasForTopic(aliasName, tName));
+    }
+
+    public CompletableFuture<Void> createSubscriptionAsync(String subsName, String tName, String qName) {
+        return async(() -> {
+            createSubscription(subsName, tName, qName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<Void> createTopicAsync(String tName) {
+        return async(() -> {
+            createTopic(tName);
+            return null;
+        });
+    }
 
+    public CompletableFuture<Void> removeTopicAsync(String tName) {
+        return async(() -> {
+            removeTopic(tName);
+            return null;
+        });
+    }
+
+    public CompletableFuture<List<Topic>> getTopicsAsync(String pattern) {
+        return async(() -> getTopics(pattern));
+    }
+
+    /**
+     * Runs the command on the manager executor, checked exceptions complete the future exceptionally.
+     */
+    public <T> CompletableFuture<T> async(Command<T> command) {
+        var result = new CompletableFuture<T>();
+        try {
+            executor.execute(() -> {
+                try {
+                    result.complete(command.call());
+                } catch (Exception e) {
+                    result.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            result.completeExceptionally(e);
+        }
         return result;
     }
 
     @Override
     public void close() throws IOException {
-        if(qm != null) {
-            try {
-                qm.close();
-            } catch (MQException ignored) {
-
-            }
+        reconciler.close();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
         }
+        transport.close();
     }
 
     private PCFMessage[] execute(PCFMessage request) throws MQException, IOException {
         try {
-            return agent.send(request);
+            return transport.send(request);
         } catch (PCFException e) {
             var reason = MQConstants.lookupReasonCode(e.getReason());
             logger.warn("Error: {}, message: {}", reason, e.getMessage());
@@ -184,6 +400,143 @@ public class Manager implements Closeable {
         }
     }
 
+    private Queue toQueue(PCFMessage response) {
+        logParameters(response);
+        var queue = new Queue();
+        extractParam(response, MQConstants.MQCA_Q_NAME, String.class).map(String::trim).ifPresent(queue::setName);
+        extractParam(response, MQConstants.MQIA_CURRENT_Q_DEPTH, Integer.class).ifPresent(queue::setDepth);
+        extractParam(response, MQConstants.MQIA_Q_TYPE, Integer.class).ifPresent(queue::setType);
+        extractParam(response, MQConstants.MQCA_BASE_OBJECT_NAME, String.class).map(String::trim).ifPresent(queue::setBaseObject);
+        return queue;
+    }
+
+    private Subscription toSubscription(PCFMessage response) {
+        logParameters(response);
+        var subscription = new Subscription();
+        extractParam(response, MQConstants.MQCACF_SUB_NAME, String.class).map(String::trim).ifPresent(subscription::setName);
+        extractParam(response, MQConstants.MQCA_TOPIC_NAME, String.class).map(String::trim).ifPresent(subscription::setTopicName);
+        extractParam(response, MQConstants.MQCACF_DESTINATION, String.class).map(String::trim).ifPresent(subscription::setDestination);
+        return subscription;
+    }
+
+    private Topic toTopic(PCFMessage response) {
+        logParameters(response);
+        var topic = new Topic();
+        extractParam(response, MQConstants.MQCA_TOPIC_NAME, String.class).map(String::trim).ifPresent(topic::setTopicName);
+        extractParam(response, MQConstants.MQCA_TOPIC_STRING, String.class).map(String::trim).ifPresent(topic::setTopicTree);
+        return topic;
+    }
+
+    /**
+     * Collects a stream of {@link PcfTransport#stream(PCFMessage)} replies, rethrowing the checked exception wrapped during consumption.
+     */
+    static <T> List<T> collect(Stream<T> stream) throws MQException, IOException {
+        try (stream) {
+            return stream.collect(Collectors.toList());
+        } catch (UncheckedMQException e) {
+            throw e.getCause();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private BulkResult bulk(Collection<String> names, Function<String, PCFMessage> request) {
+        var requests = new LinkedHashMap<String, PCFMessage>();
+        for (var name : names) {
+            requests.put(name, request.apply(name));
+        }
+        return transport.sendAll(requests);
+    }
+
+    static PCFMessage createQueueRequest(String qName) {
+        var request = new PCFMessage(MQConstants.MQCMD_CREATE_Q);
+        request.addParameter(MQConstants.MQCA_Q_NAME, qName);
+        request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_LOCAL);
+        request.addParameter(MQConstants.MQIA_DIST_LISTS, MQConstants.MQDL_SUPPORTED);
+        return request;
+    }
+
+    static PCFMessage removeQueueRequest(String qName) {
+        var request = new PCFMessage(MQConstants.MQCMD_DELETE_Q);
+        request.addParameter(MQConstants.MQCA_Q_NAME, qName);
+        request.addParameter(MQConstants.MQIACF_PURGE, MQConstants.MQPO_YES);
+        return request;
+    }
+
+    static PCFMessage purgeQueueRequest(String queueName) {
+        var request = new PCFMessage(MQConstants.MQCMD_CLEAR_Q);
+        request.addParameter(MQConstants.MQCA_Q_NAME, queueName);
+        return request;
+    }
+
+    static PCFMessage createAliasForTopicRequest(String aliasName, String tName) {
+        var request = new PCFMessage(MQConstants.MQCMD_CREATE_Q);
+        request.addParameter(MQConstants.MQCA_Q_NAME, aliasName);
+        request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_ALIAS);
+        request.addParameter(MQConstants.MQIA_BASE_TYPE, MQConstants.MQOT_TOPIC);
+        request.addParameter(MQConstants.MQCA_BASE_OBJECT_NAME, tName);
+        return request;
+    }
+
+    static PCFMessage alterAliasForTopicRequest(String aliasName, String tName) {
+        var request = new PCFMessage(MQConstants.MQCMD_CHANGE_Q);
+        request.addParameter(MQConstants.MQCA_Q_NAME, aliasName);
+        request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_ALIAS);
+        request.addParameter(MQConstants.MQIA_BASE_TYPE, MQConstants.MQOT_TOPIC);
+        request.addParameter(MQConstants.MQCA_BASE_OBJECT_NAME, tName);
+        return request;
+    }
+
+    static PCFMessage removeAliasRequest(String aliasName) {
+        var request = new PCFMessage(MQConstants.MQCMD_DELETE_Q);
+        request.addParameter(MQConstants.MQCA_Q_NAME, aliasName);
+        request.addParameter(MQConstants.MQIA_Q_TYPE, MQConstants.MQQT_ALIAS);
+        return request;
+    }
+
+    static PCFMessage createTopicRequest(String tName) {
+        return createTopicRequest(tName, tName);
+    }
+
+    static PCFMessage createTopicRequest(String tName, String topicString) {
+        var request = new PCFMessage(MQConstants.MQCMD_CREATE_TOPIC);
+        request.addParameter(MQConstants.MQCA_TOPIC_NAME, tName);
+        request.addParameter(MQConstants.MQCA_TOPIC_STRING, topicString);
+        return request;
+    }
+
+    static PCFMessage removeTopicRequest(String tName) {
+        var request = new PCFMessage(MQConstants.MQCMD_DELETE_TOPIC);
+        request.addParameter(MQConstants.MQCA_TOPIC_NAME, tName);
+        return request;
+    }
+
+    static PCFMessage createSubscriptionRequest(String subsName, String tName, String qName) {
+        var request = new PCFMessage(MQConstants.MQCMD_CREATE_SUBSCRIPTION);
+        request.addParameter(MQConstants.MQCACF_SUB_NAME, subsName);
+        request.addParameter(MQConstants.MQCA_TOPIC_NAME, tName);
+        request.addParameter(MQConstants.MQCACF_DESTINATION, qName);
+        return request;
+    }
+
+    static PCFMessage alterSubscriptionRequest(String subsName, String qName) {
+        var request = new PCFMessage(MQConstants.MQCMD_CHANGE_SUBSCRIPTION);
+        request.addParameter(MQConstants.MQCACF_SUB_NAME, subsName);
+        request.addParameter(MQConstants.MQCACF_DESTINATION, qName);
+        return request;
+    }
+
+    static PCFMessage removeSubscriptionRequest(String subsName) {
+        var request = new PCFMessage(MQConstants.MQCMD_DELETE_SUBSCRIPTION);
+        request.addParameter(MQConstants.MQCACF_SUB_NAME, subsName);
+        return request;
+    }
+
+    @FunctionalInterface
+    public interface Command<T> {
+        T call() throws MQException, IOException;
+    }
+
     private void logParameters(PCFMessage message) {
         if(logger.isDebugEnabled()) {
             Enumeration<?> enumeration = message.getParameters();
@@ -0,0 +1,41 @@
+package com.borischistov.mq;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * What {@link MessageLoader} puts or gets and how hard it pushes.
+ */
+@Data
+@Builder(toBuilder = true)
+public class MessageLoadSettings {
+    private String queueName;
+    /**
+     * Connections working the queue in parallel, each on its own thread.
+     */
+    @Builder.Default
+    private int connections = 4;
+    /**
+     * Messages per syncpoint, committed together.
+     */
+    @Builder.Default
+    private int batchSize = 100;
+    @Builder.Default
+    private int messageSize = 1024;
+    /**
+     * Total messages over all connections, {@code 0} runs until {@code duration} is over or, for gets, the queue is
+     * empty.
+     */
+    @Builder.Default
+    private long messages = 0;
+    @Builder.Default
+    private Duration duration = Duration.ofSeconds(30);
+    private boolean persistent;
+    /**
+     * Get wait for the next message, a connection that gets nothing within it considers the queue drained.
+     */
+    @Builder.Default
+    private Duration waitInterval = Duration.ofSeconds(1);
+}
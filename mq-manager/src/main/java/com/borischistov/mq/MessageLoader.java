@@ -0,0 +1,311 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.MQGetMessageOptions;
+import com.ibm.mq.MQMessage;
+import com.ibm.mq.MQPutMessageOptions;
+import com.ibm.mq.MQQueueManager;
+import com.ibm.mq.constants.MQConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fills, drains and load tests queues. Every connection runs on its own thread and puts or gets under syncpoint,
+ * committing once per batch, so the queue manager forces the log once per batch instead of once per message. The
+ * message object and its payload are allocated once per connection and reused for the whole run.
+ * <pre>
+ * java -Dmq.host=mq1 -cp mq-manager.jar com.borischistov.mq.MessageLoader put APP.IN --messages=1000000 --connections=8
+ * java -Dmq.host=mq1 -cp mq-manager.jar com.borischistov.mq.MessageLoader get APP.IN --batch-size=500
+ * </pre>
+ */
+public class MessageLoader {
+
+    private static final Logger logger = LoggerFactory.getLogger(MessageLoader.class);
+
+    private final ConnectionSettings settings;
+
+    public MessageLoader(ConnectionSettings settings) {
+        this.settings = settings;
+    }
+
+    public static void main(String[] args) throws MQException, IOException {
+        if (args.length < 2 || !("put".equals(args[0]) || "get".equals(args[0]))) {
+            throw new IllegalArgumentException("Usage: MessageLoader put|get QUEUE [--option=value]");
+        }
+        var options = Options.parse(args, 2);
+        var defaults = MessageLoadSettings.builder().build();
+        var load = defaults
+                .toBuilder()
+                .queueName(args[1])
+                .connections(options.getInt("connections", defaults.getConnections()))
+                .batchSize(options.getInt("batch-size", defaults.getBatchSize()))
+                .messageSize(options.getInt("message-size", defaults.getMessageSize()))
+                .messages(options.getLong("messages", defaults.getMessages()))
+                .duration(Duration.ofSeconds(options.getLong("duration", defaults.getDuration().getSeconds())))
+                .persistent(options.getBoolean("persistent", defaults.isPersistent()))
+                .build();
+        var loader = new MessageLoader(ConnectionSettings.fromProperties(System.getProperties()));
+        var result = "put".equals(args[0]) ? loader.put(load) : loader.get(load);
+        logger.info("{} {}: {}", args[0], load.getQueueName(), result);
+    }
+
+    /**
+     * Puts {@code messages} messages, or as many as fit in {@code duration}, of {@code messageSize} bytes.
+     */
+    public LoadResult put(MessageLoadSettings load) throws MQException, IOException {
+        return run(load, this::putWorker);
+    }
+
+    /**
+     * Gets {@code messages} messages, or until the queue stays empty for {@code waitInterval} or {@code duration} is
+     * over.
+     */
+    public LoadResult get(MessageLoadSettings load) throws MQException, IOException {
+        return run(load, this::getWorker);
+    }
+
+    private LoadResult run(MessageLoadSettings load, Job job) throws MQException, IOException {
+        var budget = new Budget(load.getMessages());
+        var threads = new AtomicInteger();
+        var executor = Executors.newFixedThreadPool(load.getConnections(), runnable -> {
+            var thread = new Thread(runnable, "mq-loader-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        var futures = new ArrayList<Future<Worker>>(load.getConnections());
+        try {
+            // all connections are opened before the clock starts so that connect time doesn't count as throughput
+            var connections = new ArrayList<MQQueueManager>(load.getConnections());
+            try {
+                for (var i = 0; i < load.getConnections(); i++) {
+                    connections.add(new MQQueueManager(settings.getQueueManager(), settings.connectionProperties()));
+                }
+            } catch (MQException e) {
+                connections.forEach(MessageLoader::disconnect);
+                throw e;
+            }
+            var started = System.nanoTime();
+            var deadline = started + load.getDuration().toNanos();
+            for (var qm : connections) {
+                futures.add(executor.submit(() -> {
+                    var worker = new Worker();
+                    try {
+                        job.run(qm, load, budget, deadline, worker);
+                    } catch (MQException | IOException e) {
+                        logger.warn("Loader connection failed: {}", e.getMessage());
+                        worker.error = e;
+                    } finally {
+                        disconnect(qm);
+                    }
+                    return worker;
+                }));
+            }
+            var messageLatency = new LatencyRecorder();
+            var batchLatency = new LatencyRecorder();
+            var errors = new ArrayList<Exception>();
+            var messages = 0L;
+            var batches = 0L;
+            for (var future : futures) {
+                var worker = join(future);
+                messageLatency.add(worker.messageLatency);
+                batchLatency.add(worker.batchLatency);
+                messages += worker.messages;
+                batches += worker.batches;
+                if (worker.error != null) {
+                    errors.add(worker.error);
+                }
+            }
+            return new LoadResult(messages, batches, System.nanoTime() - started, errors, messageLatency, batchLatency);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void putWorker(MQQueueManager qm, MessageLoadSettings load, Budget budget, long deadline, Worker worker)
+            throws MQException, IOException {
+        var queue = qm.accessQueue(load.getQueueName(), MQConstants.MQOO_OUTPUT | MQConstants.MQOO_FAIL_IF_QUIESCING);
+        try {
+            var payload = new byte[load.getMessageSize()];
+            for (var i = 0; i < payload.length; i++) {
+                payload[i] = (byte) ('A' + i % 26);
+            }
+            var message = new MQMessage();
+            message.format = MQConstants.MQFMT_NONE;
+            message.persistence = load.isPersistent() ? MQConstants.MQPER_PERSISTENT : MQConstants.MQPER_NOT_PERSISTENT;
+            var options = new MQPutMessageOptions();
+            options.options = MQConstants.MQPMO_SYNCPOINT | MQConstants.MQPMO_NEW_MSG_ID | MQConstants.MQPMO_FAIL_IF_QUIESCING;
+
+            while (System.nanoTime() < deadline) {
+                var batch = budget.take(load.getBatchSize());
+                if (batch == 0) {
+                    return;
+                }
+                var batchStarted = System.nanoTime();
+                try {
+                    for (var i = 0; i < batch; i++) {
+                        message.clearMessage();
+                        message.write(payload);
+                        var messageStarted = System.nanoTime();
+                        queue.put(message, options);
+                        worker.messageLatency.record(System.nanoTime() - messageStarted);
+                    }
+                    qm.commit();
+                } catch (MQException | IOException e) {
+                    budget.giveBack(batch);
+                    backout(qm);
+                    throw e;
+                }
+                worker.batchLatency.record(System.nanoTime() - batchStarted);
+                worker.messages += batch;
+                worker.batches++;
+            }
+        } finally {
+            queue.close();
+        }
+    }
+
+    private void getWorker(MQQueueManager qm, MessageLoadSettings load, Budget budget, long deadline, Worker worker)
+            throws MQException, IOException {
+        var queue = qm.accessQueue(load.getQueueName(), MQConstants.MQOO_INPUT_SHARED | MQConstants.MQOO_FAIL_IF_QUIESCING);
+        try {
+            var message = new MQMessage();
+            var options = new MQGetMessageOptions();
+            options.options = MQConstants.MQGMO_SYNCPOINT | MQConstants.MQGMO_WAIT | MQConstants.MQGMO_FAIL_IF_QUIESCING;
+            options.matchOptions = MQConstants.MQMO_NONE;
+            options.waitInterval = (int) load.getWaitInterval().toMillis();
+
+            var drained = false;
+            while (!drained && System.nanoTime() < deadline) {
+                var batch = budget.take(load.getBatchSize());
+                if (batch == 0) {
+                    return;
+                }
+                var batchStarted = System.nanoTime();
+                // the batch ends at its last message, waiting out the interval on an empty queue is not batch time
+                var lastGot = batchStarted;
+                var got = 0;
+                long committing;
+                try {
+                    while (got < batch) {
+                        var messageStarted = System.nanoTime();
+                        try {
+                            queue.get(message, options);
+                        } catch (MQException e) {
+                            if (e.getReason() != MQConstants.MQRC_NO_MSG_AVAILABLE) {
+                                throw e;
+                            }
+                            drained = true;
+                            break;
+                        }
+                        lastGot = System.nanoTime();
+                        worker.messageLatency.record(lastGot - messageStarted);
+                        got++;
+                    }
+                    var commitStarted = System.nanoTime();
+                    qm.commit();
+                    committing = System.nanoTime() - commitStarted;
+                } catch (MQException e) {
+                    budget.giveBack(batch);
+                    backout(qm);
+                    throw e;
+                }
+                budget.giveBack(batch - got);
+                if (got > 0) {
+                    worker.batchLatency.record(lastGot - batchStarted + committing);
+                    worker.messages += got;
+                    worker.batches++;
+                }
+            }
+        } finally {
+            queue.close();
+        }
+    }
+
+    private static Worker join(Future<Worker> future) throws MQException, IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted waiting for loader connections", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Loader connection failed", e.getCause());
+        }
+    }
+
+    private static void backout(MQQueueManager qm) {
+        try {
+            qm.backout();
+        } catch (MQException e) {
+            logger.debug("Backout failed: {}", e.getMessage());
+        }
+    }
+
+    private static void disconnect(MQQueueManager qm) {
+        try {
+            qm.disconnect();
+        } catch (MQException e) {
+            logger.debug("Disconnect failed: {}", e.getMessage());
+        }
+    }
+
+    @FunctionalInterface
+    private interface Job {
+        void run(MQQueueManager qm, MessageLoadSettings load, Budget budget, long deadline, Worker worker)
+                throws MQException, IOException;
+    }
+
+    /**
+     * Messages left to move, shared by all connections. Unlimited when the run has no message count.
+     */
+    private static class Budget {
+        private final AtomicLong remaining;
+        private final boolean unlimited;
+
+        private Budget(long messages) {
+            this.unlimited = messages <= 0;
+            this.remaining = new AtomicLong(messages);
+        }
+
+        int take(int batchSize) {
+            if (unlimited) {
+                return batchSize;
+            }
+            while (true) {
+                var left = remaining.get();
+                if (left <= 0) {
+                    return 0;
+                }
+                var batch = (int) Math.min(batchSize, left);
+                if (remaining.compareAndSet(left, left - batch)) {
+                    return batch;
+                }
+            }
+        }
+
+        void giveBack(int messages) {
+            if (!unlimited && messages > 0) {
+                remaining.addAndGet(messages);
+            }
+        }
+    }
+
+    /**
+     * Counters of one connection, only touched by its thread until the run is over.
+     */
+    private static class Worker {
+        private final LatencyRecorder messageLatency = new LatencyRecorder();
+        private final LatencyRecorder batchLatency = new LatencyRecorder();
+        private long messages;
+        private long batches;
+        private Exception error;
+    }
+}
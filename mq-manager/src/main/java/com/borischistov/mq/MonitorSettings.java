@@ -0,0 +1,28 @@
+package com.borischistov.mq;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Duration;
+
+/**
+ * {@link QueueMonitor} settings. Thresholds of {@code 0} disable the corresponding events.
+ */
+@Data
+@Builder
+public class MonitorSettings {
+    @Builder.Default
+    private String pattern = "*";
+    @Builder.Default
+    private Duration interval = Duration.ofSeconds(5);
+    /**
+     * Adds {@code MQCMD_RESET_Q_STATS} to every poll for enqueue and dequeue rates. Resetting is global, other tools
+     * reading the same statistics will see the counters of this monitor's interval only.
+     */
+    private boolean resetStatistics;
+    private int depthThreshold;
+    /**
+     * Absolute depth change in messages per second.
+     */
+    private double depthRateThreshold;
+}
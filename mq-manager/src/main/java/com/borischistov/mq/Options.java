@@ -0,0 +1,59 @@
+package com.borischistov.mq;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Command line options of the form {@code --name=value}, a bare {@code --name} is {@code true}.
+ */
+final class Options {
+
+    private final Map<String, String> values = new HashMap<>();
+
+    private Options() {
+    }
+
+    /**
+     * @param from index of the first option, arguments before it are positional
+     */
+    static Options parse(String[] args, int from) {
+        var options = new Options();
+        for (var i = from; i < args.length; i++) {
+            var arg = args[i];
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Unexpected argument: " + arg);
+            }
+            var separator = arg.indexOf('=');
+            if (separator < 0) {
+                options.values.put(arg.substring(2), "true");
+            } else {
+                options.values.put(arg.substring(2, separator), arg.substring(separator + 1));
+            }
+        }
+        return options;
+    }
+
+    boolean has(String name) {
+        return values.containsKey(name);
+    }
+
+    String get(String name, Object defaultValue) {
+        return values.getOrDefault(name, String.valueOf(defaultValue));
+    }
+
+    int getInt(String name, int defaultValue) {
+        return Integer.parseInt(get(name, defaultValue));
+    }
+
+    long getLong(String name, long defaultValue) {
+        return Long.parseLong(get(name, defaultValue));
+    }
+
+    double getDouble(String name, double defaultValue) {
+        return Double.parseDouble(get(name, defaultValue));
+    }
+
+    boolean getBoolean(String name, boolean defaultValue) {
+        return Boolean.parseBoolean(get(name, defaultValue));
+    }
+}
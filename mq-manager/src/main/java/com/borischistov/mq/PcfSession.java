@@ -0,0 +1,138 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.MQGetMessageOptions;
+import com.ibm.mq.MQMessage;
+import com.ibm.mq.MQPutMessageOptions;
+import com.ibm.mq.MQQueue;
+import com.ibm.mq.MQQueueManager;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.PCFMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * Raw PCF request/reply over the command queue and a temporary dynamic reply queue. Unlike
+ * {@link com.ibm.mq.pcf.PCFMessageAgent} requests are not sent one at a time, many can be put before their replies
+ * are read, replies are matched by correlation id which the command server copies from the request message id.
+ * Not thread safe, a session belongs to its {@link PooledConnection}.
+ */
+class PcfSession implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PcfSession.class);
+    private static final String COMMAND_QUEUE = "SYSTEM.ADMIN.COMMAND.QUEUE";
+    private static final String MODEL_QUEUE = "SYSTEM.DEFAULT.MODEL.QUEUE";
+    private static final String REPLY_QUEUE_PREFIX = "AMQ.PCF.*";
+
+    private final MQQueue commandQueue;
+    private final MQQueue replyQueue;
+    private final String replyQueueName;
+    private final MQPutMessageOptions putOptions = new MQPutMessageOptions();
+    private final MQGetMessageOptions getOptions = new MQGetMessageOptions();
+    private final MQMessage request = new MQMessage();
+    private final MQMessage reply = new MQMessage();
+
+    PcfSession(MQQueueManager queueManager) throws MQException {
+        this.commandQueue = queueManager.accessQueue(
+                COMMAND_QUEUE,
+                MQConstants.MQOO_OUTPUT | MQConstants.MQOO_FAIL_IF_QUIESCING
+        );
+        try {
+            this.replyQueue = queueManager.accessQueue(
+                    MODEL_QUEUE,
+                    MQConstants.MQOO_INPUT_EXCLUSIVE | MQConstants.MQOO_FAIL_IF_QUIESCING,
+                    null,
+                    REPLY_QUEUE_PREFIX,
+                    null
+            );
+            this.replyQueueName = replyQueue.getName().trim();
+        } catch (MQException e) {
+            commandQueue.close();
+            throw e;
+        }
+        putOptions.options = MQConstants.MQPMO_NEW_MSG_ID | MQConstants.MQPMO_NO_SYNCPOINT | MQConstants.MQPMO_FAIL_IF_QUIESCING;
+        getOptions.options = MQConstants.MQGMO_WAIT
+                | MQConstants.MQGMO_CONVERT
+                | MQConstants.MQGMO_NO_SYNCPOINT
+                | MQConstants.MQGMO_FAIL_IF_QUIESCING;
+        getOptions.matchOptions = MQConstants.MQMO_NONE;
+    }
+
+    /**
+     * Puts the request on the command queue without waiting for replies.
+     *
+     * @return message id, replies to this request carry it as correlation id
+     */
+    byte[] send(PCFMessage command) throws MQException, IOException {
+        request.clearMessage();
+        request.messageId = new byte[MQConstants.MQ_MSG_ID_LENGTH];
+        request.correlationId = new byte[MQConstants.MQ_CORREL_ID_LENGTH];
+        request.messageType = MQConstants.MQMT_REQUEST;
+        request.format = MQConstants.MQFMT_ADMIN;
+        request.persistence = MQConstants.MQPER_NOT_PERSISTENT;
+        request.replyToQueueName = replyQueueName;
+        command.write(request);
+        commandQueue.put(request, putOptions);
+        return request.messageId.clone();
+    }
+
+    /**
+     * Waits for the next reply to any outstanding request.
+     *
+     * @return reply or {@code null} when nothing arrived within the wait interval
+     */
+    Reply receive(int waitMillis) throws MQException, IOException {
+        reply.clearMessage();
+        reply.messageId = new byte[MQConstants.MQ_MSG_ID_LENGTH];
+        reply.correlationId = new byte[MQConstants.MQ_CORREL_ID_LENGTH];
+        getOptions.waitInterval = waitMillis;
+        try {
+            replyQueue.get(reply, getOptions);
+        } catch (MQException e) {
+            if (e.getReason() == MQConstants.MQRC_NO_MSG_AVAILABLE) {
+                return null;
+            }
+            throw e;
+        }
+        return new Reply(reply.correlationId.clone(), new PCFMessage(reply));
+    }
+
+    @Override
+    public void close() {
+        try {
+            replyQueue.close();
+        } catch (MQException e) {
+            logger.debug("Can't close reply queue: {}", e.getMessage());
+        }
+        try {
+            commandQueue.close();
+        } catch (MQException e) {
+            logger.debug("Can't close command queue: {}", e.getMessage());
+        }
+    }
+
+    static final class Reply {
+        private final byte[] correlationId;
+        private final PCFMessage message;
+
+        private Reply(byte[] correlationId, PCFMessage message) {
+            this.correlationId = correlationId;
+            this.message = message;
+        }
+
+        byte[] correlationId() {
+            return correlationId;
+        }
+
+        PCFMessage message() {
+            return message;
+        }
+
+        boolean isLast() {
+            return message.getControl() == MQConstants.MQCFC_LAST;
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.pcf.PCFMessage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * How {@link Manager} reaches a queue manager command server: {@link PooledPcfTransport} for a real queue manager,
+ * {@link FakeQueueManager} for tests and benchmarks without one. Implementations are thread safe.
+ */
+public interface PcfTransport extends Closeable {
+
+    /**
+     * Sends one command and waits for all of its responses, a failed command throws {@link com.ibm.mq.pcf.PCFException}.
+     */
+    PCFMessage[] send(PCFMessage request) throws MQException, IOException;
+
+    /**
+     * Sends one command and returns its responses lazily, see {@link ReplyStream}. Errors while consuming are
+     * wrapped into {@link UncheckedMQException} and {@link java.io.UncheckedIOException}.
+     */
+    Stream<PCFMessage> stream(PCFMessage request) throws MQException, IOException;
+
+    /**
+     * Sends independent commands, pipelined where the transport supports it.
+     *
+     * @param requests requests keyed by the object name they are reported under
+     */
+    BulkResult sendAll(Map<String, PCFMessage> requests);
+
+    /**
+     * Commands that can run at the same time.
+     */
+    int parallelism();
+
+    @Override
+    void close();
+}
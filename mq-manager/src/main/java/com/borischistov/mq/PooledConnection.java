@@ -0,0 +1,99 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.MQQueueManager;
+import com.ibm.mq.pcf.PCFMessageAgent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+
+/**
+ * Connection borrowed from {@link ConnectionPool}, {@link #close()} hands it back. Not thread safe, a connection is
+ * used by one caller at a time.
+ */
+public class PooledConnection implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(PooledConnection.class);
+
+    private final ConnectionPool pool;
+    private final MQQueueManager queueManager;
+    private final PCFMessageAgent agent;
+    private PcfSession session;
+    private long lastUsed = System.nanoTime();
+    private boolean broken;
+    private boolean leased;
+
+    PooledConnection(ConnectionPool pool, MQQueueManager queueManager, PCFMessageAgent agent) {
+        this.pool = pool;
+        this.queueManager = queueManager;
+        this.agent = agent;
+    }
+
+    public MQQueueManager queueManager() {
+        return queueManager;
+    }
+
+    public PCFMessageAgent agent() {
+        return agent;
+    }
+
+    /**
+     * Pipelined request/reply session, opened on first use and kept with the connection.
+     */
+    PcfSession session() throws MQException {
+        if (session == null) {
+            session = new PcfSession(queueManager);
+        }
+        return session;
+    }
+
+    /**
+     * Marks the connection as unusable, it is disconnected instead of being returned to the pool.
+     */
+    public void invalidate() {
+        broken = true;
+    }
+
+    @Override
+    public void close() {
+        if (leased) {
+            leased = false;
+            touch();
+            pool.release(this);
+        }
+    }
+
+    PooledConnection lease() {
+        leased = true;
+        return this;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    long lastUsed() {
+        return lastUsed;
+    }
+
+    void touch() {
+        lastUsed = System.nanoTime();
+    }
+
+    void disconnect() {
+        if (session != null) {
+            session.close();
+        }
+        try {
+            agent.disconnect();
+        } catch (MQException e) {
+            logger.debug("Can't disconnect PCF agent: {}", e.getMessage());
+        }
+        try {
+            queueManager.disconnect();
+        } catch (MQException e) {
+            logger.debug("Can't disconnect queue manager: {}", e.getMessage());
+        }
+    }
+}
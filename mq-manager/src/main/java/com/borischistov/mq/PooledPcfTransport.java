@@ -0,0 +1,86 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.pcf.PCFMessage;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * {@link PcfTransport} over a {@link ConnectionPool}: single commands go through the connection's
+ * {@link com.ibm.mq.pcf.PCFMessageAgent}, streams and bulk commands through its {@link PcfSession}.
+ */
+public class PooledPcfTransport implements PcfTransport {
+
+    private final ConnectionPool pool;
+    private final ExecutorService executor;
+    private final BulkExecutor bulk;
+    private final int parallelism;
+    private final int commandTimeoutMillis;
+
+    public PooledPcfTransport(ConnectionSettings settings) throws MQException {
+        this.pool = new ConnectionPool(settings);
+        this.parallelism = settings.getPoolSize();
+        var threads = new AtomicInteger();
+        this.executor = Executors.newFixedThreadPool(parallelism, runnable -> {
+            var thread = new Thread(runnable, "mq-bulk-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.bulk = new BulkExecutor(pool, executor, settings);
+        this.commandTimeoutMillis = (int) settings.getCommandTimeout().toMillis();
+    }
+
+    @Override
+    public PCFMessage[] send(PCFMessage request) throws MQException, IOException {
+        try (var connection = pool.borrow()) {
+            try {
+                return connection.agent().send(request);
+            } catch (MQException e) {
+                if (ConnectionPool.isConnectionError(e)) {
+                    connection.invalidate();
+                }
+                throw e;
+            } catch (IOException e) {
+                connection.invalidate();
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public Stream<PCFMessage> stream(PCFMessage request) throws MQException, IOException {
+        return ReplyStream.open(pool.borrow(), request, commandTimeoutMillis, Function.identity());
+    }
+
+    @Override
+    public BulkResult sendAll(Map<String, PCFMessage> requests) {
+        return bulk.execute(requests);
+    }
+
+    @Override
+    public int parallelism() {
+        return parallelism;
+    }
+
+    public ConnectionPool pool() {
+        return pool;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        pool.close();
+    }
+}
@@ -12,4 +12,12 @@ import lombok.NoArgsConstructor;
 public class Queue {
     private String name;
     private int depth;
+    /**
+     * {@code MQQT_*} queue type, {@code 0} when it wasn't inquired.
+     */
+    private int type;
+    /**
+     * Target of an alias queue.
+     */
+    private String baseObject;
 }
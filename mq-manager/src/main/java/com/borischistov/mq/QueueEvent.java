@@ -0,0 +1,31 @@
+package com.borischistov.mq;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * Change reported by {@link QueueMonitor}, {@code previous} is {@code null} for the first observation of a queue.
+ */
+@Data
+@AllArgsConstructor
+public class QueueEvent {
+
+    public enum Type {
+        /**
+         * Depth went above the depth threshold.
+         */
+        DEPTH_HIGH,
+        /**
+         * Depth went back to the threshold or below.
+         */
+        DEPTH_NORMAL,
+        /**
+         * Depth changed faster than the rate threshold, in either direction.
+         */
+        DEPTH_RATE
+    }
+
+    private Type type;
+    private QueueStatus previous;
+    private QueueStatus current;
+}
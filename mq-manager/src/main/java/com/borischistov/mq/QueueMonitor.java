@@ -0,0 +1,151 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Polls queue status on a schedule and keeps the last result as an immutable snapshot. Readers only read a volatile
+ * reference, so the command server sees one {@code MQCMD_INQUIRE_Q_STATUS} per interval (plus one
+ * {@code MQCMD_RESET_Q_STATS} when enabled) however many consumers there are. Subscribers get events when a queue
+ * crosses the depth threshold or its depth changes faster than the rate threshold, on the poll thread.
+ */
+public class QueueMonitor implements Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(QueueMonitor.class);
+
+    private final Manager manager;
+    private final MonitorSettings settings;
+    private final ScheduledExecutorService scheduler;
+    private final List<Consumer<QueueEvent>> subscribers = new CopyOnWriteArrayList<>();
+    private volatile Map<String, QueueStatus> snapshot = Map.of();
+
+    public QueueMonitor(Manager manager, MonitorSettings settings) {
+        this.manager = manager;
+        this.settings = settings;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            var thread = new Thread(runnable, "mq-queue-monitor");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public QueueMonitor start() {
+        var interval = settings.getInterval().toMillis();
+        scheduler.scheduleWithFixedDelay(this::pollSafely, 0, interval, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    /**
+     * @return status of all queues matched by the last poll, keyed by queue name
+     */
+    public Map<String, QueueStatus> snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @return last known status or {@code null} when the queue wasn't seen
+     */
+    public QueueStatus status(String queueName) {
+        return snapshot.get(queueName);
+    }
+
+    /**
+     * @return handle removing the subscriber when closed
+     */
+    public AutoCloseable subscribe(Consumer<QueueEvent> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    void poll() throws MQException, IOException {
+        var now = System.currentTimeMillis();
+        var statistics = new HashMap<String, QueueStatistics>();
+        if (settings.isResetStatistics()) {
+            for (var stats : Manager.collect(manager.resetQueueStatistics(settings.getPattern()))) {
+                statistics.put(stats.getName(), stats);
+            }
+        }
+        var previous = snapshot;
+        var next = new HashMap<String, QueueStatus>(previous.size() * 4 / 3 + 1);
+        var events = new ArrayList<QueueEvent>();
+        for (var status : Manager.collect(manager.streamQueueStatus(settings.getPattern()))) {
+            var before = previous.get(status.getName());
+            var current = withRates(status, before, statistics.get(status.getName()), now);
+            next.put(current.getName(), current);
+            detect(before, current, events);
+        }
+        snapshot = Collections.unmodifiableMap(next);
+        for (var event : events) {
+            publish(event);
+        }
+    }
+
+    private void pollSafely() {
+        try {
+            poll();
+        } catch (MQException | IOException | RuntimeException e) {
+            logger.warn("Queue status poll failed: {}", e.getMessage());
+        }
+    }
+
+    private QueueStatus withRates(QueueStatus status, QueueStatus before, QueueStatistics statistics, long now) {
+        var builder = status.toBuilder().timestamp(now);
+        if (before != null && now > before.getTimestamp()) {
+            var seconds = (now - before.getTimestamp()) / 1000d;
+            builder.depthRate((status.getDepth() - before.getDepth()) / seconds);
+        }
+        if (statistics != null && statistics.getSecondsSinceReset() > 0) {
+            builder.enqueueRate(statistics.getEnqueueCount() / (double) statistics.getSecondsSinceReset());
+            builder.dequeueRate(statistics.getDequeueCount() / (double) statistics.getSecondsSinceReset());
+        } else {
+            builder.enqueueRate(Double.NaN).dequeueRate(Double.NaN);
+        }
+        return builder.build();
+    }
+
+    private void detect(QueueStatus before, QueueStatus current, List<QueueEvent> events) {
+        var threshold = settings.getDepthThreshold();
+        if (threshold > 0) {
+            var wasHigh = before != null && before.getDepth() > threshold;
+            var isHigh = current.getDepth() > threshold;
+            if (isHigh && !wasHigh) {
+                events.add(new QueueEvent(QueueEvent.Type.DEPTH_HIGH, before, current));
+            } else if (!isHigh && wasHigh) {
+                events.add(new QueueEvent(QueueEvent.Type.DEPTH_NORMAL, before, current));
+            }
+        }
+        var rateThreshold = settings.getDepthRateThreshold();
+        if (rateThreshold > 0 && before != null && Math.abs(current.getDepthRate()) > rateThreshold) {
+            events.add(new QueueEvent(QueueEvent.Type.DEPTH_RATE, before, current));
+        }
+    }
+
+    private void publish(QueueEvent event) {
+        for (var subscriber : subscribers) {
+            try {
+                subscriber.accept(event);
+            } catch (RuntimeException e) {
+                logger.warn("Queue event subscriber failed on: {}", event.getType(), e);
+            }
+        }
+    }
+}
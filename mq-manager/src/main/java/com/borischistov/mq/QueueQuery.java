@@ -0,0 +1,29 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.constants.MQConstants;
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * Queue inquiry for {@link Manager#streamQueues(QueueQuery)}. Only the listed attributes are returned and the filters
+ * are applied by the command server, so objects that don't match never travel over the wire.
+ */
+@Data
+@Builder
+public class QueueQuery {
+    @Builder.Default
+    private String pattern = "*";
+    /**
+     * {@code MQIACF_Q_ATTRS} selectors, name and current depth by default.
+     */
+    @Builder.Default
+    private int[] attributes = {MQConstants.MQCA_Q_NAME, MQConstants.MQIA_CURRENT_Q_DEPTH};
+    /**
+     * {@code MQQT_*} queue type, all types when {@code null}.
+     */
+    private Integer queueType;
+    /**
+     * Only queues deeper than this, no depth filter when {@code null}.
+     */
+    private Integer depthGreaterThan;
+}
@@ -0,0 +1,21 @@
+package com.borischistov.mq;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Counters returned by {@code MQCMD_RESET_Q_STATS} for the interval since the previous reset.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueueStatistics {
+    private String name;
+    private int enqueueCount;
+    private int dequeueCount;
+    private int highDepth;
+    private int secondsSinceReset;
+}
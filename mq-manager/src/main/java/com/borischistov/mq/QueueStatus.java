@@ -0,0 +1,29 @@
+package com.borischistov.mq;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Queue state observed by {@link QueueMonitor}. Rates are messages per second over the last poll interval,
+ * enqueue and dequeue rates are {@code NaN} unless queue statistics are reset on every poll.
+ */
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor
+@NoArgsConstructor
+public class QueueStatus {
+    private String name;
+    private int depth;
+    /**
+     * Age of the oldest message in seconds, {@code -1} when unknown, e.g. queue monitoring is off.
+     */
+    private int oldestMessageAge;
+    private int openInputCount;
+    private int openOutputCount;
+    private double depthRate;
+    private double enqueueRate;
+    private double dequeueRate;
+    private long timestamp;
+}
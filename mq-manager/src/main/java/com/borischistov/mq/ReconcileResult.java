@@ -0,0 +1,45 @@
+package com.borischistov.mq;
+
+import lombok.Getter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Outcome of {@link Manager#reconcile(Topology)}. A failed change does not stop independent ones, changes depending
+ * on it are skipped and listed as failed too.
+ */
+@Getter
+public class ReconcileResult {
+    private final List<TopologyChange> changes;
+    private final Map<TopologyChange, Exception> failed;
+    private final long inquiryNanos;
+    private final long durationNanos;
+
+    ReconcileResult(List<TopologyChange> changes, Map<TopologyChange, Exception> failed, long inquiryNanos, long durationNanos) {
+        this.changes = Collections.unmodifiableList(changes);
+        this.failed = Collections.unmodifiableMap(failed);
+        this.inquiryNanos = inquiryNanos;
+        this.durationNanos = durationNanos;
+    }
+
+    public boolean isSuccessful() {
+        return failed.isEmpty();
+    }
+
+    /**
+     * @return {@code true} when the queue manager already matched the topology
+     */
+    public boolean isUpToDate() {
+        return changes.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d changes, %d failed in %.1f ms (inquiry %.1f ms)",
+                changes.size(), failed.size(), durationNanos / 1_000_000d, inquiryNanos / 1_000_000d
+        );
+    }
+}
@@ -0,0 +1,374 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.PCFMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Brings the queue manager to a {@link Topology}. Current state is read with one inquiry per object type, run in
+ * parallel, and only the differences are sent. Queues are inquired on the calling thread and topics and subscriptions
+ * on the reconciler's own two threads, so a reconcile started from a {@link Manager#async(Manager.Command)} task
+ * never waits for the manager executor it occupies. Changes are applied in stages so that an object exists before
+ * anything refers to it and is deleted only after:
+ * <ol>
+ * <li>delete subscriptions</li>
+ * <li>delete aliases</li>
+ * <li>delete queues and topics</li>
+ * <li>create topics and queues</li>
+ * <li>create and alter aliases and subscriptions</li>
+ * </ol>
+ * Changes within a stage are independent and go through {@link PcfTransport#sendAll(Map)} together. A change whose
+ * object or prerequisite failed in an earlier stage, e.g. an alias of a topic that couldn't be created, is not sent
+ * and is reported as failed. A desired queue or alias whose name is taken by a queue type that isn't managed, remote
+ * or model, is a {@link TopologyChange.Action#CONFLICT} and is never sent.
+ */
+class Reconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(Reconciler.class);
+    private static final int STAGES = 5;
+    private static final String SYSTEM_PREFIX = "SYSTEM.";
+    private static final String QUEUE = "queue:";
+    private static final String TOPIC = "topic:";
+    private static final String SUBSCRIPTION = "subscription:";
+
+    private final Manager manager;
+    private final PcfTransport transport;
+    private final ExecutorService inquiries;
+
+    Reconciler(Manager manager, PcfTransport transport) {
+        this.manager = manager;
+        this.transport = transport;
+        var threads = new AtomicInteger();
+        this.inquiries = Executors.newFixedThreadPool(2, runnable -> {
+            var thread = new Thread(runnable, "mq-reconciler-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    void close() {
+        inquiries.shutdown();
+    }
+
+    List<TopologyChange> plan(Topology desired) throws MQException, IOException {
+        var plan = plan(desired, read());
+        var changes = new ArrayList<TopologyChange>(plan.conflicts.keySet());
+        for (var stage : plan.stages) {
+            changes.addAll(stage.keySet());
+        }
+        return changes;
+    }
+
+    ReconcileResult reconcile(Topology desired) throws MQException, IOException {
+        var started = System.nanoTime();
+        var current = read();
+        var inquiryNanos = System.nanoTime() - started;
+        var plan = plan(desired, current);
+        var changes = new ArrayList<TopologyChange>(plan.conflicts.keySet());
+        var failed = new LinkedHashMap<TopologyChange, Exception>(plan.conflicts);
+        // objects whose change failed or was skipped, changes that need them are skipped in turn
+        var broken = new HashSet<String>();
+        plan.conflicts.keySet().forEach(change -> broken.add(key(change)));
+        for (var stage : plan.stages) {
+            if (stage.isEmpty()) {
+                continue;
+            }
+            var requests = new LinkedHashMap<String, PCFMessage>();
+            var byKey = new HashMap<String, TopologyChange>();
+            stage.forEach((change, request) -> {
+                var missing = missing(change, plan.requires.getOrDefault(change, List.of()), broken);
+                if (missing != null) {
+                    failed.put(change, new IllegalStateException("Skipped, " + missing + " failed"));
+                    return;
+                }
+                requests.put(change.toString(), request);
+                byKey.put(change.toString(), change);
+            });
+            var result = requests.isEmpty() ? null : transport.sendAll(requests);
+            changes.addAll(stage.keySet());
+            if (result != null) {
+                result.getFailed().forEach((key, error) -> failed.put(byKey.get(key), error));
+            }
+            stage.keySet().stream().filter(failed::containsKey).forEach(change -> broken.add(key(change)));
+        }
+        var reconciled = new ReconcileResult(changes, failed, inquiryNanos, System.nanoTime() - started);
+        if (reconciled.isUpToDate()) {
+            logger.debug("Topology is up to date: {}", reconciled);
+        } else {
+            logger.info("Topology reconciled: {}", reconciled);
+        }
+        return reconciled;
+    }
+
+    private State read() throws MQException, IOException {
+        var query = QueueQuery
+                .builder()
+                .attributes(new int[]{MQConstants.MQCA_Q_NAME, MQConstants.MQIA_Q_TYPE, MQConstants.MQCA_BASE_OBJECT_NAME})
+                .build();
+        var topics = inquire(() -> manager.getTopics("*"));
+        var subscriptions = inquire(() -> manager.getSubscriptions("*"));
+        var state = new State();
+        try {
+            Manager.collect(manager.streamQueues(query)).forEach(queue -> state.queues.put(queue.getName(), queue));
+            CompletableFuture.allOf(topics, subscriptions).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof MQException) {
+                throw (MQException) e.getCause();
+            }
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw e;
+        }
+        topics.join().forEach(topic -> state.topics.put(topic.getTopicName(), topic));
+        subscriptions.join().forEach(subscription -> state.subscriptions.put(subscription.getName(), subscription));
+        return state;
+    }
+
+    private <T> CompletableFuture<T> inquire(Manager.Command<T> command) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return command.call();
+            } catch (MQException | IOException e) {
+                throw new CompletionException(e);
+            }
+        }, inquiries);
+    }
+
+    /**
+     * @return first object of the change, or one it requires, that is broken or {@code null} when the change can run
+     */
+    private static String missing(TopologyChange change, List<String> requires, Set<String> broken) {
+        if (broken.contains(key(change))) {
+            return key(change);
+        }
+        for (var required : requires) {
+            if (broken.contains(required)) {
+                return required;
+            }
+        }
+        return null;
+    }
+
+    private Plan plan(Topology desired, State current) {
+        var plan = new Plan();
+        var stages = plan.stages;
+        var deleteSubscriptions = stages.get(0);
+        var deleteAliases = stages.get(1);
+        var deleteObjects = stages.get(2);
+        var createObjects = stages.get(3);
+        var dependents = stages.get(4);
+
+        var replacedTopics = new HashSet<String>();
+        for (var topic : desired.getTopics()) {
+            var tree = topic.getTopicTree() != null ? topic.getTopicTree() : topic.getTopicName();
+            var existing = current.topics.get(topic.getTopicName());
+            if (existing != null && tree.equals(existing.getTopicTree())) {
+                continue;
+            }
+            if (existing != null) {
+                // the topic string can't be altered
+                replacedTopics.add(topic.getTopicName());
+                deleteObjects.put(
+                        delete(TopologyChange.Kind.TOPIC, topic.getTopicName()),
+                        Manager.removeTopicRequest(topic.getTopicName())
+                );
+            }
+            createObjects.put(
+                    create(TopologyChange.Kind.TOPIC, topic.getTopicName()),
+                    Manager.createTopicRequest(topic.getTopicName(), tree)
+            );
+        }
+
+        for (var name : desired.getQueues()) {
+            var existing = current.queues.get(name);
+            if (existing != null && existing.getType() == MQConstants.MQQT_LOCAL) {
+                continue;
+            }
+            if (existing != null && !managed(existing)) {
+                plan.conflict(TopologyChange.Kind.QUEUE, existing);
+                continue;
+            }
+            if (existing != null) {
+                deleteQueue(existing, deleteAliases, deleteObjects);
+            }
+            createObjects.put(create(TopologyChange.Kind.QUEUE, name), Manager.createQueueRequest(name));
+        }
+
+        desired.getAliases().forEach((name, topicName) -> {
+            var existing = current.queues.get(name);
+            if (existing != null && existing.getType() == MQConstants.MQQT_ALIAS) {
+                if (!topicName.equals(existing.getBaseObject())) {
+                    var change = alter(TopologyChange.Kind.ALIAS, name);
+                    dependents.put(change, Manager.alterAliasForTopicRequest(name, topicName));
+                    plan.requires.put(change, List.of(TOPIC + topicName));
+                }
+                return;
+            }
+            if (existing != null && !managed(existing)) {
+                plan.conflict(TopologyChange.Kind.ALIAS, existing);
+                return;
+            }
+            if (existing != null) {
+                deleteQueue(existing, deleteAliases, deleteObjects);
+            }
+            var change = create(TopologyChange.Kind.ALIAS, name);
+            dependents.put(change, Manager.createAliasForTopicRequest(name, topicName));
+            plan.requires.put(change, List.of(TOPIC + topicName));
+        });
+
+        for (var subscription : desired.getSubscriptions()) {
+            var existing = current.subscriptions.get(subscription.getName());
+            if (existing != null
+                    && subscription.getTopicName().equals(existing.getTopicName())
+                    && !replacedTopics.contains(subscription.getTopicName())) {
+                if (!subscription.getDestination().equals(existing.getDestination())) {
+                    var change = alter(TopologyChange.Kind.SUBSCRIPTION, subscription.getName());
+                    dependents.put(change, Manager.alterSubscriptionRequest(subscription.getName(), subscription.getDestination()));
+                    plan.requires.put(change, List.of(QUEUE + subscription.getDestination()));
+                }
+                continue;
+            }
+            if (existing != null) {
+                // the topic of a subscription is fixed when it is created
+                deleteSubscriptions.put(
+                        delete(TopologyChange.Kind.SUBSCRIPTION, subscription.getName()),
+                        Manager.removeSubscriptionRequest(subscription.getName())
+                );
+            }
+            var change = create(TopologyChange.Kind.SUBSCRIPTION, subscription.getName());
+            dependents.put(
+                    change,
+                    Manager.createSubscriptionRequest(subscription.getName(), subscription.getTopicName(), subscription.getDestination())
+            );
+            plan.requires.put(change, List.of(TOPIC + subscription.getTopicName(), QUEUE + subscription.getDestination()));
+        }
+
+        if (desired.getPrune() != null) {
+            prune(desired, current, stages);
+        }
+        return plan;
+    }
+
+    private void prune(Topology desired, State current, List<Map<TopologyChange, PCFMessage>> stages) {
+        var pattern = desired.getPrune();
+        var subscriptions = new HashSet<String>();
+        desired.getSubscriptions().forEach(subscription -> subscriptions.add(subscription.getName()));
+        for (var name : current.subscriptions.keySet()) {
+            if (owned(pattern, name) && !subscriptions.contains(name)) {
+                stages.get(0).put(delete(TopologyChange.Kind.SUBSCRIPTION, name), Manager.removeSubscriptionRequest(name));
+            }
+        }
+        var queues = new HashSet<>(desired.getQueues());
+        queues.addAll(desired.getAliases().keySet());
+        for (var queue : current.queues.values()) {
+            if (owned(pattern, queue.getName()) && !queues.contains(queue.getName())) {
+                deleteQueue(queue, stages.get(1), stages.get(2));
+            }
+        }
+        var topics = new HashSet<String>();
+        desired.getTopics().forEach(topic -> topics.add(topic.getTopicName()));
+        for (var name : current.topics.keySet()) {
+            if (owned(pattern, name) && !topics.contains(name)) {
+                stages.get(2).put(delete(TopologyChange.Kind.TOPIC, name), Manager.removeTopicRequest(name));
+            }
+        }
+    }
+
+    private static boolean managed(Queue queue) {
+        return queue.getType() == MQConstants.MQQT_LOCAL || queue.getType() == MQConstants.MQQT_ALIAS;
+    }
+
+    /**
+     * Object a change acts on, queues and aliases share one namespace.
+     */
+    private static String key(TopologyChange change) {
+        switch (change.getKind()) {
+            case TOPIC:
+                return TOPIC + change.getName();
+            case SUBSCRIPTION:
+                return SUBSCRIPTION + change.getName();
+            default:
+                return QUEUE + change.getName();
+        }
+    }
+
+    /**
+     * Only local and alias queues are managed, other queue types are never deleted.
+     */
+    private static void deleteQueue(
+            Queue queue,
+            Map<TopologyChange, PCFMessage> deleteAliases,
+            Map<TopologyChange, PCFMessage> deleteObjects
+    ) {
+        if (queue.getType() == MQConstants.MQQT_ALIAS) {
+            deleteAliases.put(delete(TopologyChange.Kind.ALIAS, queue.getName()), Manager.removeAliasRequest(queue.getName()));
+        } else if (queue.getType() == MQConstants.MQQT_LOCAL) {
+            deleteObjects.put(delete(TopologyChange.Kind.QUEUE, queue.getName()), Manager.removeQueueRequest(queue.getName()));
+        }
+    }
+
+    private static boolean owned(String pattern, String name) {
+        if (name.startsWith(SYSTEM_PREFIX)) {
+            return false;
+        }
+        if (pattern.endsWith("*")) {
+            return name.startsWith(pattern.substring(0, pattern.length() - 1));
+        }
+        return name.equals(pattern);
+    }
+
+    private static TopologyChange create(TopologyChange.Kind kind, String name) {
+        return new TopologyChange(TopologyChange.Action.CREATE, kind, name);
+    }
+
+    private static TopologyChange alter(TopologyChange.Kind kind, String name) {
+        return new TopologyChange(TopologyChange.Action.ALTER, kind, name);
+    }
+
+    private static TopologyChange delete(TopologyChange.Kind kind, String name) {
+        return new TopologyChange(TopologyChange.Action.DELETE, kind, name);
+    }
+
+    private static class Plan {
+        private final List<Map<TopologyChange, PCFMessage>> stages = new ArrayList<>(STAGES);
+        private final Map<TopologyChange, Exception> conflicts = new LinkedHashMap<>();
+        // objects a change needs besides its own, by key
+        private final Map<TopologyChange, List<String>> requires = new HashMap<>();
+
+        private Plan() {
+            for (var i = 0; i < STAGES; i++) {
+                stages.add(new LinkedHashMap<>());
+            }
+        }
+
+        private void conflict(TopologyChange.Kind kind, Queue existing) {
+            conflicts.put(
+                    new TopologyChange(TopologyChange.Action.CONFLICT, kind, existing.getName()),
+                    new IllegalStateException(existing.getName() + " exists as unmanaged queue type " + existing.getType())
+            );
+        }
+    }
+
+    private static class State {
+        private final Map<String, Queue> queues = new HashMap<>();
+        private final Map<String, Topic> topics = new HashMap<>();
+        private final Map<String, Subscription> subscriptions = new HashMap<>();
+    }
+}
@@ -0,0 +1,143 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+import com.ibm.mq.constants.MQConstants;
+import com.ibm.mq.pcf.PCFException;
+import com.ibm.mq.pcf.PCFMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Replies to one PCF inquiry, read from the reply queue only as the stream is consumed. The connection is held until
+ * the last reply arrives or the stream is closed, whichever comes first.
+ */
+class ReplyStream implements Iterator<PCFMessage> {
+
+    private final PooledConnection connection;
+    private final byte[] correlationId;
+    private final int timeoutMillis;
+    private PCFMessage next;
+    private boolean done;
+
+    private ReplyStream(PooledConnection connection, byte[] correlationId, int timeoutMillis) {
+        this.connection = connection;
+        this.correlationId = correlationId;
+        this.timeoutMillis = timeoutMillis;
+    }
+
+    /**
+     * Sends the request and returns its mapped replies, the caller should close the stream unless it is consumed
+     * to the end.
+     */
+    static <T> Stream<T> open(
+            PooledConnection connection,
+            PCFMessage request,
+            int timeoutMillis,
+            Function<PCFMessage, T> mapper
+    ) throws MQException, IOException {
+        byte[] correlationId;
+        try {
+            correlationId = connection.session().send(request);
+        } catch (MQException | IOException e) {
+            release(connection, e);
+            throw e;
+        }
+        var replies = new ReplyStream(connection, correlationId, timeoutMillis);
+        return StreamSupport
+                .stream(Spliterators.spliteratorUnknownSize(replies, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(replies::close)
+                .map(mapper);
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (next == null && !done) {
+            next = read();
+        }
+        return next != null;
+    }
+
+    @Override
+    public PCFMessage next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        var result = next;
+        next = null;
+        return result;
+    }
+
+    private PCFMessage read() {
+        try {
+            while (true) {
+                var reply = connection.session().receive(timeoutMillis);
+                if (reply == null) {
+                    throw new IOException("No reply within " + timeoutMillis + " ms");
+                }
+                if (!Arrays.equals(reply.correlationId(), correlationId)) {
+                    // late reply to an earlier request on this connection
+                    continue;
+                }
+                var message = reply.message();
+                if (reply.isLast()) {
+                    close();
+                }
+                if (message.getCompCode() != MQConstants.MQCC_OK) {
+                    if (isNoneFound(message.getReason())) {
+                        close();
+                        return null;
+                    }
+                    throw new PCFException(message.getCompCode(), message.getReason(), message);
+                }
+                // the trailing summary of a successful inquiry carries no object
+                if (message.getParameterCount() == 0) {
+                    if (done) {
+                        return null;
+                    }
+                    continue;
+                }
+                return message;
+            }
+        } catch (MQException e) {
+            fail(e);
+            throw new UncheckedMQException(e);
+        } catch (IOException e) {
+            fail(e);
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean isNoneFound(int reason) {
+        return reason == MQConstants.MQRC_UNKNOWN_OBJECT_NAME || reason == MQConstants.MQRCCF_NONE_FOUND;
+    }
+
+    private void fail(Exception e) {
+        if (!done) {
+            done = true;
+            release(connection, e);
+        }
+    }
+
+    private void close() {
+        if (!done) {
+            done = true;
+            connection.close();
+        }
+    }
+
+    private static void release(PooledConnection connection, Exception e) {
+        if (e instanceof IOException || e instanceof MQException && ConnectionPool.isConnectionError((MQException) e)) {
+            connection.invalidate();
+        }
+        connection.close();
+    }
+}
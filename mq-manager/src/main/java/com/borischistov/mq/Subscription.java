@@ -0,0 +1,16 @@
+package com.borischistov.mq;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class Subscription {
+    private String name;
+    private String topicName;
+    private String destination;
+}
@@ -0,0 +1,35 @@
+package com.borischistov.mq;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Desired state for {@link Manager#reconcile(Topology)}: local queues, topics, topic aliases and subscriptions.
+ * Objects that exist but aren't listed are left alone unless they match {@code prune}.
+ */
+@Data
+@Builder(toBuilder = true)
+public class Topology {
+    /**
+     * Local queue names.
+     */
+    @Builder.Default
+    private List<String> queues = List.of();
+    @Builder.Default
+    private List<Topic> topics = List.of();
+    /**
+     * Alias queue name to topic name.
+     */
+    @Builder.Default
+    private Map<String, String> aliases = Map.of();
+    @Builder.Default
+    private List<Subscription> subscriptions = List.of();
+    /**
+     * Generic name of the objects this topology owns, owned objects missing from it are deleted. Nothing is deleted
+     * when {@code null}, {@code SYSTEM.*} objects never are.
+     */
+    private String prune;
+}
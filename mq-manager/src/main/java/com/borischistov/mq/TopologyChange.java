@@ -0,0 +1,37 @@
+package com.borischistov.mq;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+/**
+ * One command of a {@link Manager#reconcile(Topology)} plan. An object that can't be altered in place is replaced
+ * with a {@code DELETE} and a {@code CREATE} change. A {@code CONFLICT} is a desired object whose name is taken by an
+ * object the reconciler doesn't manage, it is reported but never sent.
+ */
+@Data
+@AllArgsConstructor
+public class TopologyChange {
+
+    public enum Action {
+        CREATE,
+        ALTER,
+        DELETE,
+        CONFLICT
+    }
+
+    public enum Kind {
+        QUEUE,
+        TOPIC,
+        ALIAS,
+        SUBSCRIPTION
+    }
+
+    private Action action;
+    private Kind kind;
+    private String name;
+
+    @Override
+    public String toString() {
+        return action + " " + kind + " " + name;
+    }
+}
@@ -0,0 +1,18 @@
+package com.borischistov.mq;
+
+import com.ibm.mq.MQException;
+
+/**
+ * Wraps an {@link MQException} raised while a lazy stream is consumed, where checked exceptions can't be thrown.
+ */
+public class UncheckedMQException extends RuntimeException {
+
+    public UncheckedMQException(MQException cause) {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized MQException getCause() {
+        return (MQException) super.getCause();
+    }
+}